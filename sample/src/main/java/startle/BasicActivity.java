@@ -6,7 +6,7 @@ import android.os.Bundle;
 import startle.annotation.Startle;
 import startle.sample.R;
 
-@Startle
+@Startle(route = "basic", deepLinks = "/basic")
 public class BasicActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -18,4 +18,7 @@ public class LegacyActivity extends Activity {
     @RequestExtra(String.class)
     @Nullable
     public static final String EXTRA_MESSAGE = "message";
+    @RequestExtra(value = Bitmap.class, inProcess = true)
+    @Nullable
+    public static final String EXTRA_PREVIEW = "preview";
 }
@@ -0,0 +1,31 @@
+package startle.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static method of a {@code @Startle} activity that loads the data
+ * the activity shows. The generated builder starts it on a background
+ * thread as it launches the activity, and {@code setExtras} hands its
+ * {@code Future} to the activity, so the load overlaps the transition.
+ *
+ * <pre>{@code
+ * Future<Item> item;
+ *
+ * @Prefetch("item")
+ * static Item loadItem(long id) throws IOException { ... }
+ * }</pre>
+ *
+ * <p>Each parameter is named after the {@code @RequestExtra} field it's
+ * called with. Requires the startle-runtime library.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Prefetch {
+    /**
+     * The name of the {@code Future} field that gets the result.
+     */
+    String value();
+}
@@ -10,4 +10,20 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.SOURCE)
 public @interface RequestExtra {
     Class value() default void.class;
+
+    /**
+     * Keep the value in the startle-runtime {@code InProcessStore} and only
+     * put a handle to it in the Intent. Avoids parceling large objects, like
+     * bitmaps, through Binder but only works for activities in the same
+     * process and the value is lost if the process is killed.
+     */
+    boolean inProcess() default false;
+
+    /**
+     * A startle-runtime {@code ExtraCodec} of the field's type that writes
+     * the value to a {@code byte[]} extra. For types that are neither
+     * Parcelable nor worth Java serialization. The codec needs a public
+     * no-arg constructor.
+     */
+    Class<?> codec() default void.class;
 }
@@ -0,0 +1,22 @@
+package startle.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the routes and deep links a library module contributes. Generated
+ * on {@code startle.routes.<Module>Routes} when the
+ * {@code startle.routesModule} processor option is set and merged into the
+ * app's {@code startle.routes.StartleRoutes} when it is compiled.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface RouteShard {
+    /**
+     * The module's activities with a route or deep links, whose
+     * {@link Startle} annotations are read again from the class files
+     */
+    Class<?>[] activities();
+}
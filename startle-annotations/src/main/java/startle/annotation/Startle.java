@@ -5,7 +5,47 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Kept in class files so the aggregating routes processor can still read
+ * it from activities Gradle didn't recompile.
+ */
 @Target(ElementType.TYPE)
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface Startle {
+    /**
+     * Generate a staged builder instead of the fluent one. Each required
+     * extra gets its own step interface, so leaving one out is a compile
+     * error instead of an {@link IllegalStateException} from {@code start()}.
+     */
+    boolean staged() default false;
+
+    /**
+     * Name to look the activity up by in the generated
+     * {@code startle.routes.StartleRoutes}. Requires the startle-runtime
+     * library. Unrouted by default.
+     */
+    String route() default "";
+
+    /**
+     * Path patterns like {@code /users/{id}/posts?tab={tab}} that open the
+     * activity through the generated {@code StartleRoutes.dispatch}. A
+     * segment in braces binds the whole segment to the extra of that name,
+     * as does the value of a {@code key={extra}} query parameter. Every
+     * required extra has to be bound. Requires the startle-runtime library.
+     */
+    String[] deepLinks() default {};
+
+    /**
+     * Drop launches with the same extras as one started less than this many
+     * milliseconds ago, like the second launch of a double tap. Requires the
+     * startle-runtime library. Every launch goes through by default.
+     */
+    long debounceMillis() default 0;
+
+    /**
+     * Keep the decoded Parcelable, Serializable and codec extras when the
+     * activity is recreated for a configuration change, so binding again
+     * only reads the cheap ones. Requires the startle-runtime library.
+     */
+    boolean retainExtras() default false;
 }
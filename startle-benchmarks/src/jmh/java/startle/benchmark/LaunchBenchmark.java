@@ -0,0 +1,184 @@
+package startle.benchmark;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the code generated for the three fixture activities:
+ * <ul>
+ *     <li>{@code prepare}: creating the builder and calling every setter</li>
+ *     <li>{@code start}: the above plus {@code getIntent()}'s validation and puts</li>
+ *     <li>{@code bind}: unparceling the extras and {@code setExtras(activity)}</li>
+ *     <li>{@code launch}: start, parcel, unparcel and bind, i.e. a whole launch</li>
+ * </ul>
+ * Run with {@code -prof gc} to get the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LaunchBenchmark {
+    private final Activity caller = new Activity();
+    private final PrimitiveActivity primitiveActivity = new PrimitiveActivity();
+    private final SerializableActivity serializableActivity = new SerializableActivity();
+    private final MixedActivity mixedActivity = new MixedActivity();
+
+    private Payload payload;
+    private LinkedList<String> history;
+    private Date date;
+    private BigDecimal price;
+    private int[] scores;
+    private ArrayList<String> tags;
+    private HashMap<String, String> attributes;
+    private Point location;
+
+    private byte[] primitiveExtras;
+    private byte[] serializableExtras;
+    private byte[] mixedExtras;
+
+    @Setup
+    public void setUp() {
+        date = new Date(1526620000000L);
+        payload = new Payload(42, "Title", "A body that is a little longer than the title", date);
+        history = new LinkedList<>(Arrays.asList("home", "search", "results", "detail"));
+        price = new BigDecimal("19.99");
+        scores = new int[] {3, 1, 4, 1, 5, 9, 2, 6};
+        tags = new ArrayList<>(Arrays.asList("new", "sale", "featured"));
+        attributes = new HashMap<>();
+        attributes.put("color", "blue");
+        attributes.put("size", "medium");
+        attributes.put("material", "cotton");
+        location = new Point(12, 34);
+
+        primitiveExtras = Parcels.marshall(primitiveStart());
+        serializableExtras = Parcels.marshall(serializableStart());
+        mixedExtras = Parcels.marshall(mixedStart());
+    }
+
+    @Benchmark
+    public Object primitivePrepare() {
+        return preparePrimitive();
+    }
+
+    @Benchmark
+    public Intent primitiveStart() {
+        preparePrimitive().start();
+        return caller.takeLastIntent();
+    }
+
+    @Benchmark
+    public PrimitiveActivity primitiveBind() {
+        primitiveActivity.setIntent(Parcels.unmarshall(primitiveExtras));
+        StartPrimitiveActivity.setExtras(primitiveActivity);
+        return primitiveActivity;
+    }
+
+    @Benchmark
+    public PrimitiveActivity primitiveLaunch() {
+        primitiveActivity.setIntent(Parcels.unmarshall(Parcels.marshall(primitiveStart())));
+        StartPrimitiveActivity.setExtras(primitiveActivity);
+        return primitiveActivity;
+    }
+
+    @Benchmark
+    public Object serializablePrepare() {
+        return prepareSerializable();
+    }
+
+    @Benchmark
+    public Intent serializableStart() {
+        prepareSerializable().start();
+        return caller.takeLastIntent();
+    }
+
+    @Benchmark
+    public SerializableActivity serializableBind() {
+        serializableActivity.setIntent(Parcels.unmarshall(serializableExtras));
+        StartSerializableActivity.setExtras(serializableActivity);
+        return serializableActivity;
+    }
+
+    @Benchmark
+    public SerializableActivity serializableLaunch() {
+        serializableActivity.setIntent(Parcels.unmarshall(Parcels.marshall(serializableStart())));
+        StartSerializableActivity.setExtras(serializableActivity);
+        return serializableActivity;
+    }
+
+    @Benchmark
+    public Object mixedPrepare() {
+        return prepareMixed();
+    }
+
+    @Benchmark
+    public Intent mixedStart() {
+        prepareMixed().start();
+        return caller.takeLastIntent();
+    }
+
+    @Benchmark
+    public MixedActivity mixedBind() {
+        mixedActivity.setIntent(Parcels.unmarshall(mixedExtras));
+        StartMixedActivity.setExtras(mixedActivity);
+        return mixedActivity;
+    }
+
+    @Benchmark
+    public MixedActivity mixedLaunch() {
+        mixedActivity.setIntent(Parcels.unmarshall(Parcels.marshall(mixedStart())));
+        StartMixedActivity.setExtras(mixedActivity);
+        return mixedActivity;
+    }
+
+    private StartPrimitiveActivity.Builder preparePrimitive() {
+        return StartPrimitiveActivity.preparePrimitiveActivity(caller)
+                .setEnabled(true)
+                .setLevel((byte) 3)
+                .setInitial('s')
+                .setCount((short) 12)
+                .setPosition(7)
+                .setId(123456789L)
+                .setRatio(0.75f)
+                .setAmount(19.99);
+    }
+
+    private StartSerializableActivity.Builder prepareSerializable() {
+        return StartSerializableActivity.prepareSerializableActivity(caller)
+                .setPayload(payload)
+                .setHistory(history)
+                .setDate(date)
+                .setPrice(price);
+    }
+
+    private StartMixedActivity.Builder prepareMixed() {
+        return StartMixedActivity.prepareMixedActivity(caller)
+                .setId(123456789L)
+                .setTitle("Title")
+                .setScores(scores)
+                .setTags(tags)
+                .setAttributes(attributes)
+                .setLocation(location)
+                .setPayload(payload);
+    }
+}
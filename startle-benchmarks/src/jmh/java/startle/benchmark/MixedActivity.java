@@ -0,0 +1,22 @@
+package startle.benchmark;
+
+import android.app.Activity;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import startle.annotation.RequestExtra;
+import startle.annotation.Startle;
+
+@Startle
+public class MixedActivity extends Activity {
+    @RequestExtra long id;
+    @RequestExtra String title;
+    @RequestExtra @Nullable String subtitle;
+    @RequestExtra int[] scores;
+    @RequestExtra ArrayList<String> tags;
+    @RequestExtra HashMap<String, String> attributes;
+    @RequestExtra Point location;
+    @RequestExtra Payload payload;
+}
@@ -0,0 +1,35 @@
+package startle.benchmark;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+
+/**
+ * Copies Intents the way Binder does between the caller and the started
+ * activity.
+ */
+final class Parcels {
+    private Parcels() {
+    }
+
+    static byte[] marshall(Intent intent) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(intent.getExtras());
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    static Intent unmarshall(byte[] bytes) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            Bundle extras = parcel.readBundle();
+            return new Intent().replaceExtras(extras);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package startle.benchmark;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A typical domain object that's only Serializable.
+ */
+public class Payload implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final long id;
+    final String title;
+    final String body;
+    final Date created;
+
+    public Payload(long id, String title, String body, Date created) {
+        this.id = id;
+        this.title = title;
+        this.body = body;
+        this.created = created;
+    }
+}
@@ -0,0 +1,18 @@
+package startle.benchmark;
+
+import android.app.Activity;
+
+import startle.annotation.RequestExtra;
+import startle.annotation.Startle;
+
+@Startle
+public class PrimitiveActivity extends Activity {
+    @RequestExtra boolean enabled;
+    @RequestExtra byte level;
+    @RequestExtra char initial;
+    @RequestExtra short count;
+    @RequestExtra int position;
+    @RequestExtra long id;
+    @RequestExtra float ratio;
+    @RequestExtra double amount;
+}
@@ -0,0 +1,18 @@
+package startle.benchmark;
+
+import android.app.Activity;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.LinkedList;
+
+import startle.annotation.RequestExtra;
+import startle.annotation.Startle;
+
+@Startle
+public class SerializableActivity extends Activity {
+    @RequestExtra Payload payload;
+    @RequestExtra LinkedList<String> history;
+    @RequestExtra Date date;
+    @RequestExtra BigDecimal price;
+}
@@ -0,0 +1,40 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * JVM stand-in for the Android class.
+ */
+public class Activity extends Context {
+    private Intent intent;
+    private boolean finishing;
+
+    public Intent getIntent() {
+        return intent;
+    }
+
+    public void setIntent(Intent newIntent) {
+        intent = newIntent;
+    }
+
+    public void startActivityForResult(Intent intent, int requestCode) {
+        startActivity(intent);
+    }
+
+    public void runOnUiThread(Runnable action) {
+        action.run();
+    }
+
+    public boolean isFinishing() {
+        return finishing;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    public void finish() {
+        finishing = true;
+    }
+}
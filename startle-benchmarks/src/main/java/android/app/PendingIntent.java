@@ -0,0 +1,29 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * JVM stand-in for the Android class. It only holds on to the Intents it
+ * would launch.
+ */
+public final class PendingIntent {
+    public static final int FLAG_UPDATE_CURRENT = 1 << 27;
+    public static final int FLAG_IMMUTABLE = 1 << 26;
+
+    private final Intent[] intents;
+
+    private PendingIntent(Intent[] intents) {
+        this.intents = intents;
+    }
+
+    public static PendingIntent getActivity(Context context, int requestCode, Intent intent,
+            int flags) {
+        return new PendingIntent(new Intent[] {intent});
+    }
+
+    public static PendingIntent getActivities(Context context, int requestCode, Intent[] intents,
+            int flags) {
+        return new PendingIntent(intents.clone());
+    }
+}
@@ -0,0 +1,20 @@
+package android.content;
+
+/**
+ * JVM stand-in for the Android class.
+ */
+public final class ComponentName {
+    private final String className;
+
+    public ComponentName(Context packageContext, Class<?> cls) {
+        this(cls.getName());
+    }
+
+    ComponentName(String className) {
+        this.className = className;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+}
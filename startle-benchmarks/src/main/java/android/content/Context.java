@@ -0,0 +1,32 @@
+package android.content;
+
+/**
+ * JVM stand-in for the Android class. Starting an activity only records the
+ * Intent so benchmarks can pick it up.
+ */
+public abstract class Context {
+    private Intent lastIntent;
+
+    public ClassLoader getClassLoader() {
+        return getClass().getClassLoader();
+    }
+
+    public void startActivity(Intent intent) {
+        lastIntent = intent;
+    }
+
+    public void startActivities(Intent[] intents) {
+        lastIntent = intents[intents.length - 1];
+    }
+
+    /**
+     * Not part of the Android API.
+     *
+     * @return the Intent most recently passed to startActivity
+     */
+    public Intent takeLastIntent() {
+        Intent intent = lastIntent;
+        lastIntent = null;
+        return intent;
+    }
+}
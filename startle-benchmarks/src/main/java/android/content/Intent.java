@@ -0,0 +1,332 @@
+package android.content;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * JVM stand-in for the Android class. Extras are kept in a {@link Bundle}
+ * like the original and {@link #getExtras()} returns a copy.
+ */
+public class Intent {
+    public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+
+    private String className;
+    private int flags;
+    private Bundle extras;
+
+    public Intent() {
+    }
+
+    public Intent(Context packageContext, Class<?> cls) {
+        this.className = cls.getName();
+    }
+
+    public Intent(Intent o) {
+        this.className = o.className;
+        this.flags = o.flags;
+        this.extras = o.extras == null ? null : new Bundle(o.extras);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public ComponentName getComponent() {
+        return className == null ? null : new ComponentName(className);
+    }
+
+    public Intent addFlags(int flags) {
+        this.flags |= flags;
+        return this;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public Bundle getExtras() {
+        return extras == null ? null : new Bundle(extras);
+    }
+
+    public Intent putExtras(Bundle extras) {
+        bundle().putAll(extras);
+        return this;
+    }
+
+    public Intent replaceExtras(Bundle extras) {
+        this.extras = extras == null ? null : new Bundle(extras);
+        return this;
+    }
+
+    public boolean hasExtra(String name) {
+        return extras != null && extras.containsKey(name);
+    }
+
+    public void removeExtra(String name) {
+        if (extras != null) {
+            extras.remove(name);
+        }
+    }
+
+    private Bundle bundle() {
+        if (extras == null) {
+            extras = new Bundle();
+        }
+        return extras;
+    }
+
+    public Intent putExtra(String name, boolean value) {
+        bundle().putBoolean(name, value);
+        return this;
+    }
+
+    public boolean getBooleanExtra(String name, boolean defaultValue) {
+        return extras == null ? defaultValue : extras.getBoolean(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, byte value) {
+        bundle().putByte(name, value);
+        return this;
+    }
+
+    public byte getByteExtra(String name, byte defaultValue) {
+        return extras == null ? defaultValue : extras.getByte(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, char value) {
+        bundle().putChar(name, value);
+        return this;
+    }
+
+    public char getCharExtra(String name, char defaultValue) {
+        return extras == null ? defaultValue : extras.getChar(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, short value) {
+        bundle().putShort(name, value);
+        return this;
+    }
+
+    public short getShortExtra(String name, short defaultValue) {
+        return extras == null ? defaultValue : extras.getShort(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, int value) {
+        bundle().putInt(name, value);
+        return this;
+    }
+
+    public int getIntExtra(String name, int defaultValue) {
+        return extras == null ? defaultValue : extras.getInt(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, long value) {
+        bundle().putLong(name, value);
+        return this;
+    }
+
+    public long getLongExtra(String name, long defaultValue) {
+        return extras == null ? defaultValue : extras.getLong(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, float value) {
+        bundle().putFloat(name, value);
+        return this;
+    }
+
+    public float getFloatExtra(String name, float defaultValue) {
+        return extras == null ? defaultValue : extras.getFloat(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, double value) {
+        bundle().putDouble(name, value);
+        return this;
+    }
+
+    public double getDoubleExtra(String name, double defaultValue) {
+        return extras == null ? defaultValue : extras.getDouble(name, defaultValue);
+    }
+
+    public Intent putExtra(String name, String value) {
+        bundle().putString(name, value);
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        return extras == null ? null : extras.getString(name);
+    }
+
+    public Intent putExtra(String name, CharSequence value) {
+        bundle().putCharSequence(name, value);
+        return this;
+    }
+
+    public CharSequence getCharSequenceExtra(String name) {
+        return extras == null ? null : extras.getCharSequence(name);
+    }
+
+    public Intent putExtra(String name, Bundle value) {
+        bundle().putBundle(name, value);
+        return this;
+    }
+
+    public Bundle getBundleExtra(String name) {
+        return extras == null ? null : extras.getBundle(name);
+    }
+
+    public Intent putExtra(String name, boolean[] value) {
+        bundle().putBooleanArray(name, value);
+        return this;
+    }
+
+    public boolean[] getBooleanArrayExtra(String name) {
+        return extras == null ? null : extras.getBooleanArray(name);
+    }
+
+    public Intent putExtra(String name, byte[] value) {
+        bundle().putByteArray(name, value);
+        return this;
+    }
+
+    public byte[] getByteArrayExtra(String name) {
+        return extras == null ? null : extras.getByteArray(name);
+    }
+
+    public Intent putExtra(String name, short[] value) {
+        bundle().putShortArray(name, value);
+        return this;
+    }
+
+    public short[] getShortArrayExtra(String name) {
+        return extras == null ? null : extras.getShortArray(name);
+    }
+
+    public Intent putExtra(String name, char[] value) {
+        bundle().putCharArray(name, value);
+        return this;
+    }
+
+    public char[] getCharArrayExtra(String name) {
+        return extras == null ? null : extras.getCharArray(name);
+    }
+
+    public Intent putExtra(String name, int[] value) {
+        bundle().putIntArray(name, value);
+        return this;
+    }
+
+    public int[] getIntArrayExtra(String name) {
+        return extras == null ? null : extras.getIntArray(name);
+    }
+
+    public Intent putExtra(String name, long[] value) {
+        bundle().putLongArray(name, value);
+        return this;
+    }
+
+    public long[] getLongArrayExtra(String name) {
+        return extras == null ? null : extras.getLongArray(name);
+    }
+
+    public Intent putExtra(String name, float[] value) {
+        bundle().putFloatArray(name, value);
+        return this;
+    }
+
+    public float[] getFloatArrayExtra(String name) {
+        return extras == null ? null : extras.getFloatArray(name);
+    }
+
+    public Intent putExtra(String name, double[] value) {
+        bundle().putDoubleArray(name, value);
+        return this;
+    }
+
+    public double[] getDoubleArrayExtra(String name) {
+        return extras == null ? null : extras.getDoubleArray(name);
+    }
+
+    public Intent putExtra(String name, String[] value) {
+        bundle().putStringArray(name, value);
+        return this;
+    }
+
+    public String[] getStringArrayExtra(String name) {
+        return extras == null ? null : extras.getStringArray(name);
+    }
+
+    public Intent putExtra(String name, CharSequence[] value) {
+        bundle().putCharSequenceArray(name, value);
+        return this;
+    }
+
+    public CharSequence[] getCharSequenceArrayExtra(String name) {
+        return extras == null ? null : extras.getCharSequenceArray(name);
+    }
+
+    public Intent putExtra(String name, Parcelable[] value) {
+        bundle().putParcelableArray(name, value);
+        return this;
+    }
+
+    public Parcelable[] getParcelableArrayExtra(String name) {
+        return extras == null ? null : extras.getParcelableArray(name);
+    }
+
+    public Intent putExtra(String name, Serializable value) {
+        bundle().putSerializable(name, value);
+        return this;
+    }
+
+    public Serializable getSerializableExtra(String name) {
+        return extras == null ? null : extras.getSerializable(name);
+    }
+
+    public Intent putStringArrayListExtra(String name, ArrayList<String> value) {
+        bundle().putStringArrayList(name, value);
+        return this;
+    }
+
+    public ArrayList<String> getStringArrayListExtra(String name) {
+        return extras == null ? null : extras.getStringArrayList(name);
+    }
+
+    public Intent putIntegerArrayListExtra(String name, ArrayList<Integer> value) {
+        bundle().putIntegerArrayList(name, value);
+        return this;
+    }
+
+    public ArrayList<Integer> getIntegerArrayListExtra(String name) {
+        return extras == null ? null : extras.getIntegerArrayList(name);
+    }
+
+    public Intent putCharSequenceArrayListExtra(String name, ArrayList<CharSequence> value) {
+        bundle().putCharSequenceArrayList(name, value);
+        return this;
+    }
+
+    public ArrayList<CharSequence> getCharSequenceArrayListExtra(String name) {
+        return extras == null ? null : extras.getCharSequenceArrayList(name);
+    }
+
+    public Intent putExtra(String name, Parcelable value) {
+        bundle().putParcelable(name, value);
+        return this;
+    }
+
+    public <T extends Parcelable> T getParcelableExtra(String name) {
+        return extras == null ? null : extras.<T>getParcelable(name);
+    }
+
+    public Intent putParcelableArrayListExtra(String name, ArrayList<? extends Parcelable> value) {
+        bundle().putParcelableArrayList(name, value);
+        return this;
+    }
+
+    public <T extends Parcelable> ArrayList<T> getParcelableArrayListExtra(String name) {
+        return extras == null ? null : extras.<T>getParcelableArrayList(name);
+    }
+}
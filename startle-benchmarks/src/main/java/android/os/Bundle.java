@@ -0,0 +1,368 @@
+package android.os;
+
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JVM stand-in for the Android class with the same typed accessors. Values
+ * live in a plain map and are only flattened by {@link Parcel}.
+ */
+public final class Bundle implements Parcelable {
+    public static final Bundle EMPTY = new Bundle();
+
+    final Map<String, Object> map;
+
+    public Bundle() {
+        map = new HashMap<>();
+    }
+
+    public Bundle(int capacity) {
+        map = new HashMap<>(capacity);
+    }
+
+    public Bundle(Bundle b) {
+        map = new HashMap<>(b.map);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public boolean containsKey(String key) {
+        return map.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return map.get(key);
+    }
+
+    public void remove(String key) {
+        map.remove(key);
+    }
+
+    public void putAll(Bundle bundle) {
+        map.putAll(bundle.map);
+    }
+
+    public Set<String> keySet() {
+        return map.keySet();
+    }
+
+    public void putBoolean(String key, boolean value) {
+        map.put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        return getBoolean(key, false);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Boolean ? (Boolean) o : defaultValue;
+    }
+
+    public void putByte(String key, byte value) {
+        map.put(key, value);
+    }
+
+    public byte getByte(String key) {
+        return getByte(key, (byte) 0);
+    }
+
+    public byte getByte(String key, byte defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Byte ? (Byte) o : defaultValue;
+    }
+
+    public void putChar(String key, char value) {
+        map.put(key, value);
+    }
+
+    public char getChar(String key) {
+        return getChar(key, (char) 0);
+    }
+
+    public char getChar(String key, char defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Character ? (Character) o : defaultValue;
+    }
+
+    public void putShort(String key, short value) {
+        map.put(key, value);
+    }
+
+    public short getShort(String key) {
+        return getShort(key, (short) 0);
+    }
+
+    public short getShort(String key, short defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Short ? (Short) o : defaultValue;
+    }
+
+    public void putInt(String key, int value) {
+        map.put(key, value);
+    }
+
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Integer ? (Integer) o : defaultValue;
+    }
+
+    public void putLong(String key, long value) {
+        map.put(key, value);
+    }
+
+    public long getLong(String key) {
+        return getLong(key, 0L);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Long ? (Long) o : defaultValue;
+    }
+
+    public void putFloat(String key, float value) {
+        map.put(key, value);
+    }
+
+    public float getFloat(String key) {
+        return getFloat(key, 0f);
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Float ? (Float) o : defaultValue;
+    }
+
+    public void putDouble(String key, double value) {
+        map.put(key, value);
+    }
+
+    public double getDouble(String key) {
+        return getDouble(key, 0.0);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object o = map.get(key);
+        return o instanceof Double ? (Double) o : defaultValue;
+    }
+
+    public void putString(String key, String value) {
+        map.put(key, value);
+    }
+
+    public String getString(String key) {
+        Object o = map.get(key);
+        return o instanceof String ? (String) o : null;
+    }
+
+    public void putCharSequence(String key, CharSequence value) {
+        map.put(key, value);
+    }
+
+    public CharSequence getCharSequence(String key) {
+        Object o = map.get(key);
+        return o instanceof CharSequence ? (CharSequence) o : null;
+    }
+
+    public void putBundle(String key, Bundle value) {
+        map.put(key, value);
+    }
+
+    public Bundle getBundle(String key) {
+        Object o = map.get(key);
+        return o instanceof Bundle ? (Bundle) o : null;
+    }
+
+    public void putBooleanArray(String key, boolean[] value) {
+        map.put(key, value);
+    }
+
+    public boolean[] getBooleanArray(String key) {
+        Object o = map.get(key);
+        return o instanceof boolean[] ? (boolean[]) o : null;
+    }
+
+    public void putByteArray(String key, byte[] value) {
+        map.put(key, value);
+    }
+
+    public byte[] getByteArray(String key) {
+        Object o = map.get(key);
+        return o instanceof byte[] ? (byte[]) o : null;
+    }
+
+    public void putShortArray(String key, short[] value) {
+        map.put(key, value);
+    }
+
+    public short[] getShortArray(String key) {
+        Object o = map.get(key);
+        return o instanceof short[] ? (short[]) o : null;
+    }
+
+    public void putCharArray(String key, char[] value) {
+        map.put(key, value);
+    }
+
+    public char[] getCharArray(String key) {
+        Object o = map.get(key);
+        return o instanceof char[] ? (char[]) o : null;
+    }
+
+    public void putIntArray(String key, int[] value) {
+        map.put(key, value);
+    }
+
+    public int[] getIntArray(String key) {
+        Object o = map.get(key);
+        return o instanceof int[] ? (int[]) o : null;
+    }
+
+    public void putLongArray(String key, long[] value) {
+        map.put(key, value);
+    }
+
+    public long[] getLongArray(String key) {
+        Object o = map.get(key);
+        return o instanceof long[] ? (long[]) o : null;
+    }
+
+    public void putFloatArray(String key, float[] value) {
+        map.put(key, value);
+    }
+
+    public float[] getFloatArray(String key) {
+        Object o = map.get(key);
+        return o instanceof float[] ? (float[]) o : null;
+    }
+
+    public void putDoubleArray(String key, double[] value) {
+        map.put(key, value);
+    }
+
+    public double[] getDoubleArray(String key) {
+        Object o = map.get(key);
+        return o instanceof double[] ? (double[]) o : null;
+    }
+
+    public void putStringArray(String key, String[] value) {
+        map.put(key, value);
+    }
+
+    public String[] getStringArray(String key) {
+        Object o = map.get(key);
+        return o instanceof String[] ? (String[]) o : null;
+    }
+
+    public void putCharSequenceArray(String key, CharSequence[] value) {
+        map.put(key, value);
+    }
+
+    public CharSequence[] getCharSequenceArray(String key) {
+        Object o = map.get(key);
+        return o instanceof CharSequence[] ? (CharSequence[]) o : null;
+    }
+
+    public void putParcelableArray(String key, Parcelable[] value) {
+        map.put(key, value);
+    }
+
+    public Parcelable[] getParcelableArray(String key) {
+        Object o = map.get(key);
+        return o instanceof Parcelable[] ? (Parcelable[]) o : null;
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        map.put(key, value);
+    }
+
+    public Serializable getSerializable(String key) {
+        Object o = map.get(key);
+        return o instanceof Serializable ? (Serializable) o : null;
+    }
+
+    public void putStringArrayList(String key, ArrayList<String> value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<String> getStringArrayList(String key) {
+        Object o = map.get(key);
+        return o instanceof ArrayList ? (ArrayList<String>) o : null;
+    }
+
+    public void putIntegerArrayList(String key, ArrayList<Integer> value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<Integer> getIntegerArrayList(String key) {
+        Object o = map.get(key);
+        return o instanceof ArrayList ? (ArrayList<Integer>) o : null;
+    }
+
+    public void putCharSequenceArrayList(String key, ArrayList<CharSequence> value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<CharSequence> getCharSequenceArrayList(String key) {
+        Object o = map.get(key);
+        return o instanceof ArrayList ? (ArrayList<CharSequence>) o : null;
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelable(String key) {
+        Object o = map.get(key);
+        return o instanceof Parcelable ? (T) o : null;
+    }
+
+    public void putParcelableArrayList(String key, ArrayList<? extends Parcelable> value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> ArrayList<T> getParcelableArrayList(String key) {
+        Object o = map.get(key);
+        return o instanceof ArrayList ? (ArrayList<T>) o : null;
+    }
+
+    public void putSparseParcelableArray(String key, SparseArray<? extends Parcelable> value) {
+        map.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> SparseArray<T> getSparseParcelableArray(String key) {
+        Object o = map.get(key);
+        return o instanceof SparseArray ? (SparseArray<T>) o : null;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeBundle(this);
+    }
+}
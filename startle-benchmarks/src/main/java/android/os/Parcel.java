@@ -0,0 +1,525 @@
+package android.os;
+
+import android.util.SparseArray;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for the Android class. It flattens values into a byte array
+ * with the same type tags and the same costs that matter for comparisons:
+ * strings are written as UTF-16, Parcelables write themselves and are read
+ * back through their {@code CREATOR} and Serializables go through object
+ * streams.
+ */
+public final class Parcel {
+    private static final int VAL_NULL = -1;
+    private static final int VAL_STRING = 0;
+    private static final int VAL_INTEGER = 1;
+    private static final int VAL_BUNDLE = 3;
+    private static final int VAL_PARCELABLE = 4;
+    private static final int VAL_SHORT = 5;
+    private static final int VAL_LONG = 6;
+    private static final int VAL_FLOAT = 7;
+    private static final int VAL_DOUBLE = 8;
+    private static final int VAL_BOOLEAN = 9;
+    private static final int VAL_CHARSEQUENCE = 10;
+    private static final int VAL_LIST = 11;
+    private static final int VAL_SPARSEARRAY = 12;
+    private static final int VAL_BYTEARRAY = 13;
+    private static final int VAL_STRINGARRAY = 14;
+    private static final int VAL_PARCELABLEARRAY = 16;
+    private static final int VAL_INTARRAY = 18;
+    private static final int VAL_LONGARRAY = 19;
+    private static final int VAL_BYTE = 20;
+    private static final int VAL_SERIALIZABLE = 21;
+    private static final int VAL_BOOLEANARRAY = 23;
+    private static final int VAL_CHARSEQUENCEARRAY = 24;
+    private static final int VAL_CHAR = 100;
+    private static final int VAL_SHORTARRAY = 101;
+    private static final int VAL_CHARARRAY = 102;
+    private static final int VAL_FLOATARRAY = 103;
+    private static final int VAL_DOUBLEARRAY = 104;
+
+    private static final Map<Class<?>, Parcelable.Creator<?>> CREATORS = new HashMap<>();
+
+    private byte[] data = new byte[256];
+    private int size;
+    private int position;
+
+    private Parcel() {
+    }
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        size = 0;
+        position = 0;
+    }
+
+    public int dataSize() {
+        return size;
+    }
+
+    public void setDataPosition(int pos) {
+        position = pos;
+    }
+
+    public byte[] marshall() {
+        return Arrays.copyOf(data, size);
+    }
+
+    public void unmarshall(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, data, 0, length);
+        size = length;
+        position = 0;
+    }
+
+    public void writeInt(int val) {
+        ensureCapacity(size + 4);
+        data[size++] = (byte) (val >>> 24);
+        data[size++] = (byte) (val >>> 16);
+        data[size++] = (byte) (val >>> 8);
+        data[size++] = (byte) val;
+    }
+
+    public int readInt() {
+        return ((data[position++] & 0xFF) << 24) | ((data[position++] & 0xFF) << 16)
+                | ((data[position++] & 0xFF) << 8) | (data[position++] & 0xFF);
+    }
+
+    public void writeLong(long val) {
+        writeInt((int) (val >>> 32));
+        writeInt((int) val);
+    }
+
+    public long readLong() {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public void writeFloat(float val) {
+        writeInt(Float.floatToRawIntBits(val));
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public void writeDouble(double val) {
+        writeLong(Double.doubleToRawLongBits(val));
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public void writeString(String val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
+        int length = val.length();
+        writeInt(length);
+        ensureCapacity(size + length * 2);
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            data[size++] = (byte) (c >>> 8);
+            data[size++] = (byte) c;
+        }
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (((data[position++] & 0xFF) << 8) | (data[position++] & 0xFF));
+        }
+        return new String(chars);
+    }
+
+    public void writeByteArray(byte[] b) {
+        if (b == null) {
+            writeInt(-1);
+            return;
+        }
+        writeInt(b.length);
+        ensureCapacity(size + b.length);
+        System.arraycopy(b, 0, data, size, b.length);
+        size += b.length;
+    }
+
+    public byte[] createByteArray() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = Arrays.copyOfRange(data, position, position + length);
+        position += length;
+        return b;
+    }
+
+    public void writeBundle(Bundle val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
+        writeInt(val.map.size());
+        for (Map.Entry<String, Object> entry : val.map.entrySet()) {
+            writeString(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    public Bundle readBundle() {
+        return readBundle(null);
+    }
+
+    public Bundle readBundle(ClassLoader loader) {
+        int count = readInt();
+        if (count < 0) {
+            return null;
+        }
+        Bundle bundle = new Bundle(count);
+        for (int i = 0; i < count; i++) {
+            bundle.map.put(readString(), readValue());
+        }
+        return bundle;
+    }
+
+    public void writeParcelable(Parcelable p, int flags) {
+        if (p == null) {
+            writeString(null);
+            return;
+        }
+        writeString(p.getClass().getName());
+        p.writeToParcel(this, flags);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T readParcelable(ClassLoader loader) {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+        return (T) getCreator(name).createFromParcel(this);
+    }
+
+    public void writeValue(Object v) {
+        if (v == null) {
+            writeInt(VAL_NULL);
+        } else if (v instanceof String) {
+            writeInt(VAL_STRING);
+            writeString((String) v);
+        } else if (v instanceof Integer) {
+            writeInt(VAL_INTEGER);
+            writeInt((Integer) v);
+        } else if (v instanceof Bundle) {
+            writeInt(VAL_BUNDLE);
+            writeBundle((Bundle) v);
+        } else if (v instanceof Parcelable) {
+            writeInt(VAL_PARCELABLE);
+            writeParcelable((Parcelable) v, 0);
+        } else if (v instanceof Short) {
+            writeInt(VAL_SHORT);
+            writeInt((Short) v);
+        } else if (v instanceof Long) {
+            writeInt(VAL_LONG);
+            writeLong((Long) v);
+        } else if (v instanceof Float) {
+            writeInt(VAL_FLOAT);
+            writeFloat((Float) v);
+        } else if (v instanceof Double) {
+            writeInt(VAL_DOUBLE);
+            writeDouble((Double) v);
+        } else if (v instanceof Boolean) {
+            writeInt(VAL_BOOLEAN);
+            writeInt((Boolean) v ? 1 : 0);
+        } else if (v instanceof Byte) {
+            writeInt(VAL_BYTE);
+            writeInt((Byte) v);
+        } else if (v instanceof Character) {
+            writeInt(VAL_CHAR);
+            writeInt((Character) v);
+        } else if (v instanceof CharSequence) {
+            writeInt(VAL_CHARSEQUENCE);
+            writeString(v.toString());
+        } else if (v instanceof ArrayList) {
+            writeInt(VAL_LIST);
+            ArrayList<?> list = (ArrayList<?>) v;
+            writeInt(list.size());
+            for (Object o : list) {
+                writeValue(o);
+            }
+        } else if (v instanceof SparseArray) {
+            writeInt(VAL_SPARSEARRAY);
+            SparseArray<?> array = (SparseArray<?>) v;
+            writeInt(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                writeInt(array.keyAt(i));
+                writeValue(array.valueAt(i));
+            }
+        } else if (v instanceof byte[]) {
+            writeInt(VAL_BYTEARRAY);
+            writeByteArray((byte[]) v);
+        } else if (v instanceof String[]) {
+            writeInt(VAL_STRINGARRAY);
+            String[] array = (String[]) v;
+            writeInt(array.length);
+            for (String s : array) {
+                writeString(s);
+            }
+        } else if (v instanceof Parcelable[]) {
+            writeInt(VAL_PARCELABLEARRAY);
+            Parcelable[] array = (Parcelable[]) v;
+            writeInt(array.length);
+            for (Parcelable p : array) {
+                writeParcelable(p, 0);
+            }
+        } else if (v instanceof CharSequence[]) {
+            writeInt(VAL_CHARSEQUENCEARRAY);
+            CharSequence[] array = (CharSequence[]) v;
+            writeInt(array.length);
+            for (CharSequence s : array) {
+                writeString(s == null ? null : s.toString());
+            }
+        } else if (v instanceof int[]) {
+            writeInt(VAL_INTARRAY);
+            int[] array = (int[]) v;
+            writeInt(array.length);
+            for (int i : array) {
+                writeInt(i);
+            }
+        } else if (v instanceof long[]) {
+            writeInt(VAL_LONGARRAY);
+            long[] array = (long[]) v;
+            writeInt(array.length);
+            for (long l : array) {
+                writeLong(l);
+            }
+        } else if (v instanceof boolean[]) {
+            writeInt(VAL_BOOLEANARRAY);
+            boolean[] array = (boolean[]) v;
+            writeInt(array.length);
+            for (boolean b : array) {
+                writeInt(b ? 1 : 0);
+            }
+        } else if (v instanceof short[]) {
+            writeInt(VAL_SHORTARRAY);
+            short[] array = (short[]) v;
+            writeInt(array.length);
+            for (short s : array) {
+                writeInt(s);
+            }
+        } else if (v instanceof char[]) {
+            writeInt(VAL_CHARARRAY);
+            char[] array = (char[]) v;
+            writeInt(array.length);
+            for (char c : array) {
+                writeInt(c);
+            }
+        } else if (v instanceof float[]) {
+            writeInt(VAL_FLOATARRAY);
+            float[] array = (float[]) v;
+            writeInt(array.length);
+            for (float f : array) {
+                writeFloat(f);
+            }
+        } else if (v instanceof double[]) {
+            writeInt(VAL_DOUBLEARRAY);
+            double[] array = (double[]) v;
+            writeInt(array.length);
+            for (double d : array) {
+                writeDouble(d);
+            }
+        } else if (v instanceof Serializable) {
+            writeInt(VAL_SERIALIZABLE);
+            writeSerializable((Serializable) v);
+        } else {
+            throw new RuntimeException("Parcel: unable to marshal value " + v);
+        }
+    }
+
+    public Object readValue() {
+        int type = readInt();
+        switch (type) {
+            case VAL_NULL:
+                return null;
+            case VAL_STRING:
+            case VAL_CHARSEQUENCE:
+                return readString();
+            case VAL_INTEGER:
+                return readInt();
+            case VAL_BUNDLE:
+                return readBundle();
+            case VAL_PARCELABLE:
+                return readParcelable(null);
+            case VAL_SHORT:
+                return (short) readInt();
+            case VAL_LONG:
+                return readLong();
+            case VAL_FLOAT:
+                return readFloat();
+            case VAL_DOUBLE:
+                return readDouble();
+            case VAL_BOOLEAN:
+                return readInt() != 0;
+            case VAL_BYTE:
+                return (byte) readInt();
+            case VAL_CHAR:
+                return (char) readInt();
+            case VAL_LIST: {
+                int n = readInt();
+                ArrayList<Object> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            }
+            case VAL_SPARSEARRAY: {
+                int n = readInt();
+                SparseArray<Object> array = new SparseArray<>(n);
+                for (int i = 0; i < n; i++) {
+                    int key = readInt();
+                    array.put(key, readValue());
+                }
+                return array;
+            }
+            case VAL_BYTEARRAY:
+                return createByteArray();
+            case VAL_STRINGARRAY: {
+                String[] array = new String[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString();
+                }
+                return array;
+            }
+            case VAL_PARCELABLEARRAY: {
+                Parcelable[] array = new Parcelable[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readParcelable(null);
+                }
+                return array;
+            }
+            case VAL_CHARSEQUENCEARRAY: {
+                CharSequence[] array = new CharSequence[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString();
+                }
+                return array;
+            }
+            case VAL_INTARRAY: {
+                int[] array = new int[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readInt();
+                }
+                return array;
+            }
+            case VAL_LONGARRAY: {
+                long[] array = new long[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readLong();
+                }
+                return array;
+            }
+            case VAL_BOOLEANARRAY: {
+                boolean[] array = new boolean[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readInt() != 0;
+                }
+                return array;
+            }
+            case VAL_SHORTARRAY: {
+                short[] array = new short[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (short) readInt();
+                }
+                return array;
+            }
+            case VAL_CHARARRAY: {
+                char[] array = new char[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (char) readInt();
+                }
+                return array;
+            }
+            case VAL_FLOATARRAY: {
+                float[] array = new float[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readFloat();
+                }
+                return array;
+            }
+            case VAL_DOUBLEARRAY: {
+                double[] array = new double[readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readDouble();
+                }
+                return array;
+            }
+            case VAL_SERIALIZABLE:
+                return readSerializable();
+            default:
+                throw new RuntimeException("Parcel: unmarshalling unknown type code " + type);
+        }
+    }
+
+    public void writeSerializable(Serializable s) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(s);
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Parcelable encountered IOException writing serializable object", e);
+        }
+        writeString(s.getClass().getName());
+        writeByteArray(bytes.toByteArray());
+    }
+
+    public Serializable readSerializable() {
+        readString();
+        byte[] bytes = createByteArray();
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            return (Serializable) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Parcelable encountered exception reading serializable object", e);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private static Parcelable.Creator<?> getCreator(String name) {
+        try {
+            Class<?> cls = Class.forName(name);
+            synchronized (CREATORS) {
+                Parcelable.Creator<?> creator = CREATORS.get(cls);
+                if (creator == null) {
+                    creator = (Parcelable.Creator<?>) cls.getField("CREATOR").get(null);
+                    CREATORS.put(cls, creator);
+                }
+                return creator;
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Parcelable protocol requires a CREATOR on " + name, e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package startle.runtime;
+
+import android.app.Activity;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A pending {@code bindExtrasAsync} of a generated {@code Start} class. The
+ * extras are decoded on an executor and then bound together on the main
+ * thread unless the binding was cancelled first.
+ *
+ * <p>Callers have to {@link #cancel()} it in {@code onDestroy}. The binding
+ * drops the extras by itself once the activity is finishing or being
+ * recreated for a configuration change. Other destroys can only be told
+ * apart from API 17, which this library doesn't require.
+ */
+public final class AsyncBinding {
+    /**
+     * Generated for each activity. {@link #decode()} runs on the executor
+     * and {@link #bind()} on the main thread, after it.
+     */
+    public interface Task {
+        void decode();
+
+        void bind();
+    }
+
+    private final Executor delivery;
+    private final Task task;
+    private final Activity activity;
+    private volatile boolean cancelled;
+
+    AsyncBinding(Executor delivery, Task task, Activity activity) {
+        this.delivery = delivery;
+        this.task = task;
+        this.activity = activity;
+    }
+
+    /**
+     * Delivers the decoded extras with {@link Activity#runOnUiThread} and
+     * drops them if the activity is finishing or changing configurations by
+     * then.
+     */
+    public static AsyncBinding start(Executor executor, final Activity activity, Task task) {
+        Executor delivery = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                activity.runOnUiThread(command);
+            }
+        };
+        return start(executor, delivery, task, activity);
+    }
+
+    static AsyncBinding start(Executor executor, Executor delivery, Task task,
+            Activity activity) {
+        final AsyncBinding binding = new AsyncBinding(delivery, task, activity);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                binding.decode();
+            }
+        });
+        return binding;
+    }
+
+    /**
+     * Drops the extras if they haven't been bound yet. Call it in
+     * {@code onDestroy}, on the main thread so it can't race the binding.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void decode() {
+        if (cancelled) {
+            return;
+        }
+        RuntimeException error = null;
+        try {
+            task.decode();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        final RuntimeException decodeError = error;
+        delivery.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled || activity != null && (activity.isFinishing()
+                        || activity.isChangingConfigurations())) {
+                    cancelled = true;
+                } else if (decodeError != null) {
+                    // fails on the main thread like a bad extra in setExtras would
+                    throw decodeError;
+                } else {
+                    task.bind();
+                }
+            }
+        });
+    }
+}
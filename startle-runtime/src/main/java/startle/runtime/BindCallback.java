@@ -0,0 +1,8 @@
+package startle.runtime;
+
+/**
+ * Told on the main thread once {@code bindExtrasAsync} has bound every extra.
+ */
+public interface BindCallback<A> {
+    void onExtrasBound(A activity);
+}
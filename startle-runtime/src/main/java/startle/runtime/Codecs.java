@@ -0,0 +1,142 @@
+package startle.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Runs {@link ExtraCodec}s for generated code. Each thread keeps one output
+ * buffer and one input reader that are reused by every encode and decode,
+ * so the only allocation per extra is the {@code byte[]} put in the Intent.
+ */
+public final class Codecs {
+    /** Buffers that grew past this are dropped instead of pooled */
+    static final int MAX_POOLED_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Output> OUTPUTS = new ThreadLocal<>();
+    private static final ThreadLocal<Input> INPUTS = new ThreadLocal<>();
+
+    private Codecs() {
+    }
+
+    /**
+     * @return the encoded value or null if the value is null
+     * @throws IllegalStateException if the codec fails
+     */
+    public static <T> byte[] encode(ExtraCodec<T> codec, T value) {
+        if (value == null) {
+            return null;
+        }
+        Output output = OUTPUTS.get();
+        // a codec encoding a nested value with another codec gets its own buffer
+        if (output == null || output.inUse) {
+            output = new Output();
+        }
+        output.inUse = true;
+        try {
+            codec.encode(value, output.data);
+            output.data.flush();
+            return output.bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't encode with " + codec.getClass().getName(),
+                    e);
+        } finally {
+            output.inUse = false;
+            if (output.bytes.capacity() <= MAX_POOLED_SIZE) {
+                output.bytes.reset();
+                OUTPUTS.set(output);
+            } else {
+                OUTPUTS.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the decoded value or null if there are no bytes
+     * @throws IllegalStateException if the codec fails
+     */
+    public static <T> T decode(ExtraCodec<T> codec, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        Input input = INPUTS.get();
+        if (input == null || input.inUse) {
+            input = new Input();
+        }
+        input.inUse = true;
+        input.bytes.reset(bytes);
+        try {
+            return codec.decode(input.data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't decode with " + codec.getClass().getName(),
+                    e);
+        } finally {
+            // don't keep the extra reachable from the pool
+            input.bytes.reset(null);
+            input.inUse = false;
+            INPUTS.set(input);
+        }
+    }
+
+    private static final class Output {
+        final PooledByteArrayOutputStream bytes = new PooledByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(bytes);
+        boolean inUse;
+    }
+
+    private static final class Input {
+        final ByteArrayInput bytes = new ByteArrayInput();
+        final DataInputStream data = new DataInputStream(bytes);
+        boolean inUse;
+    }
+
+    private static final class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+        PooledByteArrayOutputStream() {
+            super(256);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * A ByteArrayInputStream that can be pointed at another array.
+     */
+    private static final class ByteArrayInput extends InputStream {
+        private byte[] bytes;
+        private int position;
+
+        void reset(byte[] bytes) {
+            this.bytes = bytes;
+            this.position = 0;
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int available = bytes.length - position;
+            if (available <= 0) {
+                return -1;
+            }
+            int count = Math.min(len, available);
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return bytes.length - position;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package startle.runtime;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The shared part of the builders generated with the {@code startle.compact}
+ * processor option. Generated setters only store their value by index and
+ * the Intent is filled by one loop over the activity's {@link ExtrasTable},
+ * so each activity costs a constructor and one stub per extra instead of a
+ * full builder.
+ */
+public abstract class CompactBuilder implements Launcher, LaunchDebouncer.Values {
+    private final Context context;
+    private final ExtrasTable table;
+    /**
+     * Primitives by index, floats and doubles as their raw bits and
+     * in-process values as their store handles
+     */
+    private final long[] primitives;
+    private final Object[] objects;
+    private final long[] setBits;
+
+    protected CompactBuilder(Context context, ExtrasTable table) {
+        this.context = context;
+        this.table = table;
+        int size = table.size();
+        this.primitives = new long[size];
+        this.objects = new Object[size];
+        this.setBits = new long[(size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    protected final void putBoolean(int index, boolean value) {
+        putPrimitive(index, value ? 1L : 0L);
+    }
+
+    protected final void putLong(int index, long value) {
+        putPrimitive(index, value);
+    }
+
+    protected final void putFloat(int index, float value) {
+        putPrimitive(index, Float.floatToRawIntBits(value));
+    }
+
+    protected final void putDouble(int index, double value) {
+        putPrimitive(index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * A required object set back to null is missing again.
+     */
+    protected final void putObject(int index, Object value) {
+        objects[index] = value;
+        if (table.getType(index) == ExtrasTable.IN_PROCESS) {
+            // a new value is stored by the next Intent, so one that's replaced before
+            // then never takes up an entry
+            primitives[index] = 0L;
+        }
+        if (value != null) {
+            setBits[index / Long.SIZE] |= 1L << index;
+        } else {
+            setBits[index / Long.SIZE] &= ~(1L << index);
+        }
+    }
+
+    private void putPrimitive(int index, long value) {
+        primitives[index] = value;
+        setBits[index / Long.SIZE] |= 1L << index;
+    }
+
+    private boolean isSet(int index) {
+        return (setBits[index / Long.SIZE] & 1L << index) != 0;
+    }
+
+    @Override
+    public void start() {
+        Intent intent = getLaunchIntent();
+        if (intent != null) {
+            context.startActivity(intent);
+        }
+    }
+
+    @Override
+    public void startForResult(int requestCode) {
+        Intent intent = getLaunchIntent();
+        if (intent != null) {
+            ((Activity) context).startActivityForResult(intent, requestCode);
+        }
+    }
+
+    @Override
+    public LaunchSnapshot snapshot() {
+        return LaunchSnapshot.of(toIntent(), table.inProcessKeys);
+    }
+
+    @Override
+    public Intent toIntent() {
+        StringBuilder missing = null;
+        for (int i = 0; i < table.size(); i++) {
+            if (table.isRequired(i) && !isSet(i)) {
+                if (missing == null) {
+                    missing = new StringBuilder("Missing required extras:");
+                }
+                missing.append(' ').append(table.names[i]);
+            }
+        }
+        if (missing != null) {
+            throw new IllegalStateException(missing.toString());
+        }
+        Intent intent = new Intent(context, table.target);
+        for (int i = 0; i < table.size(); i++) {
+            if (isSet(i)) {
+                put(intent, i);
+            }
+        }
+        return intent;
+    }
+
+    /**
+     * @return the Intent to launch or null if the launch is dropped as a repeat
+     */
+    private Intent getLaunchIntent() {
+        if (table.debouncer != null && !table.debouncer.tryLaunchValues(this)) {
+            return null;
+        }
+        Intent intent = toIntent();
+        LaunchListener launchListener = LaunchMonitor.getListener();
+        if (launchListener != null) {
+            LaunchMonitor.onLaunch(launchListener, table.target, intent);
+        }
+        return intent;
+    }
+
+    /**
+     * Compares the values set so far by index, in-process values by their
+     * value instead of their handle.
+     */
+    @Override
+    public boolean sameValues(Object launched) {
+        LaunchedValues other = (LaunchedValues) launched;
+        if (!Arrays.equals(setBits, other.setBits)) {
+            return false;
+        }
+        for (int i = 0; i < table.size(); i++) {
+            if (!isSet(i)) {
+                continue;
+            }
+            if (ExtrasTable.isPrimitive(table.getType(i))
+                    ? primitives[i] != other.primitives[i]
+                    : !LaunchDebouncer.equal(objects[i], other.objects[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object copyValues() {
+        return new LaunchedValues(primitives.clone(), objects.clone(), setBits.clone());
+    }
+
+    private void put(Intent intent, int index) {
+        String key = table.keys[index];
+        long primitive = primitives[index];
+        Object object = objects[index];
+        switch (table.getType(index)) {
+            case ExtrasTable.BOOLEAN:
+                intent.putExtra(key, primitive != 0L);
+                break;
+            case ExtrasTable.BYTE:
+                intent.putExtra(key, (byte) primitive);
+                break;
+            case ExtrasTable.SHORT:
+                intent.putExtra(key, (short) primitive);
+                break;
+            case ExtrasTable.CHAR:
+                intent.putExtra(key, (char) primitive);
+                break;
+            case ExtrasTable.INT:
+                intent.putExtra(key, (int) primitive);
+                break;
+            case ExtrasTable.LONG:
+                intent.putExtra(key, primitive);
+                break;
+            case ExtrasTable.FLOAT:
+                intent.putExtra(key, Float.intBitsToFloat((int) primitive));
+                break;
+            case ExtrasTable.DOUBLE:
+                intent.putExtra(key, Double.longBitsToDouble(primitive));
+                break;
+            case ExtrasTable.STRING:
+                intent.putExtra(key, (String) object);
+                break;
+            case ExtrasTable.CHAR_SEQUENCE:
+                intent.putExtra(key, (CharSequence) object);
+                break;
+            case ExtrasTable.BUNDLE:
+                intent.putExtra(key, (Bundle) object);
+                break;
+            case ExtrasTable.BOOLEAN_ARRAY:
+                intent.putExtra(key, (boolean[]) object);
+                break;
+            case ExtrasTable.BYTE_ARRAY:
+                intent.putExtra(key, (byte[]) object);
+                break;
+            case ExtrasTable.SHORT_ARRAY:
+                intent.putExtra(key, (short[]) object);
+                break;
+            case ExtrasTable.CHAR_ARRAY:
+                intent.putExtra(key, (char[]) object);
+                break;
+            case ExtrasTable.INT_ARRAY:
+                intent.putExtra(key, (int[]) object);
+                break;
+            case ExtrasTable.LONG_ARRAY:
+                intent.putExtra(key, (long[]) object);
+                break;
+            case ExtrasTable.FLOAT_ARRAY:
+                intent.putExtra(key, (float[]) object);
+                break;
+            case ExtrasTable.DOUBLE_ARRAY:
+                intent.putExtra(key, (double[]) object);
+                break;
+            case ExtrasTable.STRING_ARRAY:
+                intent.putExtra(key, (String[]) object);
+                break;
+            case ExtrasTable.CHAR_SEQUENCE_ARRAY:
+                intent.putExtra(key, (CharSequence[]) object);
+                break;
+            case ExtrasTable.PARCELABLE_ARRAY:
+                intent.putExtra(key, (Parcelable[]) object);
+                break;
+            case ExtrasTable.STRING_ARRAY_LIST:
+                intent.putStringArrayListExtra(key, CompactBuilder.<String>arrayList(object));
+                break;
+            case ExtrasTable.INTEGER_ARRAY_LIST:
+                intent.putIntegerArrayListExtra(key, CompactBuilder.<Integer>arrayList(object));
+                break;
+            case ExtrasTable.CHAR_SEQUENCE_ARRAY_LIST:
+                intent.putCharSequenceArrayListExtra(key,
+                        CompactBuilder.<CharSequence>arrayList(object));
+                break;
+            case ExtrasTable.PARCELABLE_ARRAY_LIST:
+                intent.putParcelableArrayListExtra(key,
+                        CompactBuilder.<Parcelable>arrayList(object));
+                break;
+            case ExtrasTable.PARCELABLE:
+                intent.putExtra(key, (Parcelable) object);
+                break;
+            case ExtrasTable.SERIALIZABLE:
+                intent.putExtra(key, (Serializable) object);
+                break;
+            case ExtrasTable.ENUM:
+                intent.putExtra(key, ((Enum<?>) object).name().hashCode());
+                break;
+            case ExtrasTable.IN_PROCESS:
+                // stored once per value, not every time an Intent is built from it
+                if (primitive == 0L) {
+                    primitive = InProcessStore.getInstance().put(object);
+                    primitives[index] = primitive;
+                }
+                intent.putExtra(key, primitive);
+                break;
+            default:
+                throw new IllegalStateException("Unknown type of extra " + table.names[index]);
+        }
+    }
+
+    /**
+     * Lists and Collections are only copied if they aren't already an ArrayList.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayList<T> arrayList(Object value) {
+        return value instanceof ArrayList ? (ArrayList<T>) value
+                : new ArrayList<>((Collection<T>) value);
+    }
+
+    private static final class LaunchedValues {
+        final long[] primitives;
+        final Object[] objects;
+        final long[] setBits;
+
+        LaunchedValues(long[] primitives, Object[] objects, long[] setBits) {
+            this.primitives = primitives;
+            this.objects = objects;
+            this.setBits = setBits;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package startle.runtime;
+
+/**
+ * Helpers the generated deep link dispatcher matches and parses with. They
+ * work on a region of the path or query value so nothing is split or copied
+ * before a pattern matches, and the {@code is} checks let the generated code
+ * report bad input without catching exceptions. A {@code parse} method may
+ * only be called on a region its {@code is} method accepted.
+ */
+public final class DeepLinkParser {
+    private DeepLinkParser() {
+    }
+
+    /**
+     * @return the end of the path segment starting at {@code start}
+     */
+    public static int segmentEnd(String path, int start, int length) {
+        int end = path.indexOf('/', start);
+        return end == -1 || end > length ? length : end;
+    }
+
+    public static boolean segmentEquals(String path, int start, int end, String segment) {
+        return end - start == segment.length()
+                && path.regionMatches(start, segment, 0, segment.length());
+    }
+
+    public static boolean isBoolean(String value, int start, int end) {
+        int length = end - start;
+        return length == 4 && value.regionMatches(true, start, "true", 0, 4)
+                || length == 5 && value.regionMatches(true, start, "false", 0, 5);
+    }
+
+    public static boolean parseBoolean(String value, int start, int end) {
+        return end - start == 4;
+    }
+
+    public static boolean isInt(String value, int start, int end) {
+        return isInteger(value, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public static int parseInt(String value, int start, int end) {
+        return (int) parseLong(value, start, end);
+    }
+
+    public static boolean isLong(String value, int start, int end) {
+        return isInteger(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public static long parseLong(String value, int start, int end) {
+        boolean negative = value.charAt(start) == '-';
+        int i = negative || value.charAt(start) == '+' ? start + 1 : start;
+        // accumulated negatively so Long.MIN_VALUE doesn't overflow
+        long result = 0;
+        for (; i < end; i++) {
+            result = result * 10 - (value.charAt(i) - '0');
+        }
+        return negative ? result : -result;
+    }
+
+    public static boolean isFloat(String value, int start, int end) {
+        return isDecimal(value, start, end);
+    }
+
+    public static float parseFloat(String value, int start, int end) {
+        return Float.parseFloat(value.substring(start, end));
+    }
+
+    public static boolean isDouble(String value, int start, int end) {
+        return isDecimal(value, start, end);
+    }
+
+    public static double parseDouble(String value, int start, int end) {
+        return Double.parseDouble(value.substring(start, end));
+    }
+
+    private static boolean isInteger(String value, int start, int end, long min, long max) {
+        if (start >= end) {
+            return false;
+        }
+        boolean negative = value.charAt(start) == '-';
+        int i = negative || value.charAt(start) == '+' ? start + 1 : start;
+        if (i == end) {
+            return false;
+        }
+        long limit = negative ? min : -max;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+                return false;
+            }
+            result = result * 10 - digit;
+        }
+        return true;
+    }
+
+    /**
+     * Accepts {@code [+-]digits[.digits][e[+-]digits]}, a subset of what
+     * {@link Double#parseDouble(String)} accepts that excludes its suffixes,
+     * hex and the named values.
+     */
+    private static boolean isDecimal(String value, int start, int end) {
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,73 @@
+package startle.runtime;
+
+/**
+ * The outcome of dispatching a deep link. Bad input is reported here
+ * instead of being thrown so callers can fall back, e.g. to a home screen.
+ */
+public final class DeepLinkResult {
+    public enum Status {
+        /** A pattern matched and {@link #getLauncher()} starts its activity */
+        MATCHED,
+        /** No pattern matched the path */
+        NO_MATCH,
+        /** {@link #getParameter()} couldn't be converted to its extra's type */
+        INVALID_PARAMETER,
+        /** The required query parameter {@link #getParameter()} is missing */
+        MISSING_PARAMETER,
+    }
+
+    private static final DeepLinkResult NO_MATCH = new DeepLinkResult(Status.NO_MATCH, null, null);
+
+    private final Status status;
+    private final Launcher launcher;
+    private final String parameter;
+
+    private DeepLinkResult(Status status, Launcher launcher, String parameter) {
+        this.status = status;
+        this.launcher = launcher;
+        this.parameter = parameter;
+    }
+
+    public static DeepLinkResult matched(Launcher launcher) {
+        return new DeepLinkResult(Status.MATCHED, launcher, null);
+    }
+
+    public static DeepLinkResult noMatch() {
+        return NO_MATCH;
+    }
+
+    public static DeepLinkResult invalid(String parameter) {
+        return new DeepLinkResult(Status.INVALID_PARAMETER, null, parameter);
+    }
+
+    public static DeepLinkResult missing(String parameter) {
+        return new DeepLinkResult(Status.MISSING_PARAMETER, null, parameter);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isMatched() {
+        return status == Status.MATCHED;
+    }
+
+    /**
+     * @return the launcher of the matched activity or null if nothing matched
+     */
+    public Launcher getLauncher() {
+        return launcher;
+    }
+
+    /**
+     * @return the name of the invalid or missing parameter, otherwise null
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    @Override
+    public String toString() {
+        return parameter == null ? status.toString() : status + " " + parameter;
+    }
+}
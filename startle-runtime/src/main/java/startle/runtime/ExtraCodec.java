@@ -0,0 +1,23 @@
+package startle.runtime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts the value of an {@code @RequestExtra(codec = ...)} to and from
+ * the bytes of a {@code byte[]} extra. Implementations need a public no-arg
+ * constructor and are shared by every launch, so they must be stateless.
+ */
+public interface ExtraCodec<T> {
+    /**
+     * @param value never null, null extras aren't encoded
+     * @param output writes to a buffer that's reused across launches
+     */
+    void encode(T value, DataOutput output) throws IOException;
+
+    /**
+     * @param input reads the bytes written by {@link #encode}
+     */
+    T decode(DataInput input) throws IOException;
+}
@@ -0,0 +1,102 @@
+package startle.runtime;
+
+import android.app.Activity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the extras of an activity built by a {@link CompactBuilder}: the
+ * Intent key, field name and type of each one, indexed the same way as the
+ * generated setters. One is generated as a constant per activity when the
+ * {@code startle.compact} processor option is set.
+ */
+public final class ExtrasTable {
+    public static final int BOOLEAN = 0;
+    public static final int BYTE = 1;
+    public static final int SHORT = 2;
+    public static final int CHAR = 3;
+    public static final int INT = 4;
+    public static final int LONG = 5;
+    public static final int FLOAT = 6;
+    public static final int DOUBLE = 7;
+    public static final int STRING = 8;
+    public static final int CHAR_SEQUENCE = 9;
+    public static final int BUNDLE = 10;
+    public static final int BOOLEAN_ARRAY = 11;
+    public static final int BYTE_ARRAY = 12;
+    public static final int SHORT_ARRAY = 13;
+    public static final int CHAR_ARRAY = 14;
+    public static final int INT_ARRAY = 15;
+    public static final int LONG_ARRAY = 16;
+    public static final int FLOAT_ARRAY = 17;
+    public static final int DOUBLE_ARRAY = 18;
+    public static final int STRING_ARRAY = 19;
+    public static final int CHAR_SEQUENCE_ARRAY = 20;
+    public static final int PARCELABLE_ARRAY = 21;
+    public static final int STRING_ARRAY_LIST = 22;
+    public static final int INTEGER_ARRAY_LIST = 23;
+    public static final int CHAR_SEQUENCE_ARRAY_LIST = 24;
+    public static final int PARCELABLE_ARRAY_LIST = 25;
+    public static final int PARCELABLE = 26;
+    public static final int SERIALIZABLE = 27;
+    /** A value kept in the {@link InProcessStore} with only its handle in the Intent */
+    public static final int IN_PROCESS = 28;
+    /** An enum put as the hash of its constant's name */
+    public static final int ENUM = 29;
+
+    /** Added to the type of an extra that has to be set before launching */
+    public static final int REQUIRED = 0x100;
+    static final int TYPE_MASK = 0xff;
+
+    final Class<? extends Activity> target;
+    final String[] keys;
+    final String[] names;
+    final int[] types;
+    final LaunchDebouncer debouncer;
+    /** Passed to {@link LaunchSnapshot#of} */
+    final String[] inProcessKeys;
+
+    public ExtrasTable(Class<? extends Activity> target, String[] keys, String[] names,
+            int[] types) {
+        this(target, keys, names, types, null);
+    }
+
+    /**
+     * @param debouncer drops repeated launches or null to launch every time
+     */
+    public ExtrasTable(Class<? extends Activity> target, String[] keys, String[] names,
+            int[] types, LaunchDebouncer debouncer) {
+        if (keys.length != names.length || keys.length != types.length) {
+            throw new IllegalArgumentException("Every extra needs a key, name and type");
+        }
+        this.target = target;
+        this.keys = keys;
+        this.names = names;
+        this.types = types;
+        this.debouncer = debouncer;
+        List<String> inProcessKeys = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (getType(i) == IN_PROCESS) {
+                inProcessKeys.add(keys[i]);
+            }
+        }
+        this.inProcessKeys = inProcessKeys.toArray(new String[inProcessKeys.size()]);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    boolean isRequired(int index) {
+        return (types[index] & REQUIRED) != 0;
+    }
+
+    int getType(int index) {
+        return types[index] & TYPE_MASK;
+    }
+
+    static boolean isPrimitive(int type) {
+        return type <= DOUBLE;
+    }
+}
@@ -0,0 +1,226 @@
+package startle.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Holds extras marked {@code @RequestExtra(inProcess = true)} so only a
+ * {@code long} handle travels in the Intent instead of the parceled value.
+ *
+ * <p>The most recently used values are held strongly up to
+ * {@link #getMaxEntries()}. Older values are demoted to weak references so
+ * they stay reachable while something else still holds them. A value bound
+ * by an activity is held strongly outside of that limit until it's
+ * {@link #release(long) released}, so a recreated activity binds it again
+ * even after the old one was collected. All methods are thread safe.
+ */
+public final class InProcessStore {
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private static final InProcessStore INSTANCE = new InProcessStore(DEFAULT_MAX_ENTRIES);
+
+    private final Map<Long, Object> strongEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, HandleReference> weakEntries = new HashMap<>();
+    private final Map<Long, Object> boundEntries = new HashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    /**
+     * Random high bits so a handle from a killed process can't resolve to a
+     * value stored by its replacement.
+     */
+    private final long session;
+    private int maxEntries;
+    private int counter;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    InProcessStore(int maxEntries) {
+        this(maxEntries, new Random().nextInt());
+    }
+
+    InProcessStore(int maxEntries, int session) {
+        this.maxEntries = maxEntries;
+        this.session = ((long) session) << 32;
+    }
+
+    public static InProcessStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a handle to pass in the Intent, never 0
+     */
+    public synchronized long put(Object value) {
+        if (value == null) {
+            throw new NullPointerException("value == null");
+        }
+        expungeCollected();
+        long handle;
+        do {
+            handle = session | (++counter & 0xFFFFFFFFL);
+        } while (handle == 0);
+        strongEntries.put(handle, value);
+        trimToSize();
+        return handle;
+    }
+
+    /**
+     * @return the value or null if the handle is 0 or the value is gone
+     */
+    public synchronized Object get(long handle) {
+        if (handle == 0) {
+            return null;
+        }
+        Object value = boundEntries.get(handle);
+        if (value == null) {
+            value = strongEntries.get(handle);
+        }
+        if (value == null) {
+            HandleReference reference = weakEntries.get(handle);
+            value = reference == null ? null : reference.get();
+            if (value != null) {
+                // used again so it's worth holding on to
+                weakEntries.remove(handle);
+                strongEntries.put(handle, value);
+                trimToSize();
+            }
+        }
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * @param name the extra name used in the error message
+     * @return the value or null if the handle is 0
+     * @throws IllegalStateException if the value is no longer in the store,
+     * usually because the process was killed after the activity was launched
+     */
+    public Object require(long handle, String name) {
+        return checkAvailable(get(handle), handle, name);
+    }
+
+    /**
+     * Like {@link #get(long)} for an activity binding the value into a field.
+     * The value no longer takes up one of the {@link #getMaxEntries()} but
+     * is held until {@link #release(long)}, since the activity can be
+     * recreated with the same Intent as long as it isn't finishing.
+     *
+     * @return the value or null if the handle is 0 or the value is gone
+     */
+    public synchronized Object bind(long handle) {
+        Object value = get(handle);
+        if (value != null && !boundEntries.containsKey(handle)) {
+            strongEntries.remove(handle);
+            boundEntries.put(handle, value);
+        }
+        return value;
+    }
+
+    /**
+     * Like {@link #require(long, String)} but releases the value like
+     * {@link #bind(long)}.
+     */
+    public Object bindRequired(long handle, String name) {
+        return checkAvailable(bind(handle), handle, name);
+    }
+
+    private static Object checkAvailable(Object value, long handle, String name) {
+        if (value == null && handle != 0) {
+            throw new IllegalStateException(name + " was passed in-process and is no longer"
+                    + " available. The process was probably restarted since it was launched.");
+        }
+        return value;
+    }
+
+    /**
+     * Demotes a bound value to a weak reference once the activity that bound
+     * it is finishing. It stays available while something else, like a
+     * cached {@link LaunchSnapshot}, still holds it.
+     */
+    public synchronized void release(long handle) {
+        Object value = boundEntries.remove(handle);
+        if (value != null) {
+            weakEntries.put(handle, new HandleReference(handle, value, queue));
+        }
+    }
+
+    public synchronized void remove(long handle) {
+        strongEntries.remove(handle);
+        weakEntries.remove(handle);
+        boundEntries.remove(handle);
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries < 0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        trimToSize();
+    }
+
+    /**
+     * @return the number of values held, strongly, weakly or for a bound
+     * activity
+     */
+    public synchronized int size() {
+        expungeCollected();
+        return strongEntries.size() + weakEntries.size() + boundEntries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of values demoted from strong to weak references
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Long, Object>> iterator = strongEntries.entrySet().iterator();
+        while (strongEntries.size() > maxEntries && iterator.hasNext()) {
+            Map.Entry<Long, Object> eldest = iterator.next();
+            iterator.remove();
+            weakEntries.put(eldest.getKey(),
+                    new HandleReference(eldest.getKey(), eldest.getValue(), queue));
+            evictions++;
+        }
+    }
+
+    private void expungeCollected() {
+        HandleReference reference;
+        while ((reference = (HandleReference) queue.poll()) != null) {
+            if (weakEntries.get(reference.handle) == reference) {
+                weakEntries.remove(reference.handle);
+            }
+        }
+    }
+
+    private static final class HandleReference extends WeakReference<Object> {
+        final long handle;
+
+        HandleReference(long handle, Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.handle = handle;
+        }
+    }
+}
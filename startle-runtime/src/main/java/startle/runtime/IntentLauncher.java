@@ -0,0 +1,69 @@
+package startle.runtime;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Launches an activity without extras, which has no generated builder.
+ */
+public final class IntentLauncher implements Launcher {
+    private final Context context;
+    private final Class<? extends Activity> target;
+    private final LaunchDebouncer debouncer;
+
+    public IntentLauncher(Context context, Class<? extends Activity> target) {
+        this(context, target, null);
+    }
+
+    /**
+     * @param debouncer drops repeated launches or null to launch every time
+     */
+    public IntentLauncher(Context context, Class<? extends Activity> target,
+            LaunchDebouncer debouncer) {
+        this.context = context;
+        this.target = target;
+        this.debouncer = debouncer;
+    }
+
+    @Override
+    public void start() {
+        Intent intent = getLaunchIntent();
+        if (intent != null) {
+            context.startActivity(intent);
+        }
+    }
+
+    @Override
+    public void startForResult(int requestCode) {
+        Intent intent = getLaunchIntent();
+        if (intent != null) {
+            ((Activity) context).startActivityForResult(intent, requestCode);
+        }
+    }
+
+    @Override
+    public LaunchSnapshot snapshot() {
+        return LaunchSnapshot.of(toIntent());
+    }
+
+    @Override
+    public Intent toIntent() {
+        return new Intent(context, target);
+    }
+
+    /**
+     * @return the Intent to launch or null if the launch is dropped as a repeat
+     */
+    private Intent getLaunchIntent() {
+        Intent intent = toIntent();
+        if (debouncer != null && !debouncer.tryLaunch(intent)) {
+            return null;
+        }
+        LaunchListener launchListener = LaunchMonitor.getListener();
+        if (launchListener != null) {
+            LaunchMonitor.onLaunch(launchListener, target, intent);
+        }
+        return intent;
+    }
+}
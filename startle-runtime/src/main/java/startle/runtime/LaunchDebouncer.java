@@ -0,0 +1,158 @@
+package startle.runtime;
+
+import android.content.Intent;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drops repeated launches of an activity with the same extras, like those
+ * of a double tap, for activities with {@code @Startle(debounceMillis = ...)}.
+ * Each generated {@code Start} class holds one for its activity.
+ *
+ * <p>The last launch let through is swapped in with a compare-and-set, so
+ * launching never blocks. The window starts at the launch that went
+ * through and isn't extended by dropped ones.
+ */
+public final class LaunchDebouncer {
+    /**
+     * Told about every dropped launch. Called on the launching thread.
+     */
+    public interface Listener {
+        void onSuppressed(Class<?> target);
+    }
+
+    private static final AtomicLong suppressedCount = new AtomicLong();
+    private static volatile Listener listener;
+
+    private final Class<?> target;
+    private final long windowNanos;
+    private final AtomicReference<Launch> lastLaunch = new AtomicReference<>();
+
+    public LaunchDebouncer(Class<?> target, long windowMillis) {
+        this.target = target;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * @param listener the listener to report to or null to stop reporting
+     */
+    public static void setListener(Listener listener) {
+        LaunchDebouncer.listener = listener;
+    }
+
+    /**
+     * @return the number of launches dropped by every debouncer
+     */
+    public static long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * @return false if a launch with the same extras went through within
+     * the window, in which case this one should be dropped
+     */
+    public boolean tryLaunch(Intent intent) {
+        return tryLaunch(LaunchSnapshot.compareOnly(intent), System.nanoTime());
+    }
+
+    /**
+     * Like {@link #tryLaunch(Intent)} for a builder, which checks before it
+     * builds the Intent. The values are only compared within the window and
+     * only copied once the launch goes through.
+     */
+    public boolean tryLaunchValues(Values values) {
+        return tryLaunch(values, System.nanoTime());
+    }
+
+    boolean tryLaunch(Object extras, long nanos) {
+        return tryLaunch(new Equal(extras), nanos);
+    }
+
+    boolean tryLaunch(Values values, long nanos) {
+        Launch next = null;
+        while (true) {
+            Launch previous = lastLaunch.get();
+            if (previous != null && nanos - previous.nanos < windowNanos
+                    && values.sameValues(previous.values)) {
+                suppressedCount.incrementAndGet();
+                Listener listener = LaunchDebouncer.listener;
+                if (listener != null) {
+                    listener.onSuppressed(target);
+                }
+                return false;
+            }
+            if (next == null) {
+                next = new Launch(values.copyValues(), nanos);
+            }
+            if (lastLaunch.compareAndSet(previous, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Compares arrays by their contents like the extras of an Intent, for
+     * the object extras of generated builders.
+     */
+    public static boolean equal(Object a, Object b) {
+        if (a == b) {
+            return true;
+        } else if (a == null || b == null) {
+            return false;
+        } else if (a.getClass().isArray()) {
+            // deepEquals compares primitive arrays by content as well
+            return Arrays.deepEquals(new Object[] {a}, new Object[] {b});
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * The extras of a launch before its Intent is built, implemented by the
+     * generated builders. In-process extras are compared by their value, not
+     * their handle, which differs between builders of the same launch.
+     */
+    public interface Values {
+        /**
+         * @param launched what {@link #copyValues()} returned for an earlier
+         *                 launch of the same activity
+         */
+        boolean sameValues(Object launched);
+
+        /**
+         * @return the values to compare later launches to, without holding on
+         * to the launch's Context
+         */
+        Object copyValues();
+    }
+
+    private static final class Equal implements Values {
+        final Object extras;
+
+        Equal(Object extras) {
+            this.extras = extras;
+        }
+
+        @Override
+        public boolean sameValues(Object launched) {
+            return extras.equals(launched);
+        }
+
+        @Override
+        public Object copyValues() {
+            return extras;
+        }
+    }
+
+    private static final class Launch {
+        final Object values;
+        final long nanos;
+
+        Launch(Object values, long nanos) {
+            this.values = values;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package startle.runtime;
+
+/**
+ * Receives metrics for launches made through generated builders. Register
+ * one with {@link LaunchMonitor#setListener(LaunchListener)}.
+ *
+ * <p>Callbacks run synchronously on the launching and binding threads,
+ * which is usually the main thread, so hand the numbers off quickly.
+ */
+public interface LaunchListener {
+    /**
+     * Called right before the activity is started.
+     *
+     * @param target the activity being launched
+     * @param extraCount the number of extras in the Intent
+     * @param extrasSize the parceled size of the extras in bytes, or
+     * {@link LaunchMonitor#UNMEASURED} unless measuring it is turned on with
+     * {@link LaunchMonitor#setMeasuringExtrasSize(boolean)}
+     */
+    void onLaunch(Class<?> target, int extraCount, int extrasSize);
+
+    /**
+     * Called once the launched activity bound its extras.
+     *
+     * @param target the activity that was launched
+     * @param elapsedNanos the time from the launch to the end of the binding
+     */
+    void onBind(Class<?> target, long elapsedNanos);
+}
@@ -0,0 +1,98 @@
+package startle.runtime;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Parcel;
+
+/**
+ * Entry point of the launch instrumentation generated into every builder
+ * and binder when startle-runtime is on the processor's classpath.
+ *
+ * <p>Generated code only reads {@link #getListener()} and skips everything
+ * else while no listener is registered, so it's cheap enough to leave in
+ * release builds.
+ */
+public final class LaunchMonitor {
+    /** Launch timestamp added to the Intent while a listener is registered */
+    static final String EXTRA_LAUNCH_NANOS = "startle.runtime.LaunchMonitor.launchNanos";
+    /** The extras size reported while measuring it is off */
+    public static final int UNMEASURED = -1;
+
+    private static volatile LaunchListener listener;
+    private static volatile boolean measuringExtrasSize;
+
+    private LaunchMonitor() {
+    }
+
+    public static LaunchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener the listener to report to or null to stop reporting
+     */
+    public static void setListener(LaunchListener listener) {
+        LaunchMonitor.listener = listener;
+    }
+
+    /**
+     * Off by default, because the size is only known by parceling the
+     * extras, which copies all of them once more on every launch.
+     *
+     * @param measuring true to report the parceled size of the extras
+     * instead of {@link #UNMEASURED}
+     */
+    public static void setMeasuringExtrasSize(boolean measuring) {
+        measuringExtrasSize = measuring;
+    }
+
+    public static void onLaunch(LaunchListener listener, Class<?> target, Intent intent) {
+        Bundle extras = intent.getExtras();
+        int extraCount = extras != null ? extras.size() : 0;
+        int extrasSize = UNMEASURED;
+        if (measuringExtrasSize) {
+            extrasSize = 0;
+            if (extras != null) {
+                Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.writeBundle(extras);
+                    extrasSize = parcel.dataSize();
+                } finally {
+                    parcel.recycle();
+                }
+            }
+        }
+        intent.putExtra(EXTRA_LAUNCH_NANOS, launched(listener, target, extraCount, extrasSize));
+    }
+
+    public static void onBind(LaunchListener listener, Class<?> target, Intent intent) {
+        long launchNanos = intent.getLongExtra(EXTRA_LAUNCH_NANOS, 0L);
+        // rebinding after a configuration change isn't part of the launch
+        if (bound(listener, target, launchNanos)) {
+            intent.removeExtra(EXTRA_LAUNCH_NANOS);
+        }
+    }
+
+    /**
+     * @return the launch timestamp to pass along in the Intent
+     */
+    static long launched(LaunchListener listener, Class<?> target, int extraCount,
+            int extrasSize) {
+        listener.onLaunch(target, extraCount, extrasSize);
+        // System.nanoTime is the monotonic clock shared by all processes on Android
+        return System.nanoTime();
+    }
+
+    /**
+     * @param launchNanos the timestamp from the Intent or 0 if it has none
+     * @return true if the bind was reported and the timestamp has to be
+     * removed from the Intent
+     */
+    static boolean bound(LaunchListener listener, Class<?> target, long launchNanos) {
+        if (launchNanos == 0L) {
+            return false;
+        }
+        listener.onBind(target, System.nanoTime() - launchNanos);
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+package startle.runtime;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable launch taken from a builder with {@link Launcher#snapshot()}.
+ * The required extras are verified once when it's taken and it compares by
+ * value, so it can key caches like {@link PendingIntentCache} for launches
+ * that are built over and over with the same extras.
+ *
+ * <p>Extras are compared by their values, arrays and nested Bundles
+ * included. Parcelable and Serializable extras are compared with their own
+ * {@code equals}.
+ *
+ * <p>Arrays and lists are copied when the snapshot is taken, so changing
+ * them afterwards can't break a cache lookup. Parcelable and Serializable
+ * values aren't copied and mustn't be changed while the snapshot is used.
+ *
+ * <p>In-process extras are held and compared by their value in the
+ * {@link InProcessStore} instead of their handle, so a builder snapshotted
+ * twice gives equal snapshots, and the handle in the Intent stays valid for
+ * as long as the snapshot is kept, e.g. as a key of the cache.
+ */
+public final class LaunchSnapshot {
+    private final Intent intent;
+    private final String className;
+    private final Map<String, Object> values;
+    private final int hashCode;
+
+    LaunchSnapshot(Intent intent, String className, Map<String, Object> values) {
+        this.intent = intent;
+        this.className = className;
+        this.values = values;
+        this.hashCode = 31 * className.hashCode() + valuesHashCode(values);
+    }
+
+    /**
+     * @param intent copied, so later changes to it don't affect the snapshot
+     * @param inProcessKeys the keys of the extras holding an
+     *                      {@link InProcessStore} handle
+     * @throws IllegalStateException if an in-process value is no longer
+     * in the store
+     */
+    public static LaunchSnapshot of(Intent intent, String... inProcessKeys) {
+        Intent copy = new Intent(intent);
+        return new LaunchSnapshot(copy, copy.getComponent().getClassName(),
+                resolveInProcess(toValues(copy.getExtras()), inProcessKeys));
+    }
+
+    /**
+     * @return a snapshot that only compares the Intent's extras, without
+     * copying the Intent it can't launch
+     */
+    static LaunchSnapshot compareOnly(Intent intent) {
+        return new LaunchSnapshot(null, intent.getComponent().getClassName(),
+                toValues(intent.getExtras()));
+    }
+
+    /**
+     * @return a new copy of the Intent to launch or wrap
+     */
+    public Intent newIntent() {
+        return new Intent(intent);
+    }
+
+    /**
+     * @return the name of the activity this launches
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Replaces the handles of in-process extras with their values.
+     */
+    static Map<String, Object> resolveInProcess(Map<String, Object> values,
+            String... inProcessKeys) {
+        for (String key : inProcessKeys) {
+            Object handle = values.get(key);
+            if (handle instanceof Long) {
+                values.put(key, InProcessStore.getInstance().require((Long) handle, key));
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Object> toValues(Bundle extras) {
+        if (extras == null || extras.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> values = new HashMap<>(extras.size() * 4 / 3 + 1);
+        for (String key : extras.keySet()) {
+            Object value = extras.get(key);
+            values.put(key, value instanceof Bundle ? toValues((Bundle) value) : copyOf(value));
+        }
+        return values;
+    }
+
+    /**
+     * @return a copy of an array or list, or the value itself
+     */
+    static Object copyOf(Object value) {
+        if (value instanceof Object[]) {
+            return ((Object[]) value).clone();
+        } else if (value instanceof ArrayList) {
+            return new ArrayList<>((ArrayList<?>) value);
+        } else if (value instanceof int[]) {
+            return ((int[]) value).clone();
+        } else if (value instanceof long[]) {
+            return ((long[]) value).clone();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof char[]) {
+            return ((char[]) value).clone();
+        } else if (value instanceof short[]) {
+            return ((short[]) value).clone();
+        } else if (value instanceof float[]) {
+            return ((float[]) value).clone();
+        } else if (value instanceof double[]) {
+            return ((double[]) value).clone();
+        } else if (value instanceof boolean[]) {
+            return ((boolean[]) value).clone();
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LaunchSnapshot)) {
+            return false;
+        }
+        LaunchSnapshot other = (LaunchSnapshot) o;
+        return hashCode == other.hashCode && className.equals(other.className)
+                && valuesEqual(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchSnapshot{" + className + ", " + values.keySet() + "}";
+    }
+
+    static boolean valuesEqual(Map<String, Object> a, Map<String, Object> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : a.entrySet()) {
+            if (!b.containsKey(entry.getKey())
+                    || !valueEquals(entry.getValue(), b.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Order independent like {@link Map#hashCode()}, but hashes array
+     * contents instead of their identity.
+     */
+    static int valuesHashCode(Map<String, Object> values) {
+        int hash = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            hash += entry.getKey().hashCode() ^ valueHashCode(entry.getValue());
+        }
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean valueEquals(Object a, Object b) {
+        if (a instanceof Map && b instanceof Map) {
+            return valuesEqual((Map<String, Object>) a, (Map<String, Object>) b);
+        }
+        // deepEquals compares primitive arrays by content as well
+        return Arrays.deepEquals(new Object[] {a}, new Object[] {b});
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int valueHashCode(Object value) {
+        if (value instanceof Map) {
+            return valuesHashCode((Map<String, Object>) value);
+        }
+        return Arrays.deepHashCode(new Object[] {value});
+    }
+}
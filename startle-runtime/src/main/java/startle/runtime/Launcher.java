@@ -0,0 +1,25 @@
+package startle.runtime;
+
+import android.content.Intent;
+
+/**
+ * Starts a prepared activity launch, e.g. the builder of a matched deep link.
+ */
+public interface Launcher {
+    void start();
+
+    void startForResult(int requestCode);
+
+    /**
+     * @return the Intent the start methods launch, which isn't reported to
+     * the {@link LaunchMonitor} since it may be launched later or never
+     * @throws IllegalStateException if a required extra wasn't set
+     */
+    Intent toIntent();
+
+    /**
+     * @return the launch as an immutable value for reuse
+     * @throws IllegalStateException if a required extra wasn't set
+     */
+    LaunchSnapshot snapshot();
+}
@@ -0,0 +1,49 @@
+package startle.runtime;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.io.Serializable;
+
+/**
+ * The type of an {@code @RequestExtra} field whose Parcelable or
+ * Serializable value is only read from the extras the first time
+ * {@link #get()} is called, keeping it off the {@code onCreate} path. It's
+ * read from the Bundle {@code setExtras} already took, since going through
+ * the Intent again would copy and unparcel its extras a second time. The
+ * value is cached after that. Not thread safe, it's meant to be read on the
+ * main thread like the activity that holds it.
+ */
+public final class Lazy<T> {
+    private Bundle extras;
+    private final String key;
+    private final boolean parcelable;
+    private T value;
+
+    private Lazy(Bundle extras, String key, boolean parcelable) {
+        this.extras = extras;
+        this.key = key;
+        this.parcelable = parcelable;
+    }
+
+    public static <T extends Parcelable> Lazy<T> parcelable(Bundle extras, String key) {
+        return new Lazy<>(extras, key, true);
+    }
+
+    public static <T extends Serializable> Lazy<T> serializable(Bundle extras, String key) {
+        return new Lazy<>(extras, key, false);
+    }
+
+    /**
+     * @return the extra, or null if the extras don't have it
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (extras != null) {
+            value = (T) (parcelable ? extras.getParcelable(key) : extras.getSerializable(key));
+            // the extras aren't needed once the value is read
+            extras = null;
+        }
+        return value;
+    }
+}
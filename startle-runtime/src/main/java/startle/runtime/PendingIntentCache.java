@@ -0,0 +1,115 @@
+package startle.runtime;
+
+import android.app.PendingIntent;
+import android.content.Context;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reuses the PendingIntents of notifications and widgets that launch the
+ * same {@link LaunchSnapshot} repeatedly, holding the most recently used
+ * ones up to a maximum. All methods are thread safe.
+ *
+ * <p>Android tells PendingIntents apart by their request code and
+ * {@code Intent.filterEquals}, which ignores extras. The request code starts
+ * from the snapshot's hash, so the same launch usually gets the same code in
+ * a new process, and moves on to the next free one if a different cached
+ * snapshot already has it. Launches of the same activity with different
+ * extras don't replace each other's PendingIntent while they're cached.
+ *
+ * <p>A cached snapshot keeps the values of its in-process extras, so their
+ * handles in the cached PendingIntent resolve until it's evicted.
+ */
+public final class PendingIntentCache {
+    private final Map<LaunchSnapshot, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, LaunchSnapshot> requestCodes = new HashMap<>();
+    private final int maxEntries;
+    private final int flags;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param flags the {@code PendingIntent.FLAG_*} every PendingIntent is
+     *              created with
+     */
+    public PendingIntentCache(int maxEntries, int flags) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries < 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.flags = flags;
+    }
+
+    public PendingIntent get(Context context, LaunchSnapshot snapshot) {
+        Entry entry;
+        synchronized (this) {
+            entry = reserve(snapshot);
+            if (entry.pendingIntent != null) {
+                hits++;
+                return entry.pendingIntent;
+            }
+            misses++;
+        }
+        // created outside the lock since it's a call into the system, a race
+        // only creates the same PendingIntent twice
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, entry.requestCode,
+                snapshot.newIntent(), flags);
+        synchronized (this) {
+            entry.pendingIntent = pendingIntent;
+        }
+        return pendingIntent;
+    }
+
+    /**
+     * @return the cached entry of the snapshot, or a new one with a request
+     * code no other cached snapshot has
+     */
+    synchronized Entry reserve(LaunchSnapshot snapshot) {
+        Entry entry = entries.get(snapshot);
+        if (entry != null) {
+            return entry;
+        }
+        int requestCode = snapshot.hashCode();
+        while (requestCodes.containsKey(requestCode)) {
+            requestCode++;
+        }
+        entry = new Entry(requestCode);
+        entries.put(snapshot, entry);
+        requestCodes.put(requestCode, snapshot);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            requestCodes.remove(iterator.next().requestCode);
+            iterator.remove();
+        }
+        return entry;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        requestCodes.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    static final class Entry {
+        final int requestCode;
+        PendingIntent pendingIntent;
+
+        Entry(int requestCode) {
+            this.requestCode = requestCode;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package startle.runtime;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@code @Prefetch} loads a builder starts with the launch and
+ * hands each one's {@link Future} to the activity it was started for. Only a
+ * {@code long} handle travels in the Intent.
+ *
+ * <p>A prefetch nobody takes within {@link #getExpiryMillis()}, or that is
+ * pushed out by {@link #getMaxEntries()} newer ones, is cancelled. The
+ * activity then starts the same load itself when it binds, so a miss costs
+ * the time the prefetch would have saved and nothing more.
+ *
+ * <p>A taken load is kept, so an activity recreated after a configuration
+ * change takes the same one again, until it's {@link #release released}
+ * once the activity finishes or pushed out by {@link #getMaxEntries()}
+ * more recently taken ones. All methods are thread safe.
+ */
+public final class PrefetchCache {
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final long DEFAULT_EXPIRY_MILLIS = 10000;
+
+    private static final PrefetchCache INSTANCE = new PrefetchCache(DEFAULT_MAX_ENTRIES,
+            DEFAULT_EXPIRY_MILLIS, createDefaultExecutor());
+
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, FutureTask<?>> taken = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Random high bits so a handle from a killed process can't resolve to a
+     * load started by its replacement.
+     */
+    private final long session;
+    private int maxEntries;
+    private long expiryNanos;
+    private Executor executor;
+    private int counter;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    PrefetchCache(int maxEntries, long expiryMillis, Executor executor) {
+        this(maxEntries, expiryMillis, executor, new Random().nextInt());
+    }
+
+    PrefetchCache(int maxEntries, long expiryMillis, Executor executor, int session) {
+        this.maxEntries = maxEntries;
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+        this.executor = executor;
+        this.session = ((long) session) << 32;
+    }
+
+    public static PrefetchCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts the load on the executor.
+     *
+     * @return a handle to pass in the Intent, never 0
+     */
+    public <T> long prefetch(Callable<T> loader) {
+        return prefetch(loader, System.nanoTime());
+    }
+
+    <T> long prefetch(Callable<T> loader, long nanos) {
+        FutureTask<T> task = new FutureTask<>(loader);
+        long handle;
+        Executor executor;
+        synchronized (this) {
+            expire(nanos);
+            do {
+                handle = session | (++counter & 0xFFFFFFFFL);
+            } while (handle == 0);
+            entries.put(handle, new Entry(task, nanos));
+            trimToSize();
+            executor = this.executor;
+        }
+        // outside the lock in case the executor runs it right away
+        executor.execute(task);
+        return handle;
+    }
+
+    /**
+     * @param handle the handle from the Intent or 0 if there was none
+     * @param fallback the load to start if the prefetch is gone
+     * @return the prefetched Future or the fallback's
+     */
+    public <T> Future<T> take(long handle, Callable<T> fallback) {
+        return take(handle, fallback, System.nanoTime());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Future<T> take(long handle, Callable<T> fallback, long nanos) {
+        Executor executor;
+        synchronized (this) {
+            expire(nanos);
+            FutureTask<?> task = handle == 0 ? null : taken.get(handle);
+            Entry entry = handle == 0 || task != null ? null : entries.remove(handle);
+            if (entry != null) {
+                task = entry.task;
+                taken.put(handle, task);
+                trimTaken();
+            }
+            if (task != null) {
+                hits++;
+                return (Future<T>) task;
+            }
+            misses++;
+            executor = this.executor;
+        }
+        FutureTask<T> task = new FutureTask<>(fallback);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Drops a taken load once the activity that took it is finishing.
+     *
+     * @param handle the handle from the Intent or 0 if there was none
+     */
+    public synchronized void release(long handle) {
+        taken.remove(handle);
+    }
+
+    /**
+     * @param executor runs the loads, by default a small pool of daemon
+     * threads
+     */
+    public synchronized void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor == null");
+        }
+        this.executor = executor;
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries < 0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        trimToSize();
+        trimTaken();
+    }
+
+    public synchronized long getExpiryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiryNanos);
+    }
+
+    public synchronized void setExpiryMillis(long expiryMillis) {
+        if (expiryMillis < 0) {
+            throw new IllegalArgumentException("expiryMillis < 0: " + expiryMillis);
+        }
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+    }
+
+    /**
+     * @return the number of prefetches waiting to be taken
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of activities that got their prefetch
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of activities that had to start their own load
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of prefetches cancelled because they expired or
+     * there were too many
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void expire(long nanos) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (nanos - eldest.startNanos < expiryNanos) {
+                // the rest were started later
+                return;
+            }
+            iterator.remove();
+            eldest.task.cancel(false);
+            evictions++;
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            eldest.task.cancel(false);
+            evictions++;
+        }
+    }
+
+    /**
+     * Taken loads are only held for recreated activities, so the eldest is
+     * dropped without being cancelled.
+     */
+    private void trimTaken() {
+        Iterator<FutureTask<?>> iterator = taken.values().iterator();
+        while (taken.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static Executor createDefaultExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "startle-prefetch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Entry {
+        final FutureTask<?> task;
+        final long startNanos;
+
+        Entry(FutureTask<?> task, long startNanos) {
+            this.task = task;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package startle.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the decoded extras of activities marked
+ * {@code @Startle(retainExtras = true)} so binding again after a
+ * configuration change doesn't deserialize them again.
+ *
+ * <p>Values are keyed on the identity of the activity's Intent, which the
+ * framework hands to the recreated activity unchanged. A new Intent, from
+ * {@code setIntent} or a restarted process, starts with empty slots and is
+ * decoded in full. Entries are dropped once their Intent is collected. All
+ * methods are thread safe.
+ */
+public final class RetainedExtras {
+    private static final RetainedExtras INSTANCE = new RetainedExtras();
+
+    private final Map<IdentityReference, Object[]> entries = new HashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private long hits;
+    private long misses;
+
+    RetainedExtras() {
+    }
+
+    public static RetainedExtras getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param size the number of retained extras of the activity
+     * @return the slots of the Intent's decoded extras, where null is an
+     * extra that still has to be decoded. Filled in by the caller.
+     */
+    public synchronized Object[] get(Object intent, int size) {
+        if (intent == null) {
+            return new Object[size];
+        }
+        expungeCollected();
+        IdentityReference reference = new IdentityReference(intent, queue);
+        Object[] slots = entries.get(reference);
+        if (slots != null && slots.length == size) {
+            hits++;
+            return slots;
+        }
+        misses++;
+        slots = new Object[size];
+        entries.put(reference, slots);
+        return slots;
+    }
+
+    /**
+     * Forgets the Intent's values, like when the activity changes them
+     * in place.
+     */
+    public synchronized void remove(Object intent) {
+        entries.remove(new IdentityReference(intent, null));
+    }
+
+    /**
+     * @return the number of Intents with retained values
+     */
+    public synchronized int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private void expungeCollected() {
+        Object reference;
+        while ((reference = queue.poll()) != null) {
+            entries.remove(reference);
+        }
+    }
+
+    /**
+     * Equal to another reference to the same object, or to itself once
+     * collected so it can still be removed.
+     */
+    private static final class IdentityReference extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityReference(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof IdentityReference)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityReference) o).get();
+        }
+    }
+}
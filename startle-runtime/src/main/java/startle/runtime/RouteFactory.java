@@ -0,0 +1,22 @@
+package startle.runtime;
+
+import android.app.Activity;
+import android.content.Context;
+
+/**
+ * Prepares the launch of a routed {@code @Startle(route = ...)} activity.
+ * Each is a constant on the activity's generated {@code Start} class and is
+ * looked up by name through the generated {@code startle.routes.StartleRoutes}.
+ *
+ * @param <B> the activity's builder or, for an activity without extras,
+ *           {@link android.content.Intent}
+ */
+public interface RouteFactory<B> {
+    Class<? extends Activity> getActivityClass();
+
+    /**
+     * @return what {@code prepare<Activity>(context)} returns or, for an
+     * activity without extras, an Intent that starts it
+     */
+    B prepare(Context context);
+}
@@ -0,0 +1,96 @@
+package startle.runtime;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Launches a back stack of activities with one
+ * {@link Context#startActivities(Intent[])} call instead of a
+ * {@code start()} per screen. The last activity added ends up on top.
+ *
+ * <pre>{@code
+ * StartleStack.with(context)
+ *         .add(StartInboxActivity.prepareInboxActivity(context))
+ *         .add(StartThreadActivity.prepareThreadActivity(context).setThreadId(id))
+ *         .start();
+ * }</pre>
+ *
+ * <p>Each builder's Intent is taken, and its required extras verified, when
+ * it's added, so a missing extra fails at the line that forgot it.
+ */
+public final class StartleStack {
+    private final Context context;
+    private final List<Intent> intents = new ArrayList<>();
+
+    private StartleStack(Context context) {
+        this.context = context;
+    }
+
+    public static StartleStack with(Context context) {
+        return new StartleStack(context);
+    }
+
+    /**
+     * @throws IllegalStateException if a required extra wasn't set
+     */
+    public StartleStack add(Launcher launcher) {
+        intents.add(launcher.toIntent());
+        return this;
+    }
+
+    /**
+     * Starts every activity added so far. Outside of an activity the bottom
+     * one starts a new task, which Android requires there.
+     */
+    public void start() {
+        Intent[] stack = getIntents();
+        if (!(context instanceof Activity)) {
+            stack[0].addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        }
+        LaunchListener launchListener = LaunchMonitor.getListener();
+        if (launchListener != null) {
+            for (Intent intent : stack) {
+                LaunchMonitor.onLaunch(launchListener, getTarget(intent), intent);
+            }
+        }
+        context.startActivities(stack);
+    }
+
+    /**
+     * @return a PendingIntent that launches the stack, e.g. for a
+     * notification. The bottom activity starts a new task.
+     * @see PendingIntent#getActivities(Context, int, Intent[], int)
+     */
+    public PendingIntent getPendingIntent(int requestCode, int flags) {
+        return PendingIntent.getActivities(context, requestCode, getIntents(), flags);
+    }
+
+    /**
+     * @return the Intents of the stack from the bottom up
+     * @throws IllegalStateException if nothing was added
+     */
+    public Intent[] getIntents() {
+        if (intents.isEmpty()) {
+            throw new IllegalStateException("No activities were added to the stack");
+        }
+        return intents.toArray(new Intent[intents.size()]);
+    }
+
+    /**
+     * Only looked up while a listener is registered, so the builders don't
+     * need to hand out their activity class too.
+     */
+    private Class<?> getTarget(Intent intent) {
+        String className = intent.getComponent().getClassName();
+        try {
+            return Class.forName(className, false, context.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Can't load " + className, e);
+        }
+    }
+}
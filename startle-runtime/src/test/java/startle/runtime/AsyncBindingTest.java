@@ -0,0 +1,113 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncBindingTest {
+    private final QueueExecutor background = new QueueExecutor();
+    private final QueueExecutor main = new QueueExecutor();
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    public void decodesInTheBackgroundAndBindsOnTheMainThread() {
+        AsyncBinding.start(background, main, new RecordingTask(), null);
+        assertEquals(0, calls.size());
+
+        background.runNext();
+        assertEquals(list("decode"), calls);
+
+        main.runNext();
+        assertEquals(list("decode", "bind"), calls);
+        assertTrue(background.isEmpty() && main.isEmpty());
+    }
+
+    @Test
+    public void cancellingBeforeDecodingSkipsEverything() {
+        AsyncBinding binding = AsyncBinding.start(background, main, new RecordingTask(), null);
+        binding.cancel();
+
+        background.runNext();
+
+        assertTrue(binding.isCancelled());
+        assertTrue(calls.isEmpty());
+        assertTrue(main.isEmpty());
+    }
+
+    @Test
+    public void cancellingBeforeDeliverySkipsBinding() {
+        AsyncBinding binding = AsyncBinding.start(background, main, new RecordingTask(), null);
+        background.runNext();
+        binding.cancel();
+
+        main.runNext();
+
+        assertEquals(list("decode"), calls);
+    }
+
+    @Test
+    public void decodeErrorsAreThrownOnTheMainThread() {
+        final IllegalStateException error = new IllegalStateException("bad parcel");
+        AsyncBinding.start(background, main, new RecordingTask() {
+            @Override
+            public void decode() {
+                throw error;
+            }
+        }, null);
+        background.runNext();
+
+        try {
+            main.runNext();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertSame(error, expected);
+        }
+        assertTrue(calls.isEmpty());
+    }
+
+    private static List<String> list(String... calls) {
+        return Arrays.asList(calls);
+    }
+
+    private class RecordingTask implements AsyncBinding.Task {
+        @Override
+        public void decode() {
+            calls.add("decode");
+        }
+
+        @Override
+        public void bind() {
+            calls.add("bind");
+        }
+    }
+
+    /**
+     * Runs commands only when told to, so every interleaving is deterministic.
+     */
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> commands = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        void runNext() {
+            commands.remove().run();
+        }
+
+        boolean isEmpty() {
+            return commands.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CodecsTest {
+
+    @Test
+    public void roundTripsValues() {
+        byte[] bytes = Codecs.encode(new PointCodec(), new Point(3, -7));
+
+        assertEquals(8, bytes.length);
+        Point point = Codecs.decode(new PointCodec(), bytes);
+        assertEquals(3, point.x);
+        assertEquals(-7, point.y);
+    }
+
+    @Test
+    public void nullIsNotEncoded() {
+        assertNull(Codecs.encode(new PointCodec(), null));
+        assertNull(Codecs.decode(new PointCodec(), null));
+    }
+
+    @Test
+    public void reusedBuffersDontLeakPreviousValues() {
+        Codecs.encode(new StringCodec(), "a much longer value than the next one");
+
+        byte[] bytes = Codecs.encode(new StringCodec(), "b");
+
+        assertEquals("b", Codecs.decode(new StringCodec(), bytes));
+        assertEquals(3, bytes.length);
+    }
+
+    @Test
+    public void nestedCodecsGetTheirOwnBuffers() {
+        ExtraCodec<Point[]> pairCodec = new ExtraCodec<Point[]>() {
+            @Override
+            public void encode(Point[] value, DataOutput output) throws IOException {
+                for (Point point : value) {
+                    byte[] nested = Codecs.encode(new PointCodec(), point);
+                    output.writeByte(nested.length);
+                    output.write(nested);
+                }
+            }
+
+            @Override
+            public Point[] decode(DataInput input) throws IOException {
+                Point[] points = new Point[2];
+                for (int i = 0; i < points.length; i++) {
+                    byte[] nested = new byte[input.readByte()];
+                    input.readFully(nested);
+                    points[i] = Codecs.decode(new PointCodec(), nested);
+                }
+                return points;
+            }
+        };
+
+        byte[] bytes = Codecs.encode(pairCodec, new Point[] {new Point(1, 2), new Point(3, 4)});
+        Point[] points = Codecs.decode(pairCodec, bytes);
+
+        assertEquals(18, bytes.length);
+        assertArrayEquals(new int[] {1, 2, 3, 4},
+                new int[] {points[0].x, points[0].y, points[1].x, points[1].y});
+    }
+
+    @Test
+    public void codecFailuresAreIllegalState() {
+        try {
+            Codecs.decode(new PointCodec(), new byte[] {1, 2});
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(EOFException.class, expected.getCause().getClass());
+        }
+        // the pooled reader still works afterwards
+        assertSame(Point.class,
+                Codecs.decode(new PointCodec(), Codecs.encode(new PointCodec(), new Point(0, 0)))
+                        .getClass());
+    }
+
+    static final class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final class PointCodec implements ExtraCodec<Point> {
+        @Override
+        public void encode(Point value, DataOutput output) throws IOException {
+            output.writeInt(value.x);
+            output.writeInt(value.y);
+        }
+
+        @Override
+        public Point decode(DataInput input) throws IOException {
+            return new Point(input.readInt(), input.readInt());
+        }
+    }
+
+    static final class StringCodec implements ExtraCodec<String> {
+        @Override
+        public void encode(String value, DataOutput output) throws IOException {
+            output.writeUTF(value);
+        }
+
+        @Override
+        public String decode(DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    }
+}
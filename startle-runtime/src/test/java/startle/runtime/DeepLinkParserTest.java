@@ -0,0 +1,51 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeepLinkParserTest {
+
+    @Test
+    public void splitsPathSegments() {
+        String path = "/users/42/posts";
+
+        assertEquals(6, DeepLinkParser.segmentEnd(path, 1, path.length()));
+        assertEquals(9, DeepLinkParser.segmentEnd(path, 7, path.length()));
+        assertEquals(15, DeepLinkParser.segmentEnd(path, 10, path.length()));
+        assertTrue(DeepLinkParser.segmentEquals(path, 1, 6, "users"));
+        assertFalse(DeepLinkParser.segmentEquals(path, 1, 6, "user"));
+    }
+
+    @Test
+    public void parsesIntegersInRange() {
+        String value = "/-2147483648/9223372036854775807/9223372036854775808/12a";
+
+        assertTrue(DeepLinkParser.isInt(value, 1, 12));
+        assertEquals(Integer.MIN_VALUE, DeepLinkParser.parseInt(value, 1, 12));
+        assertFalse(DeepLinkParser.isInt(value, 13, 32));
+        assertTrue(DeepLinkParser.isLong(value, 13, 32));
+        assertEquals(Long.MAX_VALUE, DeepLinkParser.parseLong(value, 13, 32));
+        assertFalse(DeepLinkParser.isLong(value, 33, 52));
+        assertFalse(DeepLinkParser.isInt(value, 53, 56));
+        assertFalse(DeepLinkParser.isInt("-", 0, 1));
+        assertFalse(DeepLinkParser.isInt("", 0, 0));
+    }
+
+    @Test
+    public void parsesDecimalsAndBooleans() {
+        assertTrue(DeepLinkParser.isDouble("-1.5e3", 0, 6));
+        assertEquals(-1500.0, DeepLinkParser.parseDouble("-1.5e3", 0, 6), 0);
+        assertTrue(DeepLinkParser.isFloat(".5", 0, 2));
+        assertFalse(DeepLinkParser.isDouble("1e", 0, 2));
+        assertFalse(DeepLinkParser.isDouble("NaN", 0, 3));
+        assertFalse(DeepLinkParser.isDouble("1.0f", 0, 4));
+        assertTrue(DeepLinkParser.isBoolean("TRUE", 0, 4));
+        assertTrue(DeepLinkParser.parseBoolean("TRUE", 0, 4));
+        assertTrue(DeepLinkParser.isBoolean("false", 0, 5));
+        assertFalse(DeepLinkParser.parseBoolean("false", 0, 5));
+        assertFalse(DeepLinkParser.isBoolean("yes", 0, 3));
+    }
+}
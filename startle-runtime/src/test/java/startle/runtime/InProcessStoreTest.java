@@ -0,0 +1,121 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class InProcessStoreTest {
+
+    @Test
+    public void resolvesStoredValues() {
+        InProcessStore store = new InProcessStore(2);
+        Object value = new Object();
+        long handle = store.put(value);
+
+        assertNotEquals(0, handle);
+        assertSame(value, store.get(handle));
+        assertSame(value, store.get(handle));
+        assertEquals(2, store.getHitCount());
+        assertEquals(0, store.getMissCount());
+    }
+
+    @Test
+    public void zeroHandleIsAnAbsentExtra() {
+        InProcessStore store = new InProcessStore(2);
+
+        assertNull(store.get(0));
+        assertNull(store.require(0, "image"));
+        assertEquals(0, store.getMissCount());
+    }
+
+    @Test
+    public void evictedValuesStayReachableWhileReferenced() {
+        InProcessStore store = new InProcessStore(1);
+        Object first = new Object();
+        long firstHandle = store.put(first);
+        store.put(new Object());
+
+        assertEquals(1, store.getEvictionCount());
+        assertSame(first, store.get(firstHandle));
+    }
+
+    @Test
+    public void handlesFromAnotherProcessMiss() {
+        InProcessStore killed = new InProcessStore(4, 1);
+        long handle = killed.put(new Object());
+        InProcessStore restarted = new InProcessStore(4, 2);
+        restarted.put(new Object());
+
+        assertNull(restarted.get(handle));
+        assertEquals(1, restarted.getMissCount());
+        try {
+            restarted.require(handle, "image");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("image was passed in-process and is no longer available."
+                    + " The process was probably restarted since it was launched.",
+                    expected.getMessage());
+        }
+    }
+
+    @Test
+    public void boundValuesAreBoundAgainAfterACollection() {
+        InProcessStore store = new InProcessStore(1);
+        long handle = store.put(new Object());
+
+        assertNotNull(store.bindRequired(handle, "image"));
+        store.put(new Object());
+        store.put(new Object());
+        // the first activity and its field are gone, like after "Don't keep activities"
+        System.gc();
+
+        assertNotNull(store.bindRequired(handle, "image"));
+        // the bound value is held outside the limit instead of being evicted
+        assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    public void releasedValuesAreOnlyHeldWhileReferenced() {
+        InProcessStore store = new InProcessStore(1);
+        Object image = new Object();
+        long handle = store.put(image);
+        store.bind(handle);
+
+        store.release(handle);
+        store.put(new Object());
+
+        assertSame(image, store.bind(handle));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void bindingALostValueFails() {
+        InProcessStore store = new InProcessStore(1);
+
+        assertNull(store.bind(0));
+        assertNull(store.bindRequired(0, "image"));
+        try {
+            store.bindRequired(42, "image");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(1, store.getMissCount());
+        }
+    }
+
+    @Test
+    public void shrinkingDemotesEldestValues() {
+        InProcessStore store = new InProcessStore(3);
+        store.put(new Object());
+        store.put(new Object());
+        store.put(new Object());
+
+        store.setMaxEntries(1);
+
+        assertEquals(2, store.getEvictionCount());
+    }
+}
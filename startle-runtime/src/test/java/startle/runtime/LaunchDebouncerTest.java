@@ -0,0 +1,104 @@
+package startle.runtime;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchDebouncerTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LaunchDebouncer debouncer = new LaunchDebouncer(String.class, 300);
+
+    @After
+    public void removeListener() {
+        LaunchDebouncer.setListener(null);
+    }
+
+    @Test
+    public void dropsRepeatsWithinTheWindow() {
+        final List<Class<?>> suppressed = new ArrayList<>();
+        LaunchDebouncer.setListener(new LaunchDebouncer.Listener() {
+            @Override
+            public void onSuppressed(Class<?> target) {
+                suppressed.add(target);
+            }
+        });
+        long count = LaunchDebouncer.getSuppressedCount();
+
+        assertTrue(debouncer.tryLaunch("a", 1000 * MILLI));
+        assertFalse(debouncer.tryLaunch("a", 1100 * MILLI));
+        assertFalse(debouncer.tryLaunch("a", 1299 * MILLI));
+
+        assertEquals(count + 2, LaunchDebouncer.getSuppressedCount());
+        assertEquals(2, suppressed.size());
+        assertEquals(String.class, suppressed.get(0));
+    }
+
+    @Test
+    public void windowStartsAtTheLaunchThatWentThrough() {
+        assertTrue(debouncer.tryLaunch("a", 1000 * MILLI));
+        assertFalse(debouncer.tryLaunch("a", 1200 * MILLI));
+
+        assertTrue(debouncer.tryLaunch("a", 1300 * MILLI));
+    }
+
+    @Test
+    public void launchesWithOtherExtrasGoThrough() {
+        assertTrue(debouncer.tryLaunch("a", 1000 * MILLI));
+        assertTrue(debouncer.tryLaunch("b", 1001 * MILLI));
+
+        assertFalse(debouncer.tryLaunch("b", 1002 * MILLI));
+        assertTrue(debouncer.tryLaunch("a", 1003 * MILLI));
+    }
+
+    @Test
+    public void builderValuesAreOnlyComparedWithinTheWindow() {
+        CountingValues values = new CountingValues();
+
+        assertTrue(debouncer.tryLaunch(values, 1000 * MILLI));
+        assertTrue(debouncer.tryLaunch(values, 1300 * MILLI));
+        assertEquals(0, values.compared);
+        assertEquals(2, values.copied);
+
+        assertFalse(debouncer.tryLaunch(values, 1400 * MILLI));
+        assertEquals(1, values.compared);
+        assertEquals(2, values.copied);
+    }
+
+    @Test
+    public void objectValuesCompareArraysByContent() {
+        Object image = new Object();
+
+        assertTrue(LaunchDebouncer.equal(new int[] {1, 2}, new int[] {1, 2}));
+        assertTrue(LaunchDebouncer.equal(new String[] {"a"}, new String[] {"a"}));
+        assertTrue(LaunchDebouncer.equal(image, image));
+        assertTrue(LaunchDebouncer.equal(null, null));
+        assertFalse(LaunchDebouncer.equal(new int[] {1, 2}, new long[] {1, 2}));
+        assertFalse(LaunchDebouncer.equal(image, new Object()));
+        assertFalse(LaunchDebouncer.equal(image, null));
+    }
+
+    private static final class CountingValues implements LaunchDebouncer.Values {
+        int compared;
+        int copied;
+
+        @Override
+        public boolean sameValues(Object launched) {
+            compared++;
+            return launched == this;
+        }
+
+        @Override
+        public Object copyValues() {
+            copied++;
+            return this;
+        }
+    }
+}
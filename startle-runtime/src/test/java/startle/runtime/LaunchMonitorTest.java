@@ -0,0 +1,71 @@
+package startle.runtime;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchMonitorTest {
+
+    @After
+    public void tearDown() {
+        LaunchMonitor.setListener(null);
+    }
+
+    @Test
+    public void listenerIsRegisteredUntilCleared() {
+        RecordingListener listener = new RecordingListener();
+        LaunchMonitor.setListener(listener);
+        assertSame(listener, LaunchMonitor.getListener());
+
+        LaunchMonitor.setListener(null);
+        assertNull(LaunchMonitor.getListener());
+    }
+
+    @Test
+    public void bindReportsTheTimeSinceItsLaunch() {
+        RecordingListener listener = new RecordingListener();
+        long launchNanos = LaunchMonitor.launched(listener, String.class, 3,
+                LaunchMonitor.UNMEASURED);
+
+        assertTrue(LaunchMonitor.bound(listener, String.class, launchNanos));
+
+        assertEquals(2, listener.events.size());
+        assertEquals("launch String 3 -1", listener.events.get(0));
+        assertTrue(listener.events.get(1), listener.events.get(1).startsWith("bind String "));
+        assertTrue(listener.elapsedNanos >= 0);
+    }
+
+    @Test
+    public void bindWithoutLaunchTimestampIsNotReported() {
+        RecordingListener listener = new RecordingListener();
+
+        // like the Intent of a recreated activity, whose timestamp was removed by the first bind
+        assertFalse(LaunchMonitor.bound(listener, String.class, 0L));
+
+        assertTrue(listener.events.isEmpty());
+    }
+
+    private static final class RecordingListener implements LaunchListener {
+        final List<String> events = new ArrayList<>();
+        long elapsedNanos = -1;
+
+        @Override
+        public void onLaunch(Class<?> target, int extraCount, int extrasSize) {
+            events.add("launch " + target.getSimpleName() + " " + extraCount + " " + extrasSize);
+        }
+
+        @Override
+        public void onBind(Class<?> target, long elapsedNanos) {
+            events.add("bind " + target.getSimpleName() + " " + elapsedNanos);
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
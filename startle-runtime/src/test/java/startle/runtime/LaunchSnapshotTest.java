@@ -0,0 +1,127 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LaunchSnapshotTest {
+
+    @Test
+    public void equalExtrasAreEqualSnapshots() {
+        LaunchSnapshot first = snapshot("app.ThreadActivity",
+                "id", 7L, "tags", new String[] {"a", "b"}, "counts", new int[] {1, 2});
+        LaunchSnapshot second = snapshot("app.ThreadActivity",
+                "counts", new int[] {1, 2}, "tags", new String[] {"a", "b"}, "id", 7L);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void differentExtrasOrTargetsDiffer() {
+        LaunchSnapshot snapshot = snapshot("app.ThreadActivity", "counts", new int[] {1, 2});
+
+        assertNotEquals(snapshot, snapshot("app.ThreadActivity", "counts", new int[] {1, 3}));
+        assertNotEquals(snapshot, snapshot("app.ThreadActivity", "counts", new long[] {1, 2}));
+        assertNotEquals(snapshot, snapshot("app.ThreadActivity", "other", new int[] {1, 2}));
+        assertNotEquals(snapshot, snapshot("app.InboxActivity", "counts", new int[] {1, 2}));
+        assertNotEquals(snapshot("app.ThreadActivity", "title", null),
+                snapshot("app.ThreadActivity"));
+    }
+
+    @Test
+    public void nestedBundlesCompareByValue() {
+        Map<String, Object> nested = values("ids", new long[] {1, 2});
+        Map<String, Object> sameNested = values("ids", new long[] {1, 2});
+
+        assertEquals(snapshot("app.ThreadActivity", "options", nested,
+                        "list", new ArrayList<>(Arrays.asList("a"))),
+                snapshot("app.ThreadActivity", "options", sameNested,
+                        "list", new ArrayList<>(Arrays.asList("a"))));
+        assertNotEquals(snapshot("app.ThreadActivity", "options", nested),
+                snapshot("app.ThreadActivity", "options", values("ids", new long[] {2})));
+    }
+
+    @Test
+    public void arraysAndListsAreCopied() {
+        int[] counts = {1, 2};
+        ArrayList<String> tags = new ArrayList<>(Arrays.asList("a"));
+
+        Object countsCopy = LaunchSnapshot.copyOf(counts);
+        Object tagsCopy = LaunchSnapshot.copyOf(tags);
+        counts[0] = 3;
+        tags.add("b");
+
+        assertTrue(Arrays.equals(new int[] {1, 2}, (int[]) countsCopy));
+        assertEquals(Arrays.asList("a"), tagsCopy);
+    }
+
+    @Test
+    public void inProcessExtrasCompareByValueNotHandle() {
+        InProcessStore store = InProcessStore.getInstance();
+        Object image = new Object();
+        LaunchSnapshot first = inProcessSnapshot("image", store.put(image));
+        LaunchSnapshot second = inProcessSnapshot("image", store.put(image));
+        Map<LaunchSnapshot, String> cache = new HashMap<>();
+        cache.put(first, "pending");
+
+        assertEquals(first, second);
+        assertEquals("pending", cache.get(second));
+        assertNotEquals(first, inProcessSnapshot("image", store.put(new Object())));
+    }
+
+    @Test
+    public void snapshotsKeepInProcessValuesReachable() {
+        InProcessStore store = InProcessStore.getInstance();
+        long handle = store.put(new Object());
+        LaunchSnapshot snapshot = inProcessSnapshot("image", handle);
+        // demotes the value to a weak reference, only the snapshot holds it
+        for (int i = 0; i < store.getMaxEntries(); i++) {
+            store.put(new Object());
+        }
+        System.gc();
+
+        assertNotNull(store.get(handle));
+        assertEquals(snapshot, snapshot);
+    }
+
+    @Test
+    public void lostInProcessValuesCantBeSnapshotted() {
+        InProcessStore store = InProcessStore.getInstance();
+        long handle = store.put(new Object());
+        store.remove(handle);
+        try {
+            inProcessSnapshot("image", handle);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("image was passed"));
+        }
+    }
+
+    private LaunchSnapshot inProcessSnapshot(String key, long handle) {
+        return new LaunchSnapshot(null, "app.PreviewActivity",
+                LaunchSnapshot.resolveInProcess(values(key, handle), key));
+    }
+
+    private LaunchSnapshot snapshot(String className, Object... keysAndValues) {
+        return new LaunchSnapshot(null, className, values(keysAndValues));
+    }
+
+    private Map<String, Object> values(Object... keysAndValues) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return values;
+    }
+}
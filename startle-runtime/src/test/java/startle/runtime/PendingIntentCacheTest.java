@@ -0,0 +1,42 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class PendingIntentCacheTest {
+    private final PendingIntentCache cache = new PendingIntentCache(2, 0);
+
+    @Test
+    public void collidingSnapshotsGetDifferentRequestCodes() {
+        // "Aa" and "BB" have the same String hash
+        LaunchSnapshot first = snapshot("Aa");
+        LaunchSnapshot second = snapshot("BB");
+        assertEquals(first.hashCode(), second.hashCode());
+
+        int firstCode = cache.reserve(first).requestCode;
+
+        assertEquals(first.hashCode(), firstCode);
+        assertNotEquals(firstCode, cache.reserve(second).requestCode);
+        assertSame(cache.reserve(first), cache.reserve(snapshot("Aa")));
+    }
+
+    @Test
+    public void evictedSnapshotsFreeTheirRequestCodes() {
+        int code = cache.reserve(snapshot("Aa")).requestCode;
+        cache.reserve(snapshot("other"));
+        cache.reserve(snapshot("another"));
+
+        assertEquals(2, cache.size());
+        assertEquals(code, cache.reserve(snapshot("BB")).requestCode);
+    }
+
+    private LaunchSnapshot snapshot(String title) {
+        return new LaunchSnapshot(null, "app.ThreadActivity",
+                Collections.<String, Object>singletonMap("title", title));
+    }
+}
@@ -0,0 +1,139 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchCacheTest {
+    private final List<Runnable> queued = new ArrayList<>();
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+    };
+
+    @Test
+    public void activityTakesThePrefetchedLoad() throws Exception {
+        PrefetchCache cache = new PrefetchCache(4, 1000, executor);
+        Counter loader = new Counter("prefetched");
+        long handle = cache.prefetch(loader, 0);
+        runQueued();
+
+        Future<String> future = cache.take(handle, new Counter("fallback"), 1);
+
+        assertNotEquals(0, handle);
+        assertEquals("prefetched", future.get());
+        assertEquals(1, loader.calls);
+        assertTrue(queued.isEmpty());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void recreatedActivityTakesTheSameLoadUntilReleased() throws Exception {
+        PrefetchCache cache = new PrefetchCache(4, 1000, executor);
+        long handle = cache.prefetch(new Counter("prefetched"), 0);
+        Future<String> first = cache.take(handle, new Counter("first"), 1);
+
+        assertSame(first, cache.take(handle, new Counter("recreated"), 2000000000L));
+        assertEquals(2, cache.getHitCount());
+
+        cache.release(handle);
+        Future<String> future = cache.take(handle, new Counter("fallback"), 3);
+        runQueued();
+
+        assertEquals("fallback", future.get());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void oldestTakenLoadIsDroppedWhenFull() throws Exception {
+        PrefetchCache cache = new PrefetchCache(1, 1000, executor);
+        long first = cache.prefetch(new Counter("first"), 0);
+        Future<String> taken = cache.take(first, new Counter("unused"), 0);
+        cache.take(cache.prefetch(new Counter("second"), 0), new Counter("unused"), 0);
+
+        Future<String> future = cache.take(first, new Counter("fallback"), 0);
+        runQueued();
+
+        assertFalse(taken.isCancelled());
+        assertEquals("fallback", future.get());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void expiredPrefetchesAreCancelled() throws Exception {
+        PrefetchCache cache = new PrefetchCache(4, 1000, executor);
+        long handle = cache.prefetch(new Counter("prefetched"), 0);
+        Future<String> stale = cache.take(0, new Counter("unrelated"), 0);
+        runQueued();
+
+        Future<String> future = cache.take(handle, new Counter("fallback"), 1000000000L);
+        runQueued();
+
+        assertEquals("unrelated", stale.get());
+        assertEquals("fallback", future.get());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void oldestPrefetchIsCancelledWhenFull() {
+        PrefetchCache cache = new PrefetchCache(1, 1000, executor);
+        long first = cache.prefetch(new Counter("first"), 0);
+        cache.prefetch(new Counter("second"), 0);
+
+        Future<String> future = cache.take(first, new Counter("fallback"), 0);
+
+        assertFalse(future.isDone());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.size());
+        assertTrue(((Future<?>) queued.get(0)).isCancelled());
+    }
+
+    @Test
+    public void handlesFromAnotherProcessMiss() throws Exception {
+        PrefetchCache killed = new PrefetchCache(4, 1000, executor, 1);
+        long handle = killed.prefetch(new Counter("killed"), 0);
+        PrefetchCache restarted = new PrefetchCache(4, 1000, executor, 2);
+        restarted.prefetch(new Counter("restarted"), 0);
+
+        Future<String> future = restarted.take(handle, new Counter("fallback"), 0);
+        runQueued();
+
+        assertEquals("fallback", future.get());
+        assertEquals(1, restarted.getMissCount());
+    }
+
+    private void runQueued() {
+        for (Runnable runnable : new ArrayList<>(queued)) {
+            runnable.run();
+        }
+        queued.clear();
+    }
+
+    private static final class Counter implements Callable<String> {
+        private final String value;
+        int calls;
+
+        Counter(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String call() {
+            calls++;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package startle.runtime;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RetainedExtrasTest {
+
+    @Test
+    public void sameIntentGetsItsDecodedValuesBack() {
+        RetainedExtras retained = new RetainedExtras();
+        Object intent = new Object();
+        Object report = new Object();
+        retained.get(intent, 2)[1] = report;
+
+        Object[] slots = retained.get(intent, 2);
+
+        assertNull(slots[0]);
+        assertSame(report, slots[1]);
+        assertEquals(1, retained.getHitCount());
+        assertEquals(1, retained.getMissCount());
+    }
+
+    @Test
+    public void intentsAreComparedByIdentity() {
+        RetainedExtras retained = new RetainedExtras();
+        retained.get(new Equal(), 1)[0] = "decoded";
+
+        assertNull(retained.get(new Equal(), 1)[0]);
+        assertEquals(2, retained.getMissCount());
+    }
+
+    @Test
+    public void removedIntentsAreDecodedAgain() {
+        RetainedExtras retained = new RetainedExtras();
+        Object intent = new Object();
+        Object[] first = retained.get(intent, 1);
+        first[0] = "decoded";
+
+        retained.remove(intent);
+
+        assertNotSame(first, retained.get(intent, 1));
+        assertEquals(1, retained.size());
+    }
+
+    @Test
+    public void nullIntentsAreNeverRetained() {
+        RetainedExtras retained = new RetainedExtras();
+        retained.get(null, 1)[0] = "decoded";
+
+        assertNull(retained.get(null, 1)[0]);
+        assertEquals(0, retained.size());
+    }
+
+    private static final class Equal {
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Equal;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package startle;
+
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import startle.annotation.RouteShard;
+import startle.annotation.Startle;
+import startle.model.DeepLinkPattern;
+import startle.model.ModelReader;
+import startle.writer.FragmentFactoryWriter;
+import startle.writer.RoutesWriter;
+import startle.writer.StartActivityWriter;
+
+import static java.util.Collections.singleton;
+
+/**
+ * Writes the route index and deep link dispatcher of every activity with a
+ * {@code @Startle} route or deep links, and the {@code FragmentFactory} of
+ * every {@code @Startle} fragment. Kept apart from {@link StartleProcessor}
+ * because each depends on all such classes, so Gradle has to treat it as
+ * aggregating while the {@code Start} classes stay isolating.
+ *
+ * <p>With the {@code startle.routesModule} option set, a library module
+ * lists its activities in a {@code startle.routes.<Module>Routes} shard.
+ * Otherwise the activities of the module and of every shard on the classpath
+ * are merged into {@code startle.routes.StartleRoutes}. An app module
+ * without {@code @Startle} classes of its own needs the
+ * {@code startle.routesApp} option to be indexed. The fragments of a
+ * module go in {@code startle.fragments.<Module>FragmentFactory}, or
+ * {@code StartleFragmentFactory} without the option, which delegate to each
+ * other when chained.
+ */
+@AutoService(Processor.class)
+public class RoutesProcessor extends AbstractProcessor {
+    static final String ROUTES_MODULE_OPTION = "startle.routesModule";
+    static final String ROUTES_APP_OPTION = "startle.routesApp";
+
+    private Elements elementUtils;
+    private Types typeUtils;
+    private Filer filer;
+    private Messager messager;
+    /** The indexed activities of the module, kept for the next round */
+    private List<String> moduleActivities;
+    /** The fragments of the module, kept for the next round */
+    private List<String> moduleFragments;
+    private boolean written;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elementUtils = processingEnv.getElementUtils();
+        typeUtils = processingEnv.getTypeUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    /**
+     * Only the app option claims every source, so an app module whose
+     * activities all come from shards still gets its index, which Gradle
+     * pays for by handing it every source instead of only the annotated
+     * ones.
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(ROUTES_APP_OPTION))) {
+            return singleton("*");
+        }
+        return new HashSet<>(Arrays.asList(Startle.class.getCanonicalName(),
+                RouteShard.class.getCanonicalName()));
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return new HashSet<>(Arrays.asList(ROUTES_MODULE_OPTION, ROUTES_APP_OPTION));
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
+        // the activities are all in the first round, later ones only hold generated code
+        if (moduleActivities == null) {
+            moduleActivities = new ArrayList<>();
+            moduleFragments = new ArrayList<>();
+            for (Element element : roundEnvironment.getElementsAnnotatedWith(Startle.class)) {
+                // anything else wrong with the activity is reported by StartleProcessor
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+                String name = ((TypeElement) element).getQualifiedName().toString();
+                if (isFragment((TypeElement) element)) {
+                    moduleFragments.add(name);
+                } else if (isIndexed((TypeElement) element)) {
+                    moduleActivities.add(name);
+                }
+            }
+            // with none of its own, the index doesn't wait for any Start class
+            if (!moduleActivities.isEmpty() || !moduleFragments.isEmpty()) {
+                return false;
+            }
+        }
+        // the index is written once the Start classes it calls exist
+        if (written || roundEnvironment.processingOver()) {
+            return false;
+        }
+        written = true;
+
+        String module = processingEnv.getOptions().get(ROUTES_MODULE_OPTION);
+        if (module != null && (!SourceVersion.isIdentifier(module)
+                || (module + "Routes").equals(RoutesWriter.AGGREGATE_NAME))) {
+            messager.printMessage(Diagnostic.Kind.ERROR, ROUTES_MODULE_OPTION
+                    + " must be a valid class name prefix other than Startle: " + module);
+            return false;
+        }
+        if (module != null
+                && Boolean.parseBoolean(processingEnv.getOptions().get(ROUTES_APP_OPTION))) {
+            messager.printMessage(Diagnostic.Kind.ERROR, ROUTES_APP_OPTION + " indexes the"
+                    + " shards of an app, it can't be set with " + ROUTES_MODULE_OPTION);
+            return false;
+        }
+        writeFragmentFactory(module);
+        // sorted so the output doesn't depend on the order javac or the classpath lists them
+        Map<TypeElement, Element> activities = new TreeMap<>(
+                Comparator.comparing(element -> element.getQualifiedName().toString()));
+        for (TypeElement element : getGenerated(moduleActivities)) {
+            activities.put(element, element);
+        }
+        if (module == null) {
+            addShardActivities(activities);
+        }
+        if (activities.isEmpty()) {
+            return false;
+        }
+
+        List<ClassName> activityNames = new ArrayList<>();
+        SortedMap<String, ClassName> routes = new TreeMap<>();
+        Map<String, ClassName> routeOwners = new HashMap<>();
+        List<RoutesWriter.DeepLink> deepLinks = new ArrayList<>();
+        Map<String, String> deepLinkOwners = new HashMap<>();
+        for (Map.Entry<TypeElement, Element> activity : activities.entrySet()) {
+            TypeElement element = activity.getKey();
+            activityNames.add(ClassName.get(element));
+            Startle startle = element.getAnnotation(Startle.class);
+            String packageName = elementUtils.getPackageOf(element).getQualifiedName().toString();
+            ClassName starter = StartActivityWriter.getStartClassName(packageName,
+                    element.getSimpleName().toString());
+            if (!startle.route().isEmpty()) {
+                ClassName existing = routeOwners.put(startle.route(), starter);
+                if (existing != null) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Route " + startle.route()
+                            + " is used by both " + existing + " and " + starter,
+                            activity.getValue());
+                }
+                routes.put(startle.route(), starter);
+            }
+            for (int i = 0; i < startle.deepLinks().length; i++) {
+                DeepLinkPattern pattern;
+                try {
+                    pattern = DeepLinkPattern.parse(startle.deepLinks()[i]);
+                } catch (IllegalStateException e) {
+                    // reported by StartleProcessor
+                    continue;
+                }
+                String owner = pattern + " of " + starter;
+                String existing = deepLinkOwners.put(pattern.getPathShape(), owner);
+                if (existing != null) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "Deep links " + existing
+                            + " and " + owner + " match the same paths", activity.getValue());
+                } else {
+                    deepLinks.add(new RoutesWriter.DeepLink(pattern, starter, i));
+                }
+            }
+        }
+
+        RoutesWriter routesWriter = new RoutesWriter(
+                module == null ? RoutesWriter.AGGREGATE_NAME : module + "Routes",
+                activityNames, routes, deepLinks, module != null);
+        Set<Element> originatingElements = new LinkedHashSet<>(activities.values());
+        try {
+            JavaFileObject fileObject = filer.createSourceFile(routesWriter.getSourceFileName(),
+                    originatingElements.toArray(new Element[0]));
+            Writer writer = fileObject.openWriter();
+            writer.write(routesWriter.getSource());
+            writer.close();
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * @return the classes StartleProcessor wrote a Start class for, having
+     * already reported why the others have none
+     */
+    private List<TypeElement> getGenerated(List<String> names) {
+        List<TypeElement> generated = new ArrayList<>();
+        for (String name : names) {
+            TypeElement element = elementUtils.getTypeElement(name);
+            String packageName = elementUtils.getPackageOf(element).getQualifiedName().toString();
+            if (elementUtils.getTypeElement(StartActivityWriter.getStartClassName(packageName,
+                    element.getSimpleName().toString()).toString()) != null) {
+                generated.add(element);
+            }
+        }
+        return generated;
+    }
+
+    private boolean isFragment(TypeElement element) {
+        TypeElement fragment = elementUtils.getTypeElement(ModelReader.FRAGMENT);
+        if (fragment == null) {
+            return false;
+        }
+        TypeMirror type = typeUtils.erasure(element.asType());
+        return typeUtils.isSubtype(type, fragment.asType());
+    }
+
+    /**
+     * Maps each fragment's binary name, which is what FragmentManager asks
+     * the factory for, to the fragment.
+     */
+    private void writeFragmentFactory(String module) {
+        SortedMap<String, ClassName> fragments = new TreeMap<>();
+        List<TypeElement> elements = getGenerated(moduleFragments);
+        for (TypeElement element : elements) {
+            fragments.put(elementUtils.getBinaryName(element).toString(),
+                    ClassName.get(element));
+        }
+        if (fragments.isEmpty()) {
+            return;
+        }
+        FragmentFactoryWriter factoryWriter = new FragmentFactoryWriter(module == null
+                ? FragmentFactoryWriter.AGGREGATE_NAME : module + "FragmentFactory", fragments);
+        try {
+            JavaFileObject fileObject = filer.createSourceFile(factoryWriter.getSourceFileName(),
+                    elements.toArray(new Element[0]));
+            Writer writer = fileObject.openWriter();
+            writer.write(factoryWriter.getSource());
+            writer.close();
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+        }
+    }
+
+    private boolean isIndexed(TypeElement activity) {
+        Startle startle = activity.getAnnotation(Startle.class);
+        return !startle.route().isEmpty() || startle.deepLinks().length > 0;
+    }
+
+    /**
+     * Adds the activities of the shards compiled into the libraries on the
+     * classpath, found by their package rather than by scanning at runtime.
+     * Each maps to its shard, which is what changes when the library does.
+     */
+    private void addShardActivities(Map<TypeElement, Element> activities) {
+        PackageElement routesPackage = elementUtils.getPackageElement(RoutesWriter.PACKAGE);
+        if (routesPackage == null) {
+            return;
+        }
+        String shardName = RouteShard.class.getCanonicalName();
+        for (Element shard : routesPackage.getEnclosedElements()) {
+            for (AnnotationMirror annotation : shard.getAnnotationMirrors()) {
+                if (!((TypeElement) annotation.getAnnotationType().asElement())
+                        .getQualifiedName().contentEquals(shardName)) {
+                    continue;
+                }
+                for (AnnotationValue activity : getValues(annotation, "activities")) {
+                    activities.put((TypeElement) ((DeclaredType) activity.getValue()).asElement(),
+                            shard);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<? extends AnnotationValue> getValues(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                return (List<? extends AnnotationValue>) value.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("Missing " + name + " in " + annotation);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+}
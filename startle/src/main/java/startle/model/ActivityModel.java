@@ -0,0 +1,199 @@
+package startle.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A {@code @Startle} activity or fragment read in a single pass over its
+ * members. A fragment's extras are its arguments.
+ */
+public final class ActivityModel {
+    /** Prefixes the field name of a prefetcher to name its handle's key */
+    public static final String PREFETCH_KEY_PREFIX = "prefetch.";
+
+    private final TypeElement element;
+    private final String packageName;
+    private final boolean fragment;
+    private final boolean staged;
+    private final String route;
+    private final List<DeepLinkPattern> deepLinks;
+    private final long debounceMillis;
+    private final boolean instrumented;
+    private final boolean asyncBindable;
+    private final boolean stackable;
+    private final boolean compact;
+    private final boolean validated;
+    private final boolean retained;
+    private final List<ExtraModel> staticFinalExtras;
+    private final List<ExtraModel> instanceExtras;
+    private final List<PrefetchModel> prefetchers;
+    private final Map<String, String> keys;
+
+    ActivityModel(TypeElement element, String packageName, boolean fragment, boolean staged,
+            String route, List<DeepLinkPattern> deepLinks, long debounceMillis,
+            boolean instrumented, boolean asyncBindable, boolean stackable, boolean compact,
+            boolean validated, boolean retained, List<ExtraModel> staticFinalExtras,
+            List<ExtraModel> instanceExtras, List<PrefetchModel> prefetchers,
+            Map<String, String> keys) {
+        this.element = element;
+        this.packageName = packageName;
+        this.fragment = fragment;
+        this.staged = staged;
+        this.route = route;
+        this.deepLinks = deepLinks;
+        this.debounceMillis = debounceMillis;
+        this.instrumented = instrumented;
+        this.asyncBindable = asyncBindable;
+        this.stackable = stackable;
+        this.compact = compact;
+        this.validated = validated;
+        this.retained = retained;
+        this.staticFinalExtras = staticFinalExtras;
+        this.instanceExtras = instanceExtras;
+        this.prefetchers = prefetchers;
+        this.keys = keys;
+    }
+
+    public TypeElement getElement() {
+        return element;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getSimpleName() {
+        return element.getSimpleName().toString();
+    }
+
+    /**
+     * @return true if the class is an AndroidX Fragment, which is built with
+     * its extras as arguments instead of started
+     */
+    public boolean isFragment() {
+        return fragment;
+    }
+
+    public boolean isStaged() {
+        return staged;
+    }
+
+    /**
+     * @return the route name or an empty string if the activity isn't routed
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * @return the deep link patterns in declaration order, which is the
+     * order of their generated {@code fromDeepLink} methods
+     */
+    public List<DeepLinkPattern> getDeepLinks() {
+        return deepLinks;
+    }
+
+    /**
+     * @return the window repeated launches are dropped in or 0 to launch
+     * every time
+     */
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * @return true if startle-runtime's launch instrumentation is available
+     */
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * @return true if startle-runtime's {@code AsyncBinding} is available
+     */
+    public boolean isAsyncBindable() {
+        return asyncBindable;
+    }
+
+    /**
+     * @return true if startle-runtime's {@code StartleStack} is available, so
+     * the builder can hand its Intent out as a {@code Launcher}
+     */
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    /**
+     * @return true if the builder is a stub over startle-runtime's
+     * {@code CompactBuilder}
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * @return true if binding reports the required extras an Intent lacks
+     */
+    public boolean isValidated() {
+        return validated;
+    }
+
+    /**
+     * @return true if the decoded extras are kept across configuration
+     * changes in startle-runtime's {@code RetainedExtras}
+     */
+    public boolean isRetained() {
+        return retained;
+    }
+
+    public List<ExtraModel> getStaticFinalExtras() {
+        return staticFinalExtras;
+    }
+
+    public List<ExtraModel> getInstanceExtras() {
+        return instanceExtras;
+    }
+
+    /**
+     * @return the key constants followed by the instance fields
+     */
+    public List<ExtraModel> getExtras() {
+        List<ExtraModel> extras = new ArrayList<>(staticFinalExtras);
+        extras.addAll(instanceExtras);
+        return extras;
+    }
+
+    /**
+     * @return the {@code @Prefetch} methods in declaration order
+     */
+    public List<PrefetchModel> getPrefetchers() {
+        return prefetchers;
+    }
+
+    /**
+     * @param name an instance extra's name or {@link #PREFETCH_KEY_PREFIX}
+     *             followed by a prefetcher's field
+     * @return the key it's put in the Intent under
+     */
+    public String getKey(String name) {
+        String key = keys.get(name);
+        if (key == null) {
+            throw new IllegalArgumentException("No key for " + name);
+        }
+        return key;
+    }
+
+    /**
+     * @return every name with a generated key, sorted, to its key
+     */
+    public Map<String, String> getKeys() {
+        return keys;
+    }
+
+    public boolean hasExtras() {
+        return !staticFinalExtras.isEmpty() || !instanceExtras.isEmpty();
+    }
+}
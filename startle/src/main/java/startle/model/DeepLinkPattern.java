@@ -0,0 +1,145 @@
+package startle.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.lang.model.SourceVersion;
+
+/**
+ * A parsed {@code @Startle(deepLinks = ...)} pattern like
+ * {@code /users/{id}/posts?tab={tab}}. Each path segment is either literal
+ * or a whole {@code {extra}} parameter and each query parameter names the
+ * extra it's bound to.
+ */
+public final class DeepLinkPattern {
+    private final String pattern;
+    private final List<String> segments;
+    private final List<String> pathParameters;
+    private final Map<String, String> queryParameters;
+
+    private DeepLinkPattern(String pattern, List<String> segments, List<String> pathParameters,
+            Map<String, String> queryParameters) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.pathParameters = pathParameters;
+        this.queryParameters = queryParameters;
+    }
+
+    /**
+     * @throws IllegalStateException if the pattern isn't valid
+     */
+    public static DeepLinkPattern parse(String pattern) {
+        int queryStart = pattern.indexOf('?');
+        String path = queryStart == -1 ? pattern : pattern.substring(0, queryStart);
+        if (!path.startsWith("/")) {
+            throw new IllegalStateException("Deep link " + pattern + " must start with /");
+        }
+        // a trailing slash matches the same as none
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        List<String> segments = new ArrayList<>();
+        List<String> pathParameters = new ArrayList<>();
+        if (path.length() > 1) {
+            for (String segment : path.substring(1).split("/", -1)) {
+                String parameter = getParameterName(pattern, segment);
+                if (parameter != null) {
+                    pathParameters.add(parameter);
+                } else if (segment.isEmpty() || segment.contains("{") || segment.contains("}")) {
+                    throw new IllegalStateException("Deep link " + pattern
+                            + " has an invalid segment: " + segment);
+                }
+                segments.add(segment);
+            }
+        }
+        Map<String, String> queryParameters = new LinkedHashMap<>();
+        if (queryStart != -1) {
+            for (String query : pattern.substring(queryStart + 1).split("&", -1)) {
+                int equals = query.indexOf('=');
+                String parameter = equals == -1 ? null
+                        : getParameterName(pattern, query.substring(equals + 1));
+                if (parameter == null || equals == 0) {
+                    throw new IllegalStateException("Deep link " + pattern
+                            + " query must be key={extra} pairs: " + query);
+                }
+                queryParameters.put(query.substring(0, equals), parameter);
+            }
+        }
+        List<String> parameters = new ArrayList<>(pathParameters);
+        parameters.addAll(queryParameters.values());
+        if (parameters.size() != parameters.stream().distinct().count()) {
+            throw new IllegalStateException("Deep link " + pattern + " binds an extra twice");
+        }
+        return new DeepLinkPattern(pattern, Collections.unmodifiableList(segments),
+                Collections.unmodifiableList(pathParameters),
+                Collections.unmodifiableMap(queryParameters));
+    }
+
+    @Nullable
+    private static String getParameterName(String pattern, String segment) {
+        if (!segment.startsWith("{") || !segment.endsWith("}")) {
+            return null;
+        }
+        String name = segment.substring(1, segment.length() - 1);
+        if (!SourceVersion.isIdentifier(name)) {
+            throw new IllegalStateException("Deep link " + pattern
+                    + " has an invalid parameter: " + segment);
+        }
+        return name;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the path segments, with parameters still in braces
+     */
+    public List<String> getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return the extra bound to the segment or null if it's literal
+     */
+    @Nullable
+    public String getParameter(int segment) {
+        String value = segments.get(segment);
+        return value.startsWith("{") ? value.substring(1, value.length() - 1) : null;
+    }
+
+    /**
+     * @return the extras bound to path segments, in path order
+     */
+    public List<String> getPathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * @return query parameter name to the extra it's bound to
+     */
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    /**
+     * @return the path with every parameter as {@code {}}, which is the same
+     * for patterns that match the same paths
+     */
+    public String getPathShape() {
+        StringBuilder shape = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            shape.append('/').append(getParameter(i) == null ? segments.get(i) : "{}");
+        }
+        return shape.length() == 0 ? "/" : shape.toString();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
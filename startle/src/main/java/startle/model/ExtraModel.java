@@ -0,0 +1,170 @@
+package startle.model;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * An {@code @RequestExtra} field or key constant with everything the writers
+ * need already resolved.
+ */
+public final class ExtraModel {
+    private final VariableElement element;
+    private final String name;
+    private final String propertyName;
+    private final TypeMirror type;
+    private final @Nullable ExtraType extraType;
+    private final @Nullable ExtraType mapValueType;
+    private final boolean arrayListCopy;
+    private final boolean staticFinal;
+    private final boolean nullable;
+    private final boolean inProcess;
+    private final boolean lazy;
+    private final @Nullable TypeMirror codec;
+    private final List<? extends AnnotationMirror> annotations;
+    private final List<String> enumConstants;
+    private final List<Integer> intDefValues;
+    private final boolean intDefFlag;
+
+    ExtraModel(VariableElement element, String propertyName, TypeMirror type,
+            @Nullable ExtraType extraType, @Nullable ExtraType mapValueType,
+            boolean arrayListCopy, boolean staticFinal, boolean nullable, boolean inProcess,
+            boolean lazy, @Nullable TypeMirror codec, List<? extends AnnotationMirror> annotations,
+            List<String> enumConstants, List<Integer> intDefValues, boolean intDefFlag) {
+        this.element = element;
+        this.name = element.getSimpleName().toString();
+        this.propertyName = propertyName;
+        this.type = type;
+        this.extraType = extraType;
+        this.mapValueType = mapValueType;
+        this.arrayListCopy = arrayListCopy;
+        this.staticFinal = staticFinal;
+        this.nullable = nullable;
+        this.inProcess = inProcess;
+        this.lazy = lazy;
+        this.codec = codec;
+        this.annotations = annotations;
+        this.enumConstants = enumConstants;
+        this.intDefValues = intDefValues;
+        this.intDefFlag = intDefFlag;
+    }
+
+    public VariableElement getElement() {
+        return element;
+    }
+
+    /**
+     * @return the field name, e.g. {@code id} or {@code EXTRA_ID}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the capitalized name used for setters and getters, e.g.
+     * {@code Id} for both {@code id} and {@code EXTRA_ID}
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the name of the builder field and setter parameter
+     */
+    public String getVariableName() {
+        return Character.toLowerCase(propertyName.charAt(0)) + propertyName.substring(1);
+    }
+
+    /**
+     * @return the field type, the type a {@code Lazy} field holds or, for a key
+     * constant, the type in its annotation
+     */
+    public TypeMirror getType() {
+        return type;
+    }
+
+    /**
+     * @return the Bundle accessor or null for an in-process extra without one
+     */
+    @Nullable
+    public ExtraType getExtraType() {
+        return extraType;
+    }
+
+    /**
+     * @return the accessor of the values of a {@link ExtraType#STRING_MAP}
+     */
+    @Nullable
+    public ExtraType getMapValueType() {
+        return mapValueType;
+    }
+
+    /**
+     * @return true if a List extra has to be copied into an ArrayList first
+     */
+    public boolean needsArrayListCopy() {
+        return arrayListCopy;
+    }
+
+    public boolean isStaticFinal() {
+        return staticFinal;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    public boolean isInProcess() {
+        return inProcess;
+    }
+
+    /**
+     * @return the {@code ExtraCodec} class writing the extra to a byte array,
+     * which is then its {@link #getExtraType()}, or null if it has none
+     */
+    @Nullable
+    public TypeMirror getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return true if the field is a runtime {@code Lazy} read on first use
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return the annotations copied to the builder, everything except
+     * {@code @RequestExtra}
+     */
+    public List<? extends AnnotationMirror> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * @return the constant names of an {@link ExtraType#ENUM} extra
+     */
+    public List<String> getEnumConstants() {
+        return enumConstants;
+    }
+
+    /**
+     * @return the values allowed by the {@code @IntDef} of an int extra,
+     * empty if it has none
+     */
+    public List<Integer> getIntDefValues() {
+        return intDefValues;
+    }
+
+    /**
+     * @return true if the {@code @IntDef} values are flags that can be
+     * combined
+     */
+    public boolean isIntDefFlag() {
+        return intDefFlag;
+    }
+}
@@ -0,0 +1,121 @@
+package startle.model;
+
+/**
+ * The typed Intent and Bundle accessors an extra is read and written with.
+ * The accessor name is the suffix shared by both APIs, e.g. {@code Int} for
+ * {@code Intent#getIntExtra} and {@code Bundle#getInt}.
+ */
+public enum ExtraType {
+    BOOLEAN("Boolean"),
+    BYTE("Byte"),
+    SHORT("Short"),
+    CHAR("Char"),
+    INT("Int"),
+    LONG("Long"),
+    FLOAT("Float"),
+    DOUBLE("Double"),
+    STRING("String"),
+    CHAR_SEQUENCE("CharSequence"),
+    BUNDLE("Bundle"),
+    BOOLEAN_ARRAY("BooleanArray"),
+    BYTE_ARRAY("ByteArray"),
+    SHORT_ARRAY("ShortArray"),
+    CHAR_ARRAY("CharArray"),
+    INT_ARRAY("IntArray"),
+    LONG_ARRAY("LongArray"),
+    FLOAT_ARRAY("FloatArray"),
+    DOUBLE_ARRAY("DoubleArray"),
+    STRING_ARRAY("StringArray"),
+    CHAR_SEQUENCE_ARRAY("CharSequenceArray"),
+    PARCELABLE_ARRAY("ParcelableArray"),
+    STRING_ARRAY_LIST("StringArrayList"),
+    INTEGER_ARRAY_LIST("IntegerArrayList"),
+    CHAR_SEQUENCE_ARRAY_LIST("CharSequenceArrayList"),
+    PARCELABLE_ARRAY_LIST("ParcelableArrayList"),
+    /** Only Bundle has an accessor so it's carried in a nested Bundle */
+    SPARSE_PARCELABLE_ARRAY("SparseParcelableArray"),
+    /** A {@code Map<String, V>} encoded as a nested Bundle of typed values */
+    STRING_MAP("Bundle"),
+    PARCELABLE("Parcelable"),
+    SERIALIZABLE("Serializable"),
+    /**
+     * An enum put as the {@code String#hashCode()} of its constant's name,
+     * which stays the same when constants are added or reordered
+     */
+    ENUM("Int");
+
+    private final String accessor;
+
+    ExtraType(String accessor) {
+        this.accessor = accessor;
+    }
+
+    public boolean isPrimitive() {
+        return ordinal() <= DOUBLE.ordinal();
+    }
+
+    /**
+     * @return true if the value is converted to a nested Bundle by a
+     * generated encode method before it is put in the Intent
+     */
+    public boolean isEncoded() {
+        return this == SPARSE_PARCELABLE_ARRAY || this == STRING_MAP;
+    }
+
+    /**
+     * @return true if reading the value runs Parcelable CREATORs or Java
+     * deserialization, the work {@code bindExtrasAsync} moves off the main
+     * thread
+     */
+    public boolean isDeserialized() {
+        return this == PARCELABLE || this == SERIALIZABLE || this == PARCELABLE_ARRAY
+                || this == PARCELABLE_ARRAY_LIST || this == SPARSE_PARCELABLE_ARRAY;
+    }
+
+    /**
+     * @return true if a deep link parameter can be converted to the type
+     */
+    public boolean isParsable() {
+        return this == BOOLEAN || this == INT || this == LONG || this == FLOAT
+                || this == DOUBLE || this == STRING || this == CHAR_SEQUENCE;
+    }
+
+    /**
+     * @return the {@code DeepLinkParser} method checking a primitive's text
+     */
+    public String deepLinkValidator() {
+        return "is" + accessor;
+    }
+
+    /**
+     * @return the {@code DeepLinkParser} method converting a primitive's text
+     */
+    public String deepLinkParser() {
+        return "parse" + accessor;
+    }
+
+    public boolean isArrayList() {
+        return this == STRING_ARRAY_LIST || this == INTEGER_ARRAY_LIST
+                || this == CHAR_SEQUENCE_ARRAY_LIST || this == PARCELABLE_ARRAY_LIST;
+    }
+
+    public String intentPutter() {
+        if (isEncoded() || this == ENUM) {
+            return "putExtra";
+        }
+        // putExtra can't be overloaded on the erased ArrayList element types
+        return isArrayList() ? "put" + accessor + "Extra" : "putExtra";
+    }
+
+    public String intentGetter() {
+        return isEncoded() ? "getBundleExtra" : "get" + accessor + "Extra";
+    }
+
+    public String bundlePutter() {
+        return "put" + accessor;
+    }
+
+    public String bundleGetter() {
+        return "get" + accessor;
+    }
+}
@@ -0,0 +1,234 @@
+package startle.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Picks the most specific typed Bundle accessor for an extra so only types
+ * without one fall back to Java serialization.
+ */
+public final class ExtraTypes {
+    private final Types typeUtils;
+    private final TypeMirror serializableType;
+    private final TypeMirror parcelableType;
+    private final TypeMirror stringType;
+    private final TypeMirror charSequenceType;
+    private final TypeMirror integerType;
+    private final TypeMirror bundleType;
+    private final TypeMirror arrayListType;
+    private final TypeMirror listType;
+    private final TypeMirror collectionType;
+    private final TypeMirror mapType;
+    private final TypeMirror hashMapType;
+    private final TypeMirror sparseArrayType;
+
+    public ExtraTypes(Elements elementUtils, Types typeUtils) {
+        this.typeUtils = typeUtils;
+        serializableType = erasure(elementUtils, "java.io.Serializable");
+        parcelableType = erasure(elementUtils, "android.os.Parcelable");
+        stringType = erasure(elementUtils, "java.lang.String");
+        charSequenceType = erasure(elementUtils, "java.lang.CharSequence");
+        integerType = erasure(elementUtils, "java.lang.Integer");
+        bundleType = erasure(elementUtils, "android.os.Bundle");
+        arrayListType = erasure(elementUtils, "java.util.ArrayList");
+        listType = erasure(elementUtils, "java.util.List");
+        collectionType = erasure(elementUtils, "java.util.Collection");
+        mapType = erasure(elementUtils, "java.util.Map");
+        hashMapType = erasure(elementUtils, "java.util.HashMap");
+        sparseArrayType = erasure(elementUtils, "android.util.SparseArray");
+    }
+
+    /**
+     * @return the accessor used to put the type in a Bundle or null if the
+     * type can't be put in a Bundle at all
+     */
+    @Nullable
+    public ExtraType getExtraType(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return ExtraType.BOOLEAN;
+            case BYTE:
+                return ExtraType.BYTE;
+            case SHORT:
+                return ExtraType.SHORT;
+            case CHAR:
+                return ExtraType.CHAR;
+            case INT:
+                return ExtraType.INT;
+            case LONG:
+                return ExtraType.LONG;
+            case FLOAT:
+                return ExtraType.FLOAT;
+            case DOUBLE:
+                return ExtraType.DOUBLE;
+            case ARRAY:
+                return getArrayExtraType((ArrayType) type);
+            case DECLARED:
+                return getDeclaredExtraType((DeclaredType) type);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the accessor of the values of a {@link ExtraType#STRING_MAP}
+     */
+    public ExtraType getMapValueType(TypeMirror type) {
+        return getMapValueExtraType(((DeclaredType) type).getTypeArguments().get(1));
+    }
+
+    /**
+     * @return true if a List extra has to be copied into an ArrayList first
+     */
+    public boolean needsArrayListCopy(TypeMirror type) {
+        return !typeUtils.isSameType(typeUtils.erasure(type), arrayListType);
+    }
+
+    private ExtraType getArrayExtraType(ArrayType type) {
+        TypeMirror component = type.getComponentType();
+        switch (component.getKind()) {
+            case BOOLEAN:
+                return ExtraType.BOOLEAN_ARRAY;
+            case BYTE:
+                return ExtraType.BYTE_ARRAY;
+            case SHORT:
+                return ExtraType.SHORT_ARRAY;
+            case CHAR:
+                return ExtraType.CHAR_ARRAY;
+            case INT:
+                return ExtraType.INT_ARRAY;
+            case LONG:
+                return ExtraType.LONG_ARRAY;
+            case FLOAT:
+                return ExtraType.FLOAT_ARRAY;
+            case DOUBLE:
+                return ExtraType.DOUBLE_ARRAY;
+            default:
+                break;
+        }
+        if (isSame(component, stringType)) {
+            return ExtraType.STRING_ARRAY;
+        } else if (isSame(component, charSequenceType)) {
+            return ExtraType.CHAR_SEQUENCE_ARRAY;
+        } else if (isSame(component, parcelableType)) {
+            // getParcelableArrayExtra returns a Parcelable[] which can't be cast to a subtype
+            return ExtraType.PARCELABLE_ARRAY;
+        }
+        return isSubtype(type, serializableType) ? ExtraType.SERIALIZABLE : null;
+    }
+
+    private ExtraType getDeclaredExtraType(DeclaredType type) {
+        if (isSame(type, stringType)) {
+            return ExtraType.STRING;
+        } else if (isSame(type, charSequenceType)) {
+            return ExtraType.CHAR_SEQUENCE;
+        } else if (isSame(type, bundleType)) {
+            return ExtraType.BUNDLE;
+        }
+        TypeMirror erasure = typeUtils.erasure(type);
+        List<? extends TypeMirror> typeArguments = type.getTypeArguments();
+        if (typeArguments.size() == 1 && (isSame(erasure, arrayListType)
+                || isSame(erasure, listType) || isSame(erasure, collectionType))) {
+            ExtraType listType = getListExtraType(typeArguments.get(0));
+            if (listType != null) {
+                return listType;
+            }
+        } else if (typeArguments.size() == 1 && isSame(erasure, sparseArrayType)
+                && isSubtype(typeArguments.get(0), parcelableType)) {
+            return ExtraType.SPARSE_PARCELABLE_ARRAY;
+        } else if (typeArguments.size() == 2 && (isSame(erasure, mapType)
+                || isSame(erasure, hashMapType))
+                && isSame(typeArguments.get(0), stringType)
+                && getMapValueExtraType(typeArguments.get(1)) != null) {
+            return ExtraType.STRING_MAP;
+        }
+
+        if (isSubtype(type, parcelableType)) {
+            return ExtraType.PARCELABLE;
+        } else if (type.asElement().getKind() == ElementKind.ENUM
+                && getEnumConstants(type) != null) {
+            return ExtraType.ENUM;
+        } else if (isSubtype(type, serializableType)) {
+            return ExtraType.SERIALIZABLE;
+        }
+        return null;
+    }
+
+    /**
+     * @return the names of the enum's constants or null if two of them, or
+     * one and the 0 an absent extra reads as, share a hash so the enum has to
+     * be serialized after all
+     */
+    @Nullable
+    public List<String> getEnumConstants(DeclaredType type) {
+        List<String> constants = new ArrayList<>();
+        Set<Integer> hashes = new HashSet<>();
+        hashes.add(0);
+        for (Element element : type.asElement().getEnclosedElements()) {
+            if (element.getKind() == ElementKind.ENUM_CONSTANT) {
+                String name = element.getSimpleName().toString();
+                if (!hashes.add(name.hashCode())) {
+                    return null;
+                }
+                constants.add(name);
+            }
+        }
+        return constants;
+    }
+
+    private ExtraType getListExtraType(TypeMirror elementType) {
+        if (isSame(elementType, stringType)) {
+            return ExtraType.STRING_ARRAY_LIST;
+        } else if (isSame(elementType, integerType)) {
+            return ExtraType.INTEGER_ARRAY_LIST;
+        } else if (isSame(elementType, charSequenceType)) {
+            return ExtraType.CHAR_SEQUENCE_ARRAY_LIST;
+        } else if (elementType.getKind() == TypeKind.DECLARED
+                && isSubtype(elementType, parcelableType)) {
+            return ExtraType.PARCELABLE_ARRAY_LIST;
+        }
+        return null;
+    }
+
+    private ExtraType getMapValueExtraType(TypeMirror valueType) {
+        if (valueType.getKind() != TypeKind.DECLARED) {
+            return null;
+        } else if (isSame(valueType, stringType)) {
+            return ExtraType.STRING;
+        } else if (isSame(valueType, charSequenceType)) {
+            return ExtraType.CHAR_SEQUENCE;
+        } else if (isSame(valueType, bundleType)) {
+            return ExtraType.BUNDLE;
+        } else if (isSubtype(valueType, parcelableType)) {
+            return ExtraType.PARCELABLE;
+        }
+        return null;
+    }
+
+    private boolean isSame(TypeMirror type, @Nullable TypeMirror other) {
+        return other != null && typeUtils.isSameType(type, other);
+    }
+
+    private boolean isSubtype(TypeMirror type, @Nullable TypeMirror other) {
+        return other != null && typeUtils.isSubtype(type, other);
+    }
+
+    @Nullable
+    private TypeMirror erasure(Elements elementUtils, String canonicalName) {
+        TypeElement element = elementUtils.getTypeElement(canonicalName);
+        return element == null ? null : typeUtils.erasure(element.asType());
+    }
+}
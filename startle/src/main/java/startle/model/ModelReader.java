@@ -0,0 +1,724 @@
+package startle.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import startle.VariableUtils;
+import startle.annotation.Prefetch;
+import startle.annotation.RequestExtra;
+import startle.annotation.Startle;
+
+import static startle.StringUtils.capitalize;
+
+/**
+ * Builds the {@link ActivityModel} of each activity or fragment. Created
+ * once per processing session so resolved types and the Activity and
+ * Fragment subtype checks are shared by every class in the module.
+ */
+public final class ModelReader {
+    private static final String ACTIVITY = "android.app.Activity";
+    /** Only the AndroidX Fragment can be created by a {@code FragmentFactory} */
+    public static final String FRAGMENT = "androidx.fragment.app.Fragment";
+    private static final String IN_PROCESS_STORE = "startle.runtime.InProcessStore";
+    private static final String LAUNCH_MONITOR = "startle.runtime.LaunchMonitor";
+    private static final String ROUTE_FACTORY = "startle.runtime.RouteFactory";
+    private static final String LAZY = "startle.runtime.Lazy";
+    private static final String ASYNC_BINDING = "startle.runtime.AsyncBinding";
+    private static final String EXTRA_CODEC = "startle.runtime.ExtraCodec";
+    private static final String COMPACT_BUILDER = "startle.runtime.CompactBuilder";
+    private static final String STARTLE_STACK = "startle.runtime.StartleStack";
+    private static final String LAUNCH_DEBOUNCER = "startle.runtime.LaunchDebouncer";
+    private static final String PREFETCH_CACHE = "startle.runtime.PrefetchCache";
+    private static final String RETAINED_EXTRAS = "startle.runtime.RetainedExtras";
+    private static final Comparator<ExtraModel> EXTRA_ORDER =
+            Comparator.comparing(ExtraModel::getName);
+
+    private final Elements elementUtils;
+    private final Types typeUtils;
+    private final Messager messager;
+    private final ExtraTypes extraTypes;
+    private final TypeMirror stringType;
+    private final String requestExtraName = RequestExtra.class.getCanonicalName();
+    private final boolean inProcessAvailable;
+    private final boolean instrumented;
+    private final boolean routable;
+    private final boolean asyncBindable;
+    private final boolean stackable;
+    private final boolean debounceable;
+    private final boolean prefetchable;
+    private final boolean retainable;
+    private final TypeElement futureType;
+    private final TypeElement extraCodecType;
+    private final boolean compact;
+    private final boolean compactKeys;
+    private final boolean validateExtras;
+    private final boolean compactAvailable;
+    private final TypeElement lazyType;
+    /**
+     * The Activity or Fragment class a class extends by qualified name, or an
+     * empty string for neither, including every superclass checked
+     */
+    private final Map<String, String> componentTypes = new HashMap<>();
+
+    /**
+     * @param compact        true to write compact builders where the activity's
+     *                       extras allow it
+     * @param compactKeys    true to put extras under short keys hashed from
+     *                       their names instead of their qualified names
+     * @param validateExtras true to fail binding when required extras are
+     *                       missing
+     */
+    public ModelReader(Elements elementUtils, Types typeUtils, Messager messager,
+            boolean compact, boolean compactKeys, boolean validateExtras) {
+        this.elementUtils = elementUtils;
+        this.typeUtils = typeUtils;
+        this.messager = messager;
+        this.extraTypes = new ExtraTypes(elementUtils, typeUtils);
+        this.stringType = elementUtils.getTypeElement("java.lang.String").asType();
+        this.inProcessAvailable = elementUtils.getTypeElement(IN_PROCESS_STORE) != null;
+        this.instrumented = elementUtils.getTypeElement(LAUNCH_MONITOR) != null;
+        this.routable = elementUtils.getTypeElement(ROUTE_FACTORY) != null;
+        this.lazyType = elementUtils.getTypeElement(LAZY);
+        this.asyncBindable = elementUtils.getTypeElement(ASYNC_BINDING) != null;
+        this.stackable = elementUtils.getTypeElement(STARTLE_STACK) != null;
+        this.debounceable = elementUtils.getTypeElement(LAUNCH_DEBOUNCER) != null;
+        this.prefetchable = elementUtils.getTypeElement(PREFETCH_CACHE) != null;
+        this.retainable = elementUtils.getTypeElement(RETAINED_EXTRAS) != null;
+        this.futureType = elementUtils.getTypeElement("java.util.concurrent.Future");
+        this.extraCodecType = elementUtils.getTypeElement(EXTRA_CODEC);
+        this.compact = compact;
+        this.compactKeys = compactKeys;
+        this.validateExtras = validateExtras;
+        this.compactAvailable = elementUtils.getTypeElement(COMPACT_BUILDER) != null;
+    }
+
+    /**
+     * @return true if the class extends android.app.Activity
+     */
+    public boolean isActivity(TypeElement typeElement) {
+        return getComponentType(typeElement).equals(ACTIVITY);
+    }
+
+    /**
+     * @return true if the class extends androidx.fragment.app.Fragment
+     */
+    public boolean isFragment(TypeElement typeElement) {
+        return getComponentType(typeElement).equals(FRAGMENT);
+    }
+
+    private String getComponentType(TypeElement typeElement) {
+        String name = typeElement.getQualifiedName().toString();
+        String cached = componentTypes.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        TypeMirror superclass = typeElement.getSuperclass();
+        String component = "";
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement parent = (TypeElement) ((DeclaredType) superclass).asElement();
+            String parentName = parent.getQualifiedName().toString();
+            component = parentName.equals(ACTIVITY) || parentName.equals(FRAGMENT) ? parentName
+                    : getComponentType(parent);
+        }
+        componentTypes.put(name, component);
+        return component;
+    }
+
+    /**
+     * A valid instance extra is a non-private, non-final field. A valid key
+     * constant is a static final String with the extra type in its
+     * annotation. Either has to have a type that can be put into a Bundle.
+     *
+     * @throws IllegalStateException if an invalid extra is found
+     */
+    public ActivityModel read(TypeElement typeElement) {
+        List<ExtraModel> staticFinalExtras = new ArrayList<>();
+        List<ExtraModel> instanceExtras = new ArrayList<>();
+        // read after the extras they take, without walking the members again
+        List<ExecutableElement> prefetchMethods = new ArrayList<>();
+        for (Element el : typeElement.getEnclosedElements()) {
+            if (el.getAnnotation(Prefetch.class) != null) {
+                prefetchMethods.add((ExecutableElement) el);
+                continue;
+            }
+            RequestExtra requestExtra = el.getAnnotation(RequestExtra.class);
+            if (requestExtra == null) {
+                continue;
+            }
+            VariableElement var = (VariableElement) el;
+            Set<Modifier> modifiers = var.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) && modifiers.contains(Modifier.FINAL)) {
+                staticFinalExtras.add(readStaticFinalExtra(var, requestExtra));
+            } else {
+                instanceExtras.add(readInstanceExtra(var, requestExtra));
+            }
+        }
+        Startle startle = typeElement.getAnnotation(Startle.class);
+        boolean fragment = isFragment(typeElement);
+        if (fragment) {
+            checkFragment(typeElement, startle, staticFinalExtras, instanceExtras,
+                    prefetchMethods);
+        }
+        if (!startle.route().isEmpty() && !routable) {
+            throw new IllegalStateException(typeElement.getSimpleName()
+                    + " has a route which requires the startle-runtime library");
+        }
+        if (compact && !compactAvailable) {
+            throw new IllegalStateException(typeElement.getSimpleName()
+                    + " can't have a compact builder without the startle-runtime library");
+        }
+        if (startle.debounceMillis() < 0) {
+            throw new IllegalStateException("debounceMillis of " + typeElement.getSimpleName()
+                    + " can't be negative");
+        }
+        if (startle.debounceMillis() > 0 && !debounceable) {
+            throw new IllegalStateException(typeElement.getSimpleName()
+                    + " has debounceMillis which requires the startle-runtime library");
+        }
+        if (startle.retainExtras() && !retainable) {
+            throw new IllegalStateException(typeElement.getSimpleName()
+                    + " has retainExtras which requires the startle-runtime library");
+        }
+        if (startle.deepLinks().length > 0 && !routable) {
+            throw new IllegalStateException(typeElement.getSimpleName()
+                    + " has deep links which require the startle-runtime library");
+        }
+        // a staged builder chains its steps in declaration order, anything else
+        // is sorted so moving fields around doesn't change the generated code
+        if (!startle.staged()) {
+            staticFinalExtras.sort(EXTRA_ORDER);
+            instanceExtras.sort(EXTRA_ORDER);
+        }
+        List<ExtraModel> extras = new ArrayList<>(staticFinalExtras);
+        extras.addAll(instanceExtras);
+        List<PrefetchModel> prefetchers = new ArrayList<>();
+        for (ExecutableElement method : prefetchMethods) {
+            prefetchers.add(readPrefetcher(typeElement, method,
+                    method.getAnnotation(Prefetch.class).value(), instanceExtras, prefetchers));
+        }
+        List<DeepLinkPattern> deepLinks = new ArrayList<>();
+        for (String deepLink : startle.deepLinks()) {
+            deepLinks.add(readDeepLink(deepLink, extras));
+        }
+        return new ActivityModel(typeElement,
+                elementUtils.getPackageOf(typeElement).getQualifiedName().toString(), fragment,
+                startle.staged(), startle.route(), deepLinks, startle.debounceMillis(),
+                instrumented && !fragment, asyncBindable && !fragment, stackable && !fragment,
+                compact && isCompactable(typeElement, fragment, extras, prefetchers),
+                validateExtras,
+                startle.retainExtras(), staticFinalExtras, instanceExtras, prefetchers,
+                assignKeys(typeElement, staticFinalExtras, instanceExtras, prefetchers));
+    }
+
+    /**
+     * A fragment is built instead of launched and binds its arguments rather
+     * than an Intent, so what hooks into either isn't available. It's
+     * created without reflection, which needs a public no-argument
+     * constructor, like the framework's default {@code FragmentFactory} does.
+     *
+     * @throws IllegalStateException if the fragment uses any of it
+     */
+    private void checkFragment(TypeElement typeElement, Startle startle,
+            List<ExtraModel> staticFinalExtras, List<ExtraModel> instanceExtras,
+            List<ExecutableElement> prefetchMethods) {
+        String name = typeElement.getSimpleName() + " is a fragment, which can't ";
+        if (!startle.route().isEmpty() || startle.deepLinks().length > 0) {
+            throw new IllegalStateException(name + "have a route or deep links");
+        }
+        if (startle.debounceMillis() != 0) {
+            throw new IllegalStateException(name + "have debounceMillis");
+        }
+        if (startle.retainExtras()) {
+            throw new IllegalStateException(name + "have retainExtras");
+        }
+        if (!staticFinalExtras.isEmpty()) {
+            throw new IllegalStateException(name + "have key constants like "
+                    + staticFinalExtras.get(0).getName());
+        }
+        for (ExtraModel extra : instanceExtras) {
+            if (extra.isLazy()) {
+                throw new IllegalStateException(name + "have Lazy extras like "
+                        + extra.getName());
+            }
+        }
+        if (!prefetchMethods.isEmpty()) {
+            throw new IllegalStateException(name + "prefetch");
+        }
+        boolean instantiable = typeElement.getModifiers().contains(Modifier.PUBLIC)
+                && (typeElement.getNestingKind() == NestingKind.TOP_LEVEL
+                        || typeElement.getModifiers().contains(Modifier.STATIC));
+        boolean noArgConstructor = false;
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+            noArgConstructor |= constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        if (!instantiable || !noArgConstructor) {
+            throw new IllegalStateException(typeElement.getSimpleName() + " must be a public"
+                    + " class with a public no-argument constructor to be recreated");
+        }
+    }
+
+    /**
+     * Assigns the Intent keys of the instance extras and prefetch handles.
+     * A compact key is {@code ~} and a base 36 hash of the name, which only
+     * has to be unique within the activity's Intent. In the rare case it
+     * collides with an earlier name or a key constant, the later name keeps
+     * its qualified key.
+     *
+     * @return extra name, or {@code prefetch.<field>} for a handle, to its key
+     */
+    private Map<String, String> assignKeys(TypeElement typeElement,
+            List<ExtraModel> staticFinalExtras, List<ExtraModel> instanceExtras,
+            List<PrefetchModel> prefetchers) {
+        String prefix = typeElement.getQualifiedName() + ".";
+        // sorted so a collision resolves the same way however the fields are ordered
+        Map<String, String> keys = new TreeMap<>();
+        for (ExtraModel extra : instanceExtras) {
+            keys.put(extra.getName(), prefix + extra.getName());
+        }
+        for (PrefetchModel prefetcher : prefetchers) {
+            String name = ActivityModel.PREFETCH_KEY_PREFIX + prefetcher.getFieldName();
+            keys.put(name, prefix + name);
+        }
+        if (!compactKeys) {
+            return keys;
+        }
+        Map<String, String> owners = new HashMap<>();
+        for (ExtraModel extra : staticFinalExtras) {
+            Object constant = extra.getElement().getConstantValue();
+            if (constant != null) {
+                owners.put(constant.toString(), extra.getName());
+            }
+        }
+        for (Map.Entry<String, String> key : keys.entrySet()) {
+            String compactKey = getCompactKey(key.getKey());
+            String owner = owners.get(compactKey);
+            if (owner == null) {
+                owners.put(compactKey, key.getKey());
+                key.setValue(compactKey);
+            } else {
+                messager.printMessage(Diagnostic.Kind.NOTE, typeElement.getSimpleName()
+                        + " keeps the full key of " + key.getKey()
+                        + " because its compact key " + compactKey + " is taken by " + owner,
+                        typeElement);
+            }
+        }
+        return keys;
+    }
+
+    private static String getCompactKey(String name) {
+        return "~" + Integer.toString(name.hashCode() & 0xFFFFF, 36);
+    }
+
+    /**
+     * @return true if every extra can be put by the runtime's shared loop,
+     * which doesn't run codecs, encode Maps and SparseArrays or prefetch
+     */
+    private boolean isCompactable(TypeElement typeElement, boolean fragment,
+            List<ExtraModel> extras, List<PrefetchModel> prefetchers) {
+        if (fragment) {
+            messager.printMessage(Diagnostic.Kind.NOTE, typeElement.getSimpleName()
+                    + " gets a full builder because the compact one can't build fragments",
+                    typeElement);
+            return false;
+        }
+        if (!prefetchers.isEmpty()) {
+            messager.printMessage(Diagnostic.Kind.NOTE, typeElement.getSimpleName()
+                    + " gets a full builder because the compact one can't prefetch",
+                    typeElement);
+            return false;
+        }
+        for (ExtraModel extra : extras) {
+            if (extra.getCodec() != null
+                    || !extra.isInProcess() && extra.getExtraType().isEncoded()) {
+                messager.printMessage(Diagnostic.Kind.NOTE, typeElement.getSimpleName()
+                        + " gets a full builder because the compact one can't put "
+                        + extra.getName(), typeElement);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A prefetcher is a static, non-private method whose parameters are named
+     * after the instance extras it's called with. Its result goes into a
+     * non-private {@code Future} field that can hold it.
+     *
+     * @throws IllegalStateException if the method or its field is invalid
+     */
+    private PrefetchModel readPrefetcher(TypeElement typeElement, ExecutableElement method,
+            String fieldName, List<ExtraModel> instanceExtras, List<PrefetchModel> prefetchers) {
+        String name = method.getSimpleName().toString();
+        if (!prefetchable) {
+            throw new IllegalStateException("@Prefetch method " + name
+                    + " requires the startle-runtime library");
+        }
+        if (instanceExtras.isEmpty()) {
+            throw new IllegalStateException("@Prefetch method " + name
+                    + " needs the activity to have a @RequestExtra field");
+        }
+        if (!method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new IllegalStateException("@Prefetch method " + name
+                    + " must be static and not private");
+        }
+        TypeMirror resultType = method.getReturnType();
+        if (resultType.getKind() == TypeKind.VOID) {
+            throw new IllegalStateException("@Prefetch method " + name + " must return a value");
+        }
+        if (resultType.getKind().isPrimitive()) {
+            resultType = typeUtils.boxedClass((PrimitiveType) resultType).asType();
+        }
+        List<ExtraModel> parameters = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            ExtraModel extra = findExtra(instanceExtras, parameter.getSimpleName());
+            if (extra == null) {
+                throw new IllegalStateException("Parameter " + parameter.getSimpleName()
+                        + " of " + name + " must be named after a @RequestExtra field");
+            }
+            if (extra.isLazy()) {
+                throw new IllegalStateException("Lazy extra " + extra.getName()
+                        + " can't be passed to " + name);
+            }
+            // the builder can't tell what an unset one will be bound as
+            if (extra.isNullable() && extra.getType().getKind().isPrimitive()) {
+                throw new IllegalStateException("Optional primitive " + extra.getName()
+                        + " can't be passed to " + name);
+            }
+            if (!typeUtils.isAssignable(extra.getType(), parameter.asType())) {
+                throw new IllegalStateException("Parameter " + parameter.getSimpleName()
+                        + " of " + name + " can't take the extra's type " + extra.getType());
+            }
+            parameters.add(extra);
+        }
+        for (PrefetchModel prefetcher : prefetchers) {
+            if (prefetcher.getFieldName().equals(fieldName)) {
+                throw new IllegalStateException(prefetcher.getMethodName() + " and " + name
+                        + " both prefetch into " + fieldName);
+            }
+        }
+        TypeMirror futureOfResult = typeUtils.getDeclaredType(futureType, resultType);
+        VariableElement field = findField(typeElement, fieldName);
+        if (field == null || field.getModifiers().contains(Modifier.PRIVATE)
+                || field.getModifiers().contains(Modifier.STATIC)
+                || field.getModifiers().contains(Modifier.FINAL)
+                || !typeUtils.isAssignable(futureOfResult, field.asType())) {
+            throw new IllegalStateException(name + " must prefetch into a non-private "
+                    + futureOfResult + " field named " + fieldName);
+        }
+        return new PrefetchModel(name, fieldName, resultType, parameters);
+    }
+
+    @Nullable
+    private ExtraModel findExtra(List<ExtraModel> extras, Name name) {
+        for (ExtraModel extra : extras) {
+            if (name.contentEquals(extra.getName())) {
+                return extra;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private VariableElement findField(TypeElement typeElement, String name) {
+        for (Element el : typeElement.getEnclosedElements()) {
+            if (el.getKind() == ElementKind.FIELD && el.getSimpleName().contentEquals(name)) {
+                return (VariableElement) el;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @throws IllegalStateException if the pattern is invalid, binds an extra
+     * that can't be parsed from a String or leaves a required extra unbound
+     */
+    private DeepLinkPattern readDeepLink(String deepLink, List<ExtraModel> extras) {
+        DeepLinkPattern pattern = DeepLinkPattern.parse(deepLink);
+        List<String> parameters = new ArrayList<>(pattern.getPathParameters());
+        parameters.addAll(pattern.getQueryParameters().values());
+        for (String parameter : parameters) {
+            ExtraModel extra = null;
+            for (ExtraModel candidate : extras) {
+                if (candidate.getVariableName().equals(parameter)) {
+                    extra = candidate;
+                }
+            }
+            if (extra == null) {
+                throw new IllegalStateException("Deep link " + deepLink
+                        + " binds " + parameter + " which is not an extra");
+            } else if (extra.isInProcess() || !extra.getExtraType().isParsable()) {
+                throw new IllegalStateException("Deep link " + deepLink + " binds " + parameter
+                        + " which can't be parsed from a deep link");
+            }
+        }
+        for (ExtraModel extra : extras) {
+            if (!extra.isNullable() && !parameters.contains(extra.getVariableName())) {
+                throw new IllegalStateException("Deep link " + deepLink
+                        + " doesn't bind the required extra " + extra.getVariableName());
+            }
+        }
+        return pattern;
+    }
+
+    private ExtraModel readInstanceExtra(VariableElement var, RequestExtra requestExtra) {
+        Set<Modifier> modifiers = var.getModifiers();
+        Name name = var.getSimpleName();
+        if (modifiers.contains(Modifier.STATIC)) {
+            throw new IllegalStateException(name + " cannot be static");
+        }
+        if (modifiers.contains(Modifier.FINAL)) {
+            throw new IllegalStateException(name + " cannot be final");
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            throw new IllegalStateException(name + " cannot be private");
+        }
+        TypeMirror type = var.asType();
+        if (isLazy(type)) {
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+            if (requestExtra.inProcess() || getCodec(requestExtra) != null
+                    || typeArguments.size() != 1
+                    || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+                throw new IllegalStateException(name
+                        + " must be a Lazy of a Parcelable or Serializable class");
+            }
+            ExtraType extraType = extraTypes.getExtraType(typeArguments.get(0));
+            if (extraType == ExtraType.ENUM) {
+                throw new IllegalStateException(name
+                        + " is an enum, which is read without deserializing, so it can't be Lazy");
+            }
+            if (extraType != ExtraType.PARCELABLE && extraType != ExtraType.SERIALIZABLE) {
+                throw new IllegalStateException(name
+                        + " must be a Lazy of a Parcelable or Serializable class");
+            }
+            return createExtra(var, requestExtra, capitalize(name.toString()),
+                    typeArguments.get(0), false, true);
+        }
+        return createExtra(var, requestExtra, capitalize(name.toString()), type, false, false);
+    }
+
+    private boolean isLazy(TypeMirror type) {
+        return lazyType != null && type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().equals(lazyType);
+    }
+
+    private ExtraModel readStaticFinalExtra(VariableElement var, RequestExtra requestExtra) {
+        if (!typeUtils.isSameType(var.asType(), stringType)) {
+            throw new IllegalStateException(var.getSimpleName() + " must be a String");
+        }
+        TypeMirror type;
+        try {
+            requestExtra.value();
+            throw new IllegalStateException("Cannot read the extra type of " + var.getSimpleName());
+        } catch (MirroredTypeException e) {
+            type = e.getTypeMirror();
+        }
+        return createExtra(var, requestExtra, VariableUtils.getNameFromStaticFinal(var), type,
+                true, false);
+    }
+
+    private ExtraModel createExtra(VariableElement var, RequestExtra requestExtra,
+            String propertyName, TypeMirror type, boolean staticFinal, boolean lazy) {
+        TypeMirror codec = getCodec(requestExtra);
+        ExtraType extraType = codec == null ? checkExtraType(var, requestExtra, type, staticFinal)
+                : checkCodec(var, requestExtra, type, codec);
+        List<AnnotationMirror> annotations = new ArrayList<>();
+        boolean nullable = false;
+        AnnotationMirror intDef = null;
+        for (AnnotationMirror annotation : var.getAnnotationMirrors()) {
+            TypeElement annotationElement = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationElement.getQualifiedName().contentEquals(requestExtraName)) {
+                continue;
+            }
+            nullable |= annotationElement.getSimpleName().contentEquals("Nullable");
+            if (type.getKind() == TypeKind.INT && intDef == null) {
+                intDef = getIntDef(annotationElement);
+            }
+            annotations.add(annotation);
+        }
+        return new ExtraModel(var, propertyName, type, extraType,
+                extraType == ExtraType.STRING_MAP ? extraTypes.getMapValueType(type) : null,
+                extraType != null && extraType.isArrayList() && extraTypes.needsArrayListCopy(type),
+                staticFinal, nullable, requestExtra.inProcess(), lazy, codec, annotations,
+                extraType == ExtraType.ENUM
+                        ? extraTypes.getEnumConstants((DeclaredType) type)
+                        : Collections.<String>emptyList(),
+                intDef == null ? Collections.<Integer>emptyList()
+                        : getAnnotationInts(intDef, "value"),
+                intDef != null && getAnnotationBoolean(intDef, "flag"));
+    }
+
+    /**
+     * Typedef annotations are recognized by name, like {@code @Nullable}, so
+     * either the support library or AndroidX works.
+     *
+     * @return the {@code @IntDef} on the annotation type or null
+     */
+    @Nullable
+    private AnnotationMirror getIntDef(TypeElement annotationType) {
+        for (AnnotationMirror annotation : annotationType.getAnnotationMirrors()) {
+            if (annotation.getAnnotationType().asElement().getSimpleName()
+                    .contentEquals("IntDef")) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The support library declares {@code @IntDef} values as longs and
+     * AndroidX as ints, so either is read as a Number.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Integer> getAnnotationInts(AnnotationMirror annotation, String name) {
+        List<Integer> ints = new ArrayList<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                for (AnnotationValue element
+                        : (List<? extends AnnotationValue>) value.getValue().getValue()) {
+                    ints.add(((Number) element.getValue()).intValue());
+                }
+            }
+        }
+        return ints;
+    }
+
+    private boolean getAnnotationBoolean(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                return (Boolean) value.getValue().getValue();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the codec class or null if the extra doesn't have one
+     */
+    private TypeMirror getCodec(RequestExtra requestExtra) {
+        TypeMirror codec;
+        try {
+            requestExtra.codec();
+            throw new IllegalStateException("Cannot read the codec of an extra");
+        } catch (MirroredTypeException e) {
+            codec = e.getTypeMirror();
+        }
+        return codec.getKind() == TypeKind.VOID ? null : codec;
+    }
+
+    /**
+     * @return the byte array type the codec writes
+     * @throws IllegalStateException if the codec can't be used for the extra
+     */
+    private ExtraType checkCodec(VariableElement var, RequestExtra requestExtra, TypeMirror type,
+            TypeMirror codec) {
+        Name name = var.getSimpleName();
+        if (extraCodecType == null) {
+            throw new IllegalStateException(name
+                    + " has a codec which requires the startle-runtime library");
+        } else if (requestExtra.inProcess() || type.getKind().isPrimitive()) {
+            throw new IllegalStateException(name
+                    + " can't have a codec if it's a primitive or passed in-process");
+        }
+        TypeMirror codecType = getCodecType(codec);
+        if (codecType == null || !typeUtils.isSameType(codecType, type)) {
+            throw new IllegalStateException(codec + " of " + name
+                    + " must implement ExtraCodec<" + type + ">");
+        }
+        TypeElement codecElement = (TypeElement) typeUtils.asElement(codec);
+        boolean constructible = codecElement.getModifiers().contains(Modifier.PUBLIC)
+                && !codecElement.getModifiers().contains(Modifier.ABSTRACT);
+        boolean noArgConstructor = false;
+        for (Element member : codecElement.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && member.getModifiers().contains(Modifier.PUBLIC)) {
+                noArgConstructor = true;
+            }
+        }
+        if (!constructible || !noArgConstructor) {
+            throw new IllegalStateException(codec + " of " + name
+                    + " must be a public class with a public no-arg constructor");
+        }
+        return ExtraType.BYTE_ARRAY;
+    }
+
+    /**
+     * @return the type argument of ExtraCodec in the codec's supertypes
+     */
+    private TypeMirror getCodecType(TypeMirror codec) {
+        for (TypeMirror supertype : typeUtils.directSupertypes(codec)) {
+            if (supertype.getKind() == TypeKind.DECLARED
+                    && ((DeclaredType) supertype).asElement().equals(extraCodecType)) {
+                List<? extends TypeMirror> typeArguments =
+                        ((DeclaredType) supertype).getTypeArguments();
+                return typeArguments.isEmpty() ? null : typeArguments.get(0);
+            }
+            TypeMirror codecType = getCodecType(supertype);
+            if (codecType != null) {
+                return codecType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @throws IllegalStateException if the type can't be put in a Bundle
+     */
+    private ExtraType checkExtraType(VariableElement var, RequestExtra requestExtra,
+            TypeMirror type, boolean staticFinal) {
+        ExtraType extraType = extraTypes.getExtraType(type);
+        if (extraType == ExtraType.ENUM && staticFinal) {
+            // Intents for a key constant may be built by hand and serialize the enum
+            extraType = ExtraType.SERIALIZABLE;
+        }
+        if (requestExtra.inProcess()) {
+            if (type.getKind().isPrimitive()) {
+                throw new IllegalStateException(var.getSimpleName()
+                        + " is a primitive and can't be passed in-process");
+            } else if (!inProcessAvailable) {
+                throw new IllegalStateException(var.getSimpleName()
+                        + " is passed in-process which requires the startle-runtime library");
+            }
+        } else if (extraType == null) {
+            throw new IllegalStateException(var.getSimpleName()
+                    + " must be a primitive, a type with a Bundle accessor, Parcelable or Serializable");
+        } else if (extraType == ExtraType.SERIALIZABLE) {
+            messager.printMessage(Diagnostic.Kind.WARNING, var.getSimpleName()
+                    + " has no typed Bundle accessor and falls back to Java serialization", var);
+        }
+        return extraType;
+    }
+}
@@ -0,0 +1,48 @@
+package startle.model;
+
+import java.util.List;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A {@code @Prefetch} method of an activity and the field its result goes to.
+ */
+public final class PrefetchModel {
+    private final String methodName;
+    private final String fieldName;
+    private final TypeMirror resultType;
+    private final List<ExtraModel> parameters;
+
+    PrefetchModel(String methodName, String fieldName, TypeMirror resultType,
+            List<ExtraModel> parameters) {
+        this.methodName = methodName;
+        this.fieldName = fieldName;
+        this.resultType = resultType;
+        this.parameters = parameters;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the activity's {@code Future} field
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return the method's return type, boxed if it's a primitive
+     */
+    public TypeMirror getResultType() {
+        return resultType;
+    }
+
+    /**
+     * @return the extras passed to the method in parameter order
+     */
+    public List<ExtraModel> getParameters() {
+        return parameters;
+    }
+}
@@ -10,208 +10,823 @@ import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.lang.model.element.Modifier;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
-import javax.lang.model.type.MirroredTypeException;
-import javax.lang.model.type.PrimitiveType;
-import javax.lang.model.type.TypeKind;
-import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
-import javax.lang.model.util.Types;
-
-import startle.VariableUtils;
-import startle.annotation.RequestExtra;
-
-import static java.lang.Character.toLowerCase;
-import static java.lang.Character.toUpperCase;
+
+import startle.model.ActivityModel;
+import startle.model.ExtraModel;
+import startle.model.ExtraType;
+import startle.model.PrefetchModel;
+
 import static java.util.stream.Collectors.toList;
 
 class BuilderWriter {
 
-    private final TypeElement classElement;
-    private final List<VariableElement> staticFinalExtras;
-    private final List<VariableElement> instanceExtras;
-    private final Types typeUtils;
+    private final ActivityModel activity;
+    private final boolean staged;
+    /** Fragments are built with their extras as arguments instead of started */
+    private final boolean fragment;
+    /** Deep links and stacks take the builder as a runtime {@code Launcher} */
+    private final boolean launcher;
     private final ClassName className;
     final ClassName builderName;
+    private final ClassName readyName;
     private final ClassName intentName;
+    private final ClassName bundleName;
     private final ClassName contextName;
     private final ParameterSpec contextParam;
-    private final TypeMirror requestExtraType;
-
-    BuilderWriter(TypeElement classElement,
-            List<VariableElement> staticFinalExtras, List<VariableElement> instanceExtras,
-            Elements elementUtils, Types typeUtils, ClassName builderName) {
-        this.classElement = classElement;
-        this.staticFinalExtras = staticFinalExtras;
-        this.instanceExtras = instanceExtras;
-        this.typeUtils = typeUtils;
-        this.className = ClassName.get(classElement);
+    /** Bit index of every extra whose "was set" state is tracked in the set bits */
+    private final Map<ExtraModel, Integer> extraBits = new LinkedHashMap<>();
+    private final TypeName bitsType;
+    private final List<FieldSpec> bitsFields = new ArrayList<>();
+    /** Required extras in the order their steps are chained when staged */
+    private final List<ExtraModel> requiredExtras = new ArrayList<>();
+    /** The abstract methods of every step interface when staged */
+    private final Map<ClassName, List<MethodSpec>> stepMethods = new LinkedHashMap<>();
+
+    BuilderWriter(ActivityModel activity, ClassName builderName) {
+        this.activity = activity;
+        this.staged = activity.isStaged();
+        this.fragment = activity.isFragment();
+        this.launcher = activity.isStackable();
+        this.className = ClassName.get(activity.getElement());
         this.builderName = builderName;
+        this.readyName = builderName.peerClass("Ready");
         this.intentName = ClassName.get("android.content", "Intent");
+        this.bundleName = ClassName.get("android.os", "Bundle");
         this.contextName = ClassName.get("android.content", "Context");
         this.contextParam = ParameterSpec.builder(contextName, "context")
                 .build();
-        requestExtraType = elementUtils.getTypeElement(RequestExtra.class.getCanonicalName()).asType();
+        for (ExtraModel extra : activity.getExtras()) {
+            trackExtraBit(extra);
+        }
+        if (staged) {
+            for (ExtraModel extra : requiredExtras) {
+                stepMethods.put(getStepName(extra), new ArrayList<>());
+            }
+            stepMethods.put(readyName, new ArrayList<>());
+        }
+        // A single int covers the common case, otherwise one long per 64 extras
+        this.bitsType = extraBits.size() <= Integer.SIZE ? TypeName.INT : TypeName.LONG;
+        int words = extraBits.isEmpty() ? 0
+                : bitsType == TypeName.INT ? 1 : (extraBits.size() + Long.SIZE - 1) / Long.SIZE;
+        for (int i = 0; i < words; i++) {
+            bitsFields.add(FieldSpec.builder(bitsType, words == 1 ? "setBits" : "setBits" + i)
+                    .addModifiers(Modifier.PRIVATE)
+                    .build());
+        }
+    }
+
+    /**
+     * Required extras and optional primitives can't use null to mean "not
+     * set" so they each get a bit in the set bits. A staged builder can only
+     * reach {@code start()} once every required extra is set, so there only
+     * optional primitives need one.
+     */
+    private void trackExtraBit(ExtraModel extra) {
+        boolean primitive = extra.getType().getKind().isPrimitive();
+        if (!extra.isNullable()) {
+            requiredExtras.add(extra);
+        }
+        if (staged ? extra.isNullable() && primitive : !extra.isNullable() || primitive) {
+            extraBits.put(extra, extraBits.size());
+        }
+    }
+
+    /**
+     * @return the type returned by {@code prepare<Activity>()}
+     */
+    TypeName getEntryType() {
+        if (!staged) {
+            return builderName;
+        }
+        return requiredExtras.isEmpty() ? readyName : getStepName(requiredExtras.get(0));
+    }
+
+    /**
+     * One interface per required extra with just its setter, which returns
+     * the next step. The last one returns {@code Ready} with the optional
+     * setters and the start methods, or the build methods of a fragment.
+     */
+    List<TypeSpec> createStepInterfaces() {
+        List<TypeSpec> steps = new ArrayList<>();
+        if (!staged) {
+            return steps;
+        }
+        for (Map.Entry<ClassName, List<MethodSpec>> step : stepMethods.entrySet()) {
+            TypeSpec.Builder stepInterface = TypeSpec.interfaceBuilder(step.getKey())
+                    .addModifiers(Modifier.PUBLIC)
+                    .addMethods(step.getValue());
+            if (step.getKey().equals(readyName) && launcher) {
+                stepInterface.addSuperinterface(RuntimeTypes.LAUNCHER);
+            } else if (step.getKey().equals(readyName) && fragment) {
+                stepInterface.addMethod(MethodSpec.methodBuilder("getArguments")
+                        .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                        .returns(bundleName)
+                        .build());
+                stepInterface.addMethod(MethodSpec.methodBuilder("build")
+                        .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                        .returns(className)
+                        .build());
+            } else if (step.getKey().equals(readyName)) {
+                stepInterface.addMethod(MethodSpec.methodBuilder("start")
+                        .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                        .build());
+                stepInterface.addMethod(MethodSpec.methodBuilder("startForResult")
+                        .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                        .addParameter(int.class, "requestCode")
+                        .build());
+            }
+            steps.add(stepInterface.build());
+        }
+        return steps;
+    }
+
+    private ClassName getStepName(ExtraModel extra) {
+        return builderName.peerClass("Needs" + extra.getPropertyName());
+    }
+
+    private TypeName getSetterReturnType(ExtraModel extra) {
+        if (!staged) {
+            return builderName;
+        }
+        int step = requiredExtras.indexOf(extra);
+        if (step == -1 || step == requiredExtras.size() - 1) {
+            return readyName;
+        }
+        return getStepName(requiredExtras.get(step + 1));
     }
 
     TypeSpec createBuilder() {
+        if (activity.isCompact()) {
+            return createCompactBuilder();
+        }
         List<FieldSpec> fields = new ArrayList<>();
+        List<MethodSpec> methods = new ArrayList<>();
         FieldSpec contextField = FieldSpec.builder(contextName, "context")
                 .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
                 .build();
-        fields.add(contextField);
-        List<MethodSpec> methods = new ArrayList<>();
-        methods.add(MethodSpec.constructorBuilder()
-                .addParameter(contextParam)
-                .addStatement("this.$N = $N", contextField, contextParam)
-                .build());
+        if (!fragment) {
+            fields.add(contextField);
+            methods.add(MethodSpec.constructorBuilder()
+                    .addParameter(contextParam)
+                    .addStatement("this.$N = $N", contextField, contextParam)
+                    .build());
+        }
+        fields.addAll(bitsFields);
         CodeBlock.Builder verifyExtraBlocks = CodeBlock.builder();
         CodeBlock.Builder setExtraBlock = CodeBlock.builder();
-        processStaticFinalFields(fields, methods, verifyExtraBlocks, setExtraBlock);
-        processInstanceFields(fields, methods, verifyExtraBlocks, setExtraBlock);
+        List<CodeBlock> inProcessKeys = new ArrayList<>();
+        processExtras(fields, methods, setExtraBlock, inProcessKeys);
+        for (PrefetchModel prefetcher : activity.getPrefetchers()) {
+            fields.add(getKeyFieldSpec(getPrefetchKeyName(prefetcher),
+                    ActivityModel.PREFETCH_KEY_PREFIX + prefetcher.getFieldName()));
+        }
+        addRequiredVerification(fields, methods, verifyExtraBlocks);
+        if (fragment) {
+            methods.addAll(createBuildMethods(verifyExtraBlocks.build(), setExtraBlock.build()));
+        } else {
+            methods.addAll(createLaunchMethods(contextField, verifyExtraBlocks.build(),
+                    setExtraBlock.build(), inProcessKeys));
+        }
+        TypeSpec.Builder builder = TypeSpec.classBuilder(builderName)
+                .addFields(fields)
+                .addMethods(methods);
+        if (launcher && !staged) {
+            builder.addSuperinterface(RuntimeTypes.LAUNCHER);
+        }
+        if (!fragment && activity.getDebounceMillis() > 0) {
+            builder.addSuperinterface(RuntimeTypes.LAUNCH_DEBOUNCER.nestedClass("Values"));
+        }
+        return addBuilderModifiers(builder).build();
+    }
 
+    /**
+     * @return the methods putting the extras in an Intent and starting the
+     * activity with it
+     */
+    private List<MethodSpec> createLaunchMethods(FieldSpec contextField, CodeBlock verifyExtras,
+            CodeBlock setExtras, List<CodeBlock> inProcessKeys) {
+        List<MethodSpec> methods = new ArrayList<>();
         MethodSpec getIntentMethod = MethodSpec.methodBuilder("getIntent")
                 .addModifiers(Modifier.PRIVATE)
                 .returns(intentName)
-                .addCode(verifyExtraBlocks.build())
+                .addCode(verifyExtras)
                 .addStatement("$1T intent = new $1T($2N, $3T.class)", intentName,
-                        contextField, classElement)
-                .addCode(setExtraBlock.build())
+                        contextField, className)
+                .addCode(setExtras)
                 .addStatement("return intent")
                 .build();
         methods.add(getIntentMethod);
+        if (launcher) {
+            methods.add(MethodSpec.methodBuilder("toIntent")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(intentName)
+                    .addStatement("return $N()", getIntentMethod)
+                    .build());
+            methods.add(MethodSpec.methodBuilder("snapshot")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(RuntimeTypes.LAUNCH_SNAPSHOT)
+                    .addStatement("return $T.of($L)", RuntimeTypes.LAUNCH_SNAPSHOT,
+                            getSnapshotArgs(getIntentMethod, inProcessKeys))
+                    .build());
+        }
+        if (activity.getDebounceMillis() > 0) {
+            methods.addAll(createDebounceValuesMethods());
+        }
         methods.add(MethodSpec.methodBuilder("start")
+                .addAnnotations(getOverrideAnnotations(true))
                 .addModifiers(Modifier.PUBLIC)
-                .addStatement("$N.startActivity($N())", contextField, getIntentMethod)
+                .addCode(getValuesDebounceCheck())
+                .addStatement("$T intent = $N()", intentName, getIntentMethod)
+                .addCode(getPrefetchStart())
+                .addCode(getLaunchInstrumentation())
+                .addStatement("$N.startActivity(intent)", contextField)
                 .build());
         methods.add(MethodSpec.methodBuilder("startForResult")
+                .addAnnotations(getOverrideAnnotations(true))
                 .addModifiers(Modifier.PUBLIC)
                 .addParameter(int.class, "requestCode")
-                .addStatement("(($T) $N).startActivityForResult($N(), $N)",
+                .addCode(getValuesDebounceCheck())
+                .addStatement("$T intent = $N()", intentName, getIntentMethod)
+                .addCode(getPrefetchStart())
+                .addCode(getLaunchInstrumentation())
+                .addStatement("(($T) $N).startActivityForResult(intent, $N)",
                         ClassName.get("android.app", "Activity"),
-                        contextField, getIntentMethod, "requestCode")
+                        contextField, "requestCode")
                 .build());
-        return TypeSpec.classBuilder(builderName)
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        return methods;
+    }
+
+    /**
+     * @return the methods putting the extras in an arguments Bundle and
+     * creating the fragment with it
+     */
+    private List<MethodSpec> createBuildMethods(CodeBlock verifyExtras, CodeBlock setExtras) {
+        List<MethodSpec> methods = new ArrayList<>();
+        MethodSpec getArguments = MethodSpec.methodBuilder("getArguments")
+                .addAnnotations(getOverrideAnnotations(true))
+                .addModifiers(Modifier.PUBLIC)
+                .returns(bundleName)
+                .addCode(verifyExtras)
+                .addStatement("$1T arguments = new $1T()", bundleName)
+                .addCode(setExtras)
+                .addStatement("return arguments")
+                .build();
+        methods.add(getArguments);
+        methods.add(MethodSpec.methodBuilder("build")
+                .addAnnotations(getOverrideAnnotations(true))
+                .addModifiers(Modifier.PUBLIC)
+                .returns(className)
+                .addStatement("$1T fragment = new $1T()", className)
+                .addStatement("fragment.setArguments($N())", getArguments)
+                .addStatement("return fragment")
+                .build());
+        return methods;
+    }
+
+    private TypeSpec.Builder addBuilderModifiers(TypeSpec.Builder builder) {
+        if (staged) {
+            // only reachable through the step interfaces
+            return builder.addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .addSuperinterfaces(stepMethods.keySet());
+        }
+        return builder.addModifiers(Modifier.PUBLIC, Modifier.STATIC);
+    }
+
+    /**
+     * The setters of a compact builder store their value by index in the
+     * runtime {@code CompactBuilder}, which fills the Intent in one loop over
+     * the {@code ExtrasTable} describing the extras. Start, verification and
+     * encoding aren't generated at all.
+     */
+    private TypeSpec createCompactBuilder() {
+        List<FieldSpec> fields = new ArrayList<>();
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(MethodSpec.constructorBuilder()
+                .addParameter(contextParam)
+                .addStatement("super($N, TABLE)", contextParam)
+                .build());
+        CodeBlock.Builder keys = CodeBlock.builder();
+        CodeBlock.Builder names = CodeBlock.builder();
+        CodeBlock.Builder types = CodeBlock.builder();
+        List<ExtraModel> extras = activity.getExtras();
+        for (int i = 0; i < extras.size(); i++) {
+            ExtraModel extra = extras.get(i);
+            String separator = i == 0 ? "" : ", ";
+            if (extra.isStaticFinal()) {
+                keys.add("$L$T.$L", separator, className, extra.getName());
+            } else {
+                FieldSpec nameField = getStaticFinalExtraFieldSpec(extra.getName());
+                fields.add(nameField);
+                keys.add("$L$N", separator, nameField);
+            }
+            names.add("$L$S", separator, extra.getName());
+            types.add("$L$T.$L", separator, RuntimeTypes.EXTRAS_TABLE,
+                    extra.isInProcess() ? "IN_PROCESS" : extra.getExtraType().name());
+            if (!extra.isNullable()) {
+                types.add(" | $T.REQUIRED", RuntimeTypes.EXTRAS_TABLE);
+            }
+
+            TypeName extraClassName = TypeName.get(extra.getType());
+            ParameterSpec.Builder param = ParameterSpec.builder(extraClassName,
+                    extra.getVariableName());
+            if (!extra.isStaticFinal()) {
+                param.addAnnotations(getAnnotationsSpecs(extra));
+            }
+            methods.add(startSetter(extra, param.build())
+                    .addStatement("$L($L, $L)", getCompactPut(extra), i, extra.getVariableName())
+                    .addStatement("return this")
+                    .build());
+        }
+        CodeBlock.Builder table = CodeBlock.builder()
+                .add("new $T($T.class,\n$>$>", RuntimeTypes.EXTRAS_TABLE, className)
+                .add("new $T[] {$L},\n", String.class, keys.build())
+                .add("new $T[] {$L},\n", String.class, names.build())
+                .add("new int[] {$L}", types.build());
+        if (activity.getDebounceMillis() > 0) {
+            table.add(",\n$L", StartActivityWriter.DEBOUNCER);
+        }
+        fields.add(FieldSpec.builder(RuntimeTypes.EXTRAS_TABLE, "TABLE",
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(table.add(")$<$<").build())
+                .build());
+        TypeSpec.Builder builder = TypeSpec.classBuilder(builderName)
+                .superclass(RuntimeTypes.COMPACT_BUILDER)
                 .addFields(fields)
-                .addMethods(methods)
+                .addMethods(methods);
+        return addBuilderModifiers(builder).build();
+    }
+
+    private String getCompactPut(ExtraModel extra) {
+        switch (extra.getType().getKind()) {
+            case BOOLEAN:
+                return "putBoolean";
+            case FLOAT:
+                return "putFloat";
+            case DOUBLE:
+                return "putDouble";
+            case BYTE:
+            case SHORT:
+            case CHAR:
+            case INT:
+            case LONG:
+                return "putLong";
+            default:
+                return "putObject";
+        }
+    }
+
+    private List<AnnotationSpec> getOverrideAnnotations(boolean launcherMethod) {
+        List<AnnotationSpec> annotations = new ArrayList<>();
+        if (staged || launcher && launcherMethod) {
+            annotations.add(AnnotationSpec.builder(Override.class).build());
+        }
+        return annotations;
+    }
+
+    /**
+     * Returns early from a start method when the launch repeats one within
+     * the activity's debounce window, before it's reported as a launch.
+     */
+    static CodeBlock getDebounceCheck(ActivityModel activity) {
+        if (activity.getDebounceMillis() == 0) {
+            return CodeBlock.builder().build();
+        }
+        return CodeBlock.builder()
+                .beginControlFlow("if (!$L.tryLaunch(intent))", StartActivityWriter.DEBOUNCER)
+                .addStatement("return")
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Checks the builder's values before the Intent is built, so in-process
+     * extras compare by their value instead of their handle.
+     */
+    private CodeBlock getValuesDebounceCheck() {
+        if (activity.getDebounceMillis() == 0) {
+            return CodeBlock.builder().build();
+        }
+        return CodeBlock.builder()
+                .beginControlFlow("if (!$L.tryLaunchValues(this))", StartActivityWriter.DEBOUNCER)
+                .addStatement("return")
+                .endControlFlow()
                 .build();
     }
 
-    private void processInstanceFields(List<FieldSpec> fields, List<MethodSpec> methods,
-            CodeBlock.Builder verifyExtraBlocks, CodeBlock.Builder setExtraBlock) {
-        for (VariableElement extra : instanceExtras) {
-            RequestExtra annotation = extra.getAnnotation(RequestExtra.class);
-            // TODO : verify value not set
-            String name = extra.getSimpleName().toString();
-            TypeName extraClassName = getExtraFieldName(extra.asType());
-            FieldSpec nameField = getStaticFinalExtraFieldSpec(name);
-            fields.add(nameField);
+    /**
+     * The debouncer compares a launch with the copy of the last one let
+     * through, a builder without a Context. Primitives are compared directly
+     * so nothing is boxed.
+     */
+    private List<MethodSpec> createDebounceValuesMethods() {
+        List<CodeBlock> comparisons = new ArrayList<>();
+        CodeBlock.Builder copy = CodeBlock.builder()
+                .addStatement("$1T values = new $1T(null)", builderName);
+        for (FieldSpec bits : bitsFields) {
+            comparisons.add(CodeBlock.of("$1N == other.$1N", bits));
+            copy.addStatement("values.$1N = $1N", bits);
+        }
+        for (ExtraModel extra : activity.getExtras()) {
+            comparisons.add(getValueComparison(extra));
+            copy.addStatement("values.$1L = $1L", extra.getVariableName());
+        }
+        CodeBlock same = comparisons.isEmpty() ? CodeBlock.of("true")
+                : CodeBlock.join(comparisons, "\n&& ");
+        return Arrays.asList(
+                MethodSpec.methodBuilder("sameValues")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(boolean.class)
+                        .addParameter(Object.class, "launched")
+                        .addStatement("$1T other = ($1T) launched", builderName)
+                        .addStatement("return $L", same)
+                        .build(),
+                MethodSpec.methodBuilder("copyValues")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(Object.class)
+                        .addCode(copy.build())
+                        .addStatement("return values")
+                        .build());
+    }
 
+    private CodeBlock getValueComparison(ExtraModel extra) {
+        String name = extra.getVariableName();
+        switch (extra.getType().getKind()) {
+            case FLOAT:
+                return CodeBlock.of("$T.compare($L, other.$L) == 0", Float.class, name, name);
+            case DOUBLE:
+                return CodeBlock.of("$T.compare($L, other.$L) == 0", Double.class, name, name);
+            default:
+                if (extra.getType().getKind().isPrimitive()) {
+                    return CodeBlock.of("$L == other.$L", name, name);
+                }
+                return CodeBlock.of("$T.equal($L, other.$L)", RuntimeTypes.LAUNCH_DEBOUNCER,
+                        name, name);
+        }
+    }
+
+    /**
+     * Starts each prefetcher with the builder's values and passes the handle
+     * of its Future along in the Intent.
+     */
+    private CodeBlock getPrefetchStart() {
+        CodeBlock.Builder start = CodeBlock.builder();
+        for (PrefetchModel prefetcher : activity.getPrefetchers()) {
+            CodeBlock.Builder arguments = CodeBlock.builder();
+            for (ExtraModel extra : prefetcher.getParameters()) {
+                arguments.add(arguments.isEmpty() ? "$L" : ", $L", extra.getVariableName());
+            }
+            start.addStatement("intent.putExtra($L, $T.getInstance().prefetch($L($L)))",
+                    getPrefetchKeyName(prefetcher), RuntimeTypes.PREFETCH_CACHE,
+                    StartActivityWriter.getPrefetchMethodName(prefetcher), arguments.build());
+        }
+        return start.build();
+    }
+
+    /**
+     * @return the name of the Builder constant holding the Intent key of the
+     * prefetcher's handle
+     */
+    static String getPrefetchKeyName(PrefetchModel prefetcher) {
+        return "PREFETCH_" + prefetcher.getFieldName().toUpperCase();
+    }
+
+    private CodeBlock getLaunchInstrumentation() {
+        return activity.isInstrumented() ? InstrumentationWriter.onLaunch(className, "intent")
+                : CodeBlock.builder().build();
+    }
+
+    /**
+     * @return the Intent and the keys of the extras whose value the snapshot
+     * holds instead of their handle
+     */
+    private static CodeBlock getSnapshotArgs(MethodSpec getIntent, List<CodeBlock> inProcessKeys) {
+        List<CodeBlock> args = new ArrayList<>();
+        args.add(CodeBlock.of("$N()", getIntent));
+        args.addAll(inProcessKeys);
+        return CodeBlock.join(args, ", ");
+    }
+
+    private void processExtras(List<FieldSpec> fields, List<MethodSpec> methods,
+            CodeBlock.Builder setExtraBlock, List<CodeBlock> inProcessKeys) {
+        for (ExtraModel extra : activity.getExtras()) {
+            CodeBlock key;
+            if (extra.isStaticFinal()) {
+                key = CodeBlock.of("$T.$L", className, extra.getName());
+            } else {
+                // TODO : verify value not set
+                FieldSpec nameField = getStaticFinalExtraFieldSpec(extra.getName());
+                fields.add(nameField);
+                key = CodeBlock.of("$N", nameField);
+            }
+            if (extra.getCodec() != null) {
+                fields.add(FieldSpec.builder(TypeName.get(extra.getCodec()),
+                        getCodecFieldName(extra), Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T()", extra.getCodec())
+                        .build());
+            }
+            TypeName extraClassName = TypeName.get(extra.getType());
             List<AnnotationSpec> annotationsSpecs = getAnnotationsSpecs(extra);
-            FieldSpec field = getFieldSpec(extraClassName, name, annotationsSpecs);
+            FieldSpec field = getFieldSpec(extraClassName, extra.getVariableName(),
+                    annotationsSpecs);
             fields.add(field);
-            ParameterSpec param = ParameterSpec.builder(extraClassName, name)
-                    .addAnnotations(annotationsSpecs)
-                    .build();
-            methods.add(createSetter(toUpperCase(name.charAt(0)) + name.substring(1),
-                    field, param));
-            if (isNullable(extra)) {
-                setExtraBlock.beginControlFlow("if ($N != null)", field)
-                        .addStatement("intent.putExtra($N, $N)",
-                                nameField, field)
+            if (extra.isInProcess()) {
+                fields.add(FieldSpec.builder(long.class, getHandleName(extra), Modifier.PRIVATE)
+                        .build());
+                inProcessKeys.add(key);
+            }
+            ParameterSpec.Builder param = ParameterSpec.builder(extraClassName,
+                    extra.getVariableName());
+            if (!extra.isStaticFinal()) {
+                param.addAnnotations(annotationsSpecs);
+            }
+            methods.add(createSetter(extra, field, param.build()));
+            CodeBlock.Builder put = CodeBlock.builder();
+            if (extra.isInProcess()) {
+                // stored once per value, not every time an Intent is built from it
+                put.beginControlFlow("if ($L == 0L)", getHandleName(extra))
+                        .addStatement("$L = $T.getInstance().put($N)", getHandleName(extra),
+                                RuntimeTypes.IN_PROCESS_STORE, field)
                         .endControlFlow();
+            }
+            put.addStatement(getPut(key, extra, field));
+            if (extra.isNullable()) {
+                addOptionalPut(setExtraBlock, extra, field, put.build());
             } else {
-                addRequiredVerification(verifyExtraBlocks, extra, field);
-                setExtraBlock.addStatement("intent.putExtra($N, $N)",
-                        nameField, field);
+                setExtraBlock.add(put.build());
             }
         }
     }
 
-    private boolean isNullable(VariableElement extra) {
-        return extra.getAnnotationMirrors().stream()
-                .anyMatch(a -> "Nullable".equals(
-                        a.getAnnotationType().asElement().getSimpleName().toString()));
+    FieldSpec getStaticFinalExtraFieldSpec(String name) {
+        return getKeyFieldSpec("EXTRA_" + name.toUpperCase(), name);
     }
 
-    FieldSpec getStaticFinalExtraFieldSpec(String name) {
-        return FieldSpec.builder(ClassName.get(String.class),
-                "EXTRA_" + name.toUpperCase(),
+    /**
+     * A compact key's constant names what it stands for, which is all there
+     * is to read an Intent's extras by while debugging.
+     */
+    private FieldSpec getKeyFieldSpec(String constantName, String name) {
+        String key = activity.getKey(name);
+        FieldSpec.Builder field = FieldSpec.builder(ClassName.get(String.class), constantName,
                 Modifier.STATIC, Modifier.FINAL)
-                .initializer("\"$L.$L\"", className, name)
-                .build();
+                .initializer("$S", key);
+        String qualifiedName = className + "." + name;
+        if (!key.equals(qualifiedName)) {
+            field.addJavadoc("Compact key of {@code $L}\n", qualifiedName);
+        }
+        return field.build();
+    }
+
+    /**
+     * @return the name of the Builder field holding the {@code InProcessStore}
+     * handle of the extra's value
+     */
+    private static String getHandleName(ExtraModel extra) {
+        return extra.getVariableName() + "Handle";
+    }
+
+    /**
+     * @return the name of the Builder constant holding the extra's codec
+     */
+    static String getCodecFieldName(ExtraModel extra) {
+        return "CODEC_" + extra.getPropertyName().toUpperCase();
+    }
+
+    private List<AnnotationSpec> getAnnotationsSpecs(ExtraModel extra) {
+        return extra.getAnnotations().stream()
+                .map(AnnotationSpec::get)
+                .collect(toList());
     }
 
-    private void processStaticFinalFields(List<FieldSpec> fields, List<MethodSpec> methods,
-            CodeBlock.Builder verifyExtraBlocks, CodeBlock.Builder setExtraBlock) {
-        for (VariableElement extra : staticFinalExtras) {
-            RequestExtra requestExtra = extra.getAnnotation(RequestExtra.class);
-            TypeName extraClassName;
-            try {
-                extraClassName = ClassName.get(requestExtra.value());
-            } catch (MirroredTypeException e) {
-                extraClassName = getExtraFieldName(e.getTypeMirror());
+    /**
+     * Checks every required bit with one comparison per word and only builds
+     * the list of missing extras once the check has already failed.
+     */
+    private void addRequiredVerification(List<FieldSpec> fields, List<MethodSpec> methods,
+            CodeBlock.Builder verifyExtraBlocks) {
+        long[] requiredWords = new long[bitsFields.size()];
+        boolean onlyRequired = true;
+        for (Map.Entry<ExtraModel, Integer> entry : extraBits.entrySet()) {
+            if (entry.getKey().isNullable()) {
+                onlyRequired = false;
+            } else {
+                requiredWords[wordIndex(entry.getValue())] |= 1L << bitIndex(entry.getValue());
             }
-            String name = VariableUtils.getNameFromStaticFinal(extra);
-            String camelName = toLowerCase(name.charAt(0)) + name.substring(1);
-            FieldSpec field = getFieldSpec(extraClassName, camelName, getAnnotationsSpecs(extra));
-            fields.add(field);
-            ParameterSpec param = ParameterSpec.builder(extraClassName, camelName)
+        }
+        if (requiredWords.length == 0 || Arrays.stream(requiredWords).allMatch(w -> w == 0)) {
+            return;
+        }
+
+        CodeBlock.Builder condition = CodeBlock.builder();
+        MethodSpec.Builder missingExtras = MethodSpec.methodBuilder("missingExtras")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(String.class);
+        CodeBlock.Builder missingArgs = CodeBlock.builder();
+        for (int i = 0; i < bitsFields.size(); i++) {
+            FieldSpec bits = bitsFields.get(i);
+            FieldSpec required = FieldSpec.builder(bitsType, bits.name.replace("setBits", "REQUIRED_BITS"),
+                    Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer(bitLiteral(requiredWords[i]))
                     .build();
-            methods.add(createSetter(name, field, param));
-            if (isNullable(extra)) {
-                addOptionalPut(setExtraBlock, extra, field);
+            fields.add(required);
+            if (i > 0) {
+                condition.add(" || ");
+                missingArgs.add(", ");
+            }
+            if (onlyRequired) {
+                condition.add("$N != $N", bits, required);
             } else {
-                addRequiredVerification(verifyExtraBlocks, extra, field);
-                addRequiredPut(setExtraBlock, extra, field);
+                condition.add("($N & $N) != $N", bits, required, required);
             }
+            missingExtras.addParameter(bitsType, bits.name);
+            missingArgs.add("$N", bits);
         }
-    }
 
-    private List<AnnotationSpec> getAnnotationsSpecs(VariableElement extra) {
-        return extra
-                .getAnnotationMirrors().stream()
-                .filter(a -> !typeUtils.isSameType(a.getAnnotationType(), requestExtraType))
-                .map(AnnotationSpec::get)
-                .collect(toList());
+        missingExtras.addStatement("$1T missing = new $1T($2S)", StringBuilder.class,
+                "Missing required extras:");
+        for (Map.Entry<ExtraModel, Integer> entry : extraBits.entrySet()) {
+            if (entry.getKey().isNullable()) {
+                continue;
+            }
+            missingExtras.beginControlFlow("if (($N & $L) == 0)",
+                    bitsFields.get(wordIndex(entry.getValue())), bitMask(entry.getValue()))
+                    .addStatement("missing.append($S)", " " + entry.getKey().getName())
+                    .endControlFlow();
+        }
+        MethodSpec missingExtrasMethod = missingExtras
+                .addStatement("return missing.toString()")
+                .build();
+        methods.add(missingExtrasMethod);
+
+        verifyExtraBlocks.beginControlFlow("if ($L)", condition.build())
+                .addStatement("throw new IllegalStateException($N($L))",
+                        missingExtrasMethod, missingArgs.build())
+                .endControlFlow();
     }
 
-    private void addRequiredVerification(CodeBlock.Builder verifyExtraBlocks, VariableElement extra, FieldSpec field) {
-        verifyExtraBlocks.add(CodeBlock.builder()
-                .beginControlFlow("if ($N == null)", field)
-                .addStatement("throw new IllegalStateException($S)",
-                        extra.getSimpleName() + " must be set")
-                .endControlFlow()
-                .build());
+    private CodeBlock getPut(CodeBlock key, ExtraModel extra, FieldSpec field) {
+        if (fragment) {
+            return getArgumentPut(key, extra, field);
+        }
+        if (extra.isInProcess()) {
+            return CodeBlock.of("intent.putExtra($L, $L)", key, getHandleName(extra));
+        }
+        ExtraType extraType = extra.getExtraType();
+        if (extra.getCodec() != null) {
+            return CodeBlock.of("intent.putExtra($L, $T.encode($L, $N))", key, RuntimeTypes.CODECS,
+                    getCodecFieldName(extra), field);
+        } else if (extraType == ExtraType.ENUM) {
+            return CodeBlock.of("intent.putExtra($L, $N.name().hashCode())", key, field);
+        } else if (extraType.isEncoded()) {
+            return CodeBlock.of("intent.$L($L, $L($N))", extraType.intentPutter(), key,
+                    EncodedExtraWriter.encodeMethodName(extra.getName()), field);
+        } else if (extra.needsArrayListCopy()) {
+            return CodeBlock.of("intent.$L($L, new $T<>($N))", extraType.intentPutter(), key,
+                    ArrayList.class, field);
+        }
+        return CodeBlock.of("intent.$L($L, $N)", extraType.intentPutter(), key, field);
     }
 
-    private void addRequiredPut(CodeBlock.Builder setExtraBlock, VariableElement extra, FieldSpec field) {
-        setExtraBlock.addStatement("intent.putExtra($T.$L, $N)",
-                className, extra.getSimpleName(), field);
+    /**
+     * Like {@link #getPut} but into a fragment's arguments, where the Bundle
+     * putters are named after the type instead of overloaded
+     */
+    private CodeBlock getArgumentPut(CodeBlock key, ExtraModel extra, FieldSpec field) {
+        if (extra.isInProcess()) {
+            return CodeBlock.of("arguments.putLong($L, $L)", key, getHandleName(extra));
+        }
+        ExtraType extraType = extra.getExtraType();
+        if (extra.getCodec() != null) {
+            return CodeBlock.of("arguments.putByteArray($L, $T.encode($L, $N))", key,
+                    RuntimeTypes.CODECS, getCodecFieldName(extra), field);
+        } else if (extraType == ExtraType.ENUM) {
+            return CodeBlock.of("arguments.putInt($L, $N.name().hashCode())", key, field);
+        } else if (extraType.isEncoded()) {
+            return CodeBlock.of("arguments.putBundle($L, $L($N))", key,
+                    EncodedExtraWriter.encodeMethodName(extra.getName()), field);
+        } else if (extra.needsArrayListCopy()) {
+            return CodeBlock.of("arguments.$L($L, new $T<>($N))", extraType.bundlePutter(), key,
+                    ArrayList.class, field);
+        }
+        return CodeBlock.of("arguments.$L($L, $N)", extraType.bundlePutter(), key, field);
     }
 
-    private void addOptionalPut(CodeBlock.Builder setExtraBlock, VariableElement extra, FieldSpec field) {
-        setExtraBlock.beginControlFlow("if ($N != null)", field)
-                .addStatement("intent.putExtra($T.$L, $N)",
-                        className, extra.getSimpleName(), field)
+    private void addOptionalPut(CodeBlock.Builder setExtraBlock, ExtraModel extra,
+            FieldSpec field, CodeBlock put) {
+        if (extraBits.containsKey(extra)) {
+            int bit = extraBits.get(extra);
+            setExtraBlock.beginControlFlow("if (($N & $L) != 0)",
+                    bitsFields.get(wordIndex(bit)), bitMask(bit));
+        } else {
+            setExtraBlock.beginControlFlow("if ($N != null)", field);
+        }
+        setExtraBlock.add(put)
                 .endControlFlow();
     }
 
-    private MethodSpec createSetter(String name, FieldSpec field, ParameterSpec param) {
-        return MethodSpec.methodBuilder("set" + name)
-                .addModifiers(Modifier.PUBLIC)
-                .addParameter(param)
-                .addStatement("this.$N = $N", field, param)
+    private MethodSpec createSetter(ExtraModel extra, FieldSpec field, ParameterSpec param) {
+        MethodSpec.Builder setter = startSetter(extra, param)
+                .addStatement("this.$N = $N", field, param);
+        if (extra.isInProcess()) {
+            // a new value is stored by the next Intent, so one that's replaced before
+            // then never takes up an entry
+            setter.addStatement("this.$L = 0L", getHandleName(extra));
+        }
+        if (extraBits.containsKey(extra)) {
+            int bit = extraBits.get(extra);
+            FieldSpec bits = bitsFields.get(wordIndex(bit));
+            if (param.type.isPrimitive()) {
+                setter.addStatement("this.$N |= $L", bits, bitMask(bit));
+            } else {
+                // a required object set back to null is missing again
+                setter.addStatement("this.$1N = $2N != null ? $1N | $3L : $1N & ~$3L",
+                        bits, param, bitMask(bit));
+            }
+        }
+        return setter
                 .addStatement("return this")
-                .returns(builderName)
                 .build();
     }
 
+    /**
+     * @return the setter's signature, with its step method declared and the
+     * null check of a required staged extra already added
+     */
+    private MethodSpec.Builder startSetter(ExtraModel extra, ParameterSpec param) {
+        String name = extra.getPropertyName();
+        TypeName returnType = getSetterReturnType(extra);
+        MethodSpec.Builder setter = MethodSpec.methodBuilder("set" + name)
+                .addAnnotations(getOverrideAnnotations(false))
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(param);
+        if (staged) {
+            stepMethods.get(requiredExtras.contains(extra) ? getStepName(extra) : readyName)
+                    .add(MethodSpec.methodBuilder("set" + name)
+                            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                            .addParameter(param)
+                            .returns(returnType)
+                            .build());
+            if (requiredExtras.contains(extra) && !param.type.isPrimitive()) {
+                // fails where the extra is set rather than in the started activity
+                setter.beginControlFlow("if ($N == null)", param)
+                        .addStatement("throw new $T($S)", NullPointerException.class,
+                                param.name + " == null")
+                        .endControlFlow();
+            }
+        }
+        addIntDefCheck(setter, extra, param);
+        return setter.returns(returnType);
+    }
+
+    /**
+     * Rejects a value its {@code @IntDef} doesn't allow at the call site,
+     * like lint does for constants, so computed values are covered too.
+     */
+    private void addIntDefCheck(MethodSpec.Builder setter, ExtraModel extra,
+            ParameterSpec param) {
+        List<Integer> values = extra.getIntDefValues();
+        if (values.isEmpty()) {
+            return;
+        }
+        String message = param.name + (extra.isIntDefFlag() ? " has flags outside "
+                : " isn't one of ") + values + ": ";
+        setter.beginControlFlow("if ($L)", getIntDefViolation(extra, param.name))
+                .addStatement("throw new $T($S + $N)", IllegalArgumentException.class, message,
+                        param)
+                .endControlFlow();
+    }
+
+    /**
+     * @return the condition that the int in the variable isn't allowed by the
+     * extra's {@code @IntDef}, which has to have values
+     */
+    static CodeBlock getIntDefViolation(ExtraModel extra, String variable) {
+        List<Integer> values = extra.getIntDefValues();
+        CodeBlock.Builder condition = CodeBlock.builder();
+        if (extra.isIntDefFlag()) {
+            int mask = 0;
+            for (int value : values) {
+                mask |= value;
+            }
+            condition.add("($L & ~0x$L) != 0", variable, Integer.toHexString(mask));
+        } else {
+            for (int value : values) {
+                condition.add(condition.isEmpty() ? "$L != $L" : " && $L != $L", variable, value);
+            }
+        }
+        return condition.build();
+    }
+
     private FieldSpec getFieldSpec(TypeName extraClassName, String camelName,
             List<AnnotationSpec> annotationSpecs) {
         return FieldSpec.builder(extraClassName, camelName)
@@ -220,13 +835,22 @@ class BuilderWriter {
                 .build();
     }
 
-    private TypeName getExtraFieldName(TypeMirror typeMirror) {
-        TypeKind kind = typeMirror.getKind();
-        if (!kind.isPrimitive()) {
-            return ClassName.get(typeMirror);
-        } else {
-            return ClassName.get(typeUtils.boxedClass((PrimitiveType) typeMirror));
-        }
+    private int wordIndex(int bit) {
+        return bitsType == TypeName.INT ? 0 : bit / Long.SIZE;
+    }
+
+    private int bitIndex(int bit) {
+        return bitsType == TypeName.INT ? bit : bit % Long.SIZE;
+    }
+
+    private String bitMask(int bit) {
+        return bitLiteral(1L << bitIndex(bit));
+    }
+
+    private String bitLiteral(long word) {
+        return bitsType == TypeName.INT
+                ? "0x" + Integer.toHexString((int) word)
+                : "0x" + Long.toHexString(word) + "L";
     }
 
 }
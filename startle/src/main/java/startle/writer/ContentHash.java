@@ -0,0 +1,45 @@
+package startle.writer;
+
+import com.squareup.javapoet.JavaFile;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stamps generated files with a hash of their code. The code only depends
+ * on the annotated sources, so the same inputs give the same bytes on every
+ * machine and a changed hash means the generated API or behavior changed.
+ */
+final class ContentHash {
+    static final String HEADER = "Generated by Startle. Do not edit.";
+    static final String PREFIX = "content-hash: sha256:";
+
+    private ContentHash() {
+    }
+
+    /**
+     * @return the file's code after a header comment holding its hash, which
+     * renders the file once rather than hashing and writing it separately
+     */
+    static String stamp(JavaFile javaFile) {
+        String code = javaFile.toString();
+        return "// " + HEADER + "\n// " + PREFIX + hash(code) + "\n" + code;
+    }
+
+    static String hash(String source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to have SHA-256
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(source.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
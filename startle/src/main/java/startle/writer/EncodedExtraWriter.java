@@ -0,0 +1,119 @@
+package startle.writer;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+import startle.model.ExtraModel;
+import startle.model.ExtraType;
+
+import static startle.StringUtils.capitalize;
+
+/**
+ * Writes the static methods that convert the {@link ExtraType#isEncoded()}
+ * extras to and from the nested Bundle they travel in, and the lookup of an
+ * {@link ExtraType#ENUM} extra's constant by the hash it travels as.
+ */
+class EncodedExtraWriter {
+    private static final ClassName BUNDLE = ClassName.get("android.os", "Bundle");
+
+    static String encodeMethodName(String name) {
+        return "encode" + capitalize(name);
+    }
+
+    static String decodeMethodName(String name) {
+        return "decode" + capitalize(name);
+    }
+
+    /**
+     * A switch on the hash of each constant's name, so reading the extra
+     * neither copies {@code values()} nor looks the name up in a map. A hash
+     * without a constant, like the 0 of an absent extra, reads as null.
+     */
+    MethodSpec createEnumDecodeMethod(ExtraModel extra) {
+        TypeName enumType = TypeName.get(extra.getType());
+        MethodSpec.Builder method = MethodSpec.methodBuilder(decodeMethodName(extra.getName()))
+                .addModifiers(Modifier.STATIC)
+                .addParameter(int.class, "hash")
+                .returns(enumType)
+                .beginControlFlow("switch (hash)");
+        for (String constant : extra.getEnumConstants()) {
+            method.addStatement("case $L: return $T.$L", constant.hashCode(), enumType, constant);
+        }
+        return method.addStatement("default: return null")
+                .endControlFlow()
+                .build();
+    }
+
+    MethodSpec createEncodeMethod(ExtraModel extra) {
+        String name = extra.getName();
+        ExtraType extraType = extra.getExtraType();
+        ParameterSpec value = ParameterSpec.builder(TypeName.get(extra.getType()), name).build();
+        MethodSpec.Builder method = MethodSpec.methodBuilder(encodeMethodName(name))
+                .addModifiers(Modifier.STATIC)
+                .addParameter(value)
+                .returns(BUNDLE);
+        if (extraType == ExtraType.SPARSE_PARCELABLE_ARRAY) {
+            return method.addStatement("$T bundle = new $T()", BUNDLE, BUNDLE)
+                    .addStatement("bundle.$L($S, $N)", extraType.bundlePutter(), name, value)
+                    .addStatement("return bundle")
+                    .build();
+        }
+        TypeName valueType = getMapValueTypeName(extra.getType());
+        ExtraType valueExtraType = extra.getMapValueType();
+        return method.addStatement("$T bundle = new $T($N.size())", BUNDLE, BUNDLE, value)
+                .beginControlFlow("for ($T entry : $N.entrySet())",
+                        ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                                ClassName.get(String.class), valueType), value)
+                .addStatement("bundle.$L(entry.getKey(), entry.getValue())",
+                        valueExtraType.bundlePutter())
+                .endControlFlow()
+                .addStatement("return bundle")
+                .build();
+    }
+
+    MethodSpec createDecodeMethod(ExtraModel extra) {
+        String name = extra.getName();
+        ExtraType extraType = extra.getExtraType();
+        MethodSpec.Builder method = MethodSpec.methodBuilder(decodeMethodName(name))
+                .addModifiers(Modifier.STATIC)
+                .addParameter(BUNDLE, "bundle")
+                .returns(TypeName.get(extra.getType()))
+                .beginControlFlow("if (bundle == null)")
+                .addStatement("return null")
+                .endControlFlow();
+        if (extraType == ExtraType.SPARSE_PARCELABLE_ARRAY) {
+            return method.addStatement("return bundle.$L($S)", extraType.bundleGetter(), name)
+                    .build();
+        }
+        TypeName valueType = getMapValueTypeName(extra.getType());
+        ExtraType valueExtraType = extra.getMapValueType();
+        TypeName mapType = ParameterizedTypeName.get(ClassName.get(HashMap.class),
+                ClassName.get(String.class), valueType);
+        method.addStatement("$T $N = new $T(bundle.size())", mapType, name, mapType)
+                .beginControlFlow("for (String key : bundle.keySet())");
+        if (valueExtraType == ExtraType.PARCELABLE) {
+            method.addStatement("$N.put(key, ($T) bundle.$L(key))",
+                    name, valueType, valueExtraType.bundleGetter());
+        } else {
+            method.addStatement("$N.put(key, bundle.$L(key))",
+                    name, valueExtraType.bundleGetter());
+        }
+        return method.endControlFlow()
+                .addStatement("return $N", name)
+                .build();
+    }
+
+    private TypeName getMapValueTypeName(TypeMirror type) {
+        return TypeName.get(((DeclaredType) type).getTypeArguments().get(1));
+    }
+}
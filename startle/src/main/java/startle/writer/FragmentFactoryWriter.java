@@ -0,0 +1,96 @@
+package startle.writer;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * Writes a {@code FragmentFactory} that creates the module's fragments with
+ * a String switch on their class name instead of the reflection the default
+ * factory uses. Any other class goes to the delegate, like another module's
+ * factory, or to the default factory without one.
+ */
+public class FragmentFactoryWriter {
+    public static final String PACKAGE = "startle.fragments";
+    public static final String AGGREGATE_NAME = "StartleFragmentFactory";
+
+    private static final ClassName FRAGMENT_FACTORY =
+            ClassName.get("androidx.fragment.app", "FragmentFactory");
+    private static final ClassName FRAGMENT = ClassName.get("androidx.fragment.app", "Fragment");
+
+    private final ClassName className;
+    /** Binary name, which is what FragmentManager asks for, to the fragment */
+    private final SortedMap<String, ClassName> fragments;
+
+    public FragmentFactoryWriter(String simpleName, SortedMap<String, ClassName> fragments) {
+        this.className = ClassName.get(PACKAGE, simpleName);
+        this.fragments = fragments;
+    }
+
+    public JavaFile getJavaFile() {
+        return JavaFile.builder(PACKAGE, getClassSpec())
+                .build();
+    }
+
+    /**
+     * @return the code of {@link #getJavaFile()} under its content hash
+     */
+    public String getSource() {
+        return ContentHash.stamp(getJavaFile());
+    }
+
+    public String getSourceFileName() {
+        return className.toString();
+    }
+
+    private TypeSpec getClassSpec() {
+        FieldSpec delegate = FieldSpec.builder(FRAGMENT_FACTORY, "delegate",
+                Modifier.PRIVATE, Modifier.FINAL)
+                .build();
+        return TypeSpec.classBuilder(className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .superclass(FRAGMENT_FACTORY)
+                .addField(delegate)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addStatement("this(null)")
+                        .build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addJavadoc("@param delegate creates the fragments this factory doesn't"
+                                + " know, or null for the default factory\n")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(FRAGMENT_FACTORY, "delegate")
+                        .addStatement("this.$N = $N", delegate, delegate)
+                        .build())
+                .addMethod(createInstantiateMethod(delegate))
+                .build();
+    }
+
+    private MethodSpec createInstantiateMethod(FieldSpec delegate) {
+        CodeBlock.Builder lookup = CodeBlock.builder()
+                .beginControlFlow("switch (className)");
+        for (Map.Entry<String, ClassName> fragment : fragments.entrySet()) {
+            lookup.addStatement("case $S: return new $T()", fragment.getKey(),
+                    fragment.getValue());
+        }
+        lookup.addStatement("default: return $N != null ? $N.instantiate(classLoader, className)"
+                        + " : super.instantiate(classLoader, className)", delegate, delegate)
+                .endControlFlow();
+        return MethodSpec.methodBuilder("instantiate")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ClassLoader.class, "classLoader")
+                .addParameter(String.class, "className")
+                .returns(FRAGMENT)
+                .addCode(lookup.build())
+                .build();
+    }
+}
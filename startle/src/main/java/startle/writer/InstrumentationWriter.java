@@ -0,0 +1,30 @@
+package startle.writer;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Writes the calls into startle-runtime's {@code LaunchMonitor}. They're
+ * only generated when the runtime is on the classpath and cost a volatile
+ * read while no listener is registered.
+ */
+class InstrumentationWriter {
+    static CodeBlock onLaunch(TypeName target, String intent) {
+        return callMonitor("onLaunch", target, intent);
+    }
+
+    static CodeBlock onBind(TypeName target, String intent) {
+        return callMonitor("onBind", target, intent);
+    }
+
+    private static CodeBlock callMonitor(String method, TypeName target, String intent) {
+        return CodeBlock.builder()
+                .addStatement("$T launchListener = $T.getListener()",
+                        RuntimeTypes.LAUNCH_LISTENER, RuntimeTypes.LAUNCH_MONITOR)
+                .beginControlFlow("if (launchListener != null)")
+                .addStatement("$T.$L(launchListener, $T.class, $L)",
+                        RuntimeTypes.LAUNCH_MONITOR, method, target, intent)
+                .endControlFlow()
+                .build();
+    }
+}
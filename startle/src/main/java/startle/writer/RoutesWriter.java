@@ -0,0 +1,240 @@
+package startle.writer;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.lang.model.element.Modifier;
+
+import startle.annotation.RouteShard;
+import startle.model.DeepLinkPattern;
+
+/**
+ * Writes a class that looks up the {@code ROUTE} of an activity by its route
+ * name with a String switch, so a lookup is a hash and an equals check with
+ * no allocation or reflection. Deep links are matched by a trie of their
+ * path segments unrolled into nested ifs, so a path is scanned once no
+ * matter how many patterns there are.
+ */
+public class RoutesWriter {
+    public static final String PACKAGE = "startle.routes";
+    public static final String AGGREGATE_NAME = "StartleRoutes";
+
+    private final ClassName className;
+    /** Activities with a route or deep links, listed in a shard */
+    private final Collection<ClassName> activities;
+    /** Route name to the Start class holding its factory */
+    private final SortedMap<String, ClassName> routes;
+    private final TrieNode deepLinks = new TrieNode();
+    private final boolean shard;
+
+    /**
+     * @param deepLinks deep links that each match different paths
+     * @param shard true to write a library module's contribution instead of
+     *              the app's {@code StartleRoutes}
+     */
+    public RoutesWriter(String simpleName, Collection<ClassName> activities,
+            SortedMap<String, ClassName> routes, List<DeepLink> deepLinks, boolean shard) {
+        this.className = ClassName.get(PACKAGE, simpleName);
+        this.activities = activities;
+        this.routes = routes;
+        this.shard = shard;
+        for (DeepLink deepLink : deepLinks) {
+            this.deepLinks.add(deepLink);
+        }
+    }
+
+    public JavaFile getJavaFile() {
+        return JavaFile.builder(PACKAGE, getClassSpec())
+                .build();
+    }
+
+    /**
+     * @return the code of {@link #getJavaFile()} under its content hash
+     */
+    public String getSource() {
+        return ContentHash.stamp(getJavaFile());
+    }
+
+    public String getSourceFileName() {
+        return className.toString();
+    }
+
+    private TypeSpec getClassSpec() {
+        TypeSpec.Builder type = TypeSpec.classBuilder(className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build())
+                .addMethod(createGetMethod())
+                .addMethod(createDispatchMethod());
+        if (shard) {
+            type.addAnnotation(createShardAnnotation());
+        }
+        return type.build();
+    }
+
+    private MethodSpec createGetMethod() {
+        CodeBlock.Builder lookup = CodeBlock.builder()
+                .beginControlFlow("switch (route)");
+        for (Map.Entry<String, ClassName> route : routes.entrySet()) {
+            lookup.addStatement("case $S: return $T.ROUTE", route.getKey(), route.getValue());
+        }
+        lookup.addStatement("default: return null")
+                .endControlFlow();
+        return MethodSpec.methodBuilder("get")
+                .addJavadoc("@return the factory of the activity with the route or null if"
+                        + " there is none\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(String.class, "route")
+                .returns(ParameterizedTypeName.get(RuntimeTypes.ROUTE_FACTORY,
+                        WildcardTypeName.subtypeOf(Object.class)))
+                .addCode(lookup.build())
+                .build();
+    }
+
+    /**
+     * Only the path is matched, the scheme and host are up to the intent
+     * filters that delivered the link.
+     */
+    private MethodSpec createDispatchMethod() {
+        CodeBlock.Builder match = CodeBlock.builder();
+        if (!deepLinks.isEmpty()) {
+            match.addStatement("$T path = uri.getEncodedPath()", String.class)
+                    .beginControlFlow("if (path == null || !path.startsWith($S))", "/")
+                    .addStatement("return $T.noMatch()", RuntimeTypes.DEEP_LINK_RESULT)
+                    .endControlFlow()
+                    .addStatement("int length = path.length()")
+                    .beginControlFlow("if (length > 1 && path.charAt(length - 1) == '/')")
+                    .addStatement("length--")
+                    .endControlFlow();
+            addTrieMatch(match, deepLinks, null, 0, new ArrayList<String>());
+        }
+        match.addStatement("return $T.noMatch()", RuntimeTypes.DEEP_LINK_RESULT);
+        return MethodSpec.methodBuilder("dispatch")
+                .addJavadoc("@return the launcher of the activity whose deep link matches the"
+                        + " uri's path or why none could be launched\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ClassName.get("android.content", "Context"), "context")
+                .addParameter(ClassName.get("android.net", "Uri"), "uri")
+                .returns(RuntimeTypes.DEEP_LINK_RESULT)
+                .addCode(match.build())
+                .build();
+    }
+
+    /**
+     * @param previousEnd the end of the parent's segment, which is where the
+     *                    '/' before this node's segment is, or null at the root
+     * @param captures the start and end variables of every parameter so far
+     */
+    private void addTrieMatch(CodeBlock.Builder match, TrieNode node, String previousEnd,
+            int depth, List<String> captures) {
+        String segmentStart = previousEnd == null ? "1" : previousEnd + " + 1";
+        if (node.terminal != null) {
+            match.beginControlFlow("if ($L >= length)", segmentStart)
+                    .addStatement("return $T.$L(context, uri, path$L)", node.terminal.starter,
+                            StartActivityWriter.getDeepLinkMethodName(node.terminal.index),
+                            captures.isEmpty() ? "" : ", " + String.join(", ", captures))
+                    .endControlFlow();
+        }
+        if (node.literals.isEmpty() && node.parameter == null) {
+            return;
+        }
+        String start = "start" + depth;
+        String end = "end" + depth;
+        match.beginControlFlow("if ($L < length)", segmentStart)
+                .addStatement("int $L = $L", start, segmentStart)
+                .addStatement("int $L = $T.segmentEnd(path, $L, length)", end,
+                        RuntimeTypes.DEEP_LINK_PARSER, start);
+        for (Map.Entry<String, TrieNode> literal : node.literals.entrySet()) {
+            match.beginControlFlow("if ($T.segmentEquals(path, $L, $L, $S))",
+                    RuntimeTypes.DEEP_LINK_PARSER, start, end, literal.getKey());
+            addTrieMatch(match, literal.getValue(), end, depth + 1, captures);
+            match.endControlFlow();
+        }
+        if (node.parameter != null) {
+            List<String> parameterCaptures = new ArrayList<>(captures);
+            parameterCaptures.add(start);
+            parameterCaptures.add(end);
+            match.beginControlFlow("if ($L > $L)", end, start);
+            addTrieMatch(match, node.parameter, end, depth + 1, parameterCaptures);
+            match.endControlFlow();
+        }
+        match.endControlFlow();
+    }
+
+    private AnnotationSpec createShardAnnotation() {
+        AnnotationSpec.Builder annotation = AnnotationSpec.builder(RouteShard.class);
+        for (ClassName activity : activities) {
+            annotation.addMember("activities", "$T.class", activity);
+        }
+        return annotation.build();
+    }
+
+    /**
+     * A deep link pattern and the {@code Start} class converting its
+     * parameters.
+     */
+    public static final class DeepLink {
+        private final DeepLinkPattern pattern;
+        private final ClassName starter;
+        private final int index;
+
+        /**
+         * @param index the position of the pattern in its activity's deep links
+         */
+        public DeepLink(DeepLinkPattern pattern, ClassName starter, int index) {
+            this.pattern = pattern;
+            this.starter = starter;
+            this.index = index;
+        }
+    }
+
+    private static final class TrieNode {
+        /** Sorted so the generated checks don't depend on declaration order */
+        final SortedMap<String, TrieNode> literals = new TreeMap<>();
+        TrieNode parameter;
+        DeepLink terminal;
+
+        void add(DeepLink deepLink) {
+            TrieNode node = this;
+            for (int i = 0; i < deepLink.pattern.getSegments().size(); i++) {
+                if (deepLink.pattern.getParameter(i) != null) {
+                    if (node.parameter == null) {
+                        node.parameter = new TrieNode();
+                    }
+                    node = node.parameter;
+                } else {
+                    String segment = deepLink.pattern.getSegments().get(i);
+                    TrieNode child = node.literals.get(segment);
+                    if (child == null) {
+                        child = new TrieNode();
+                        node.literals.put(segment, child);
+                    }
+                    node = child;
+                }
+            }
+            if (node.terminal != null) {
+                throw new IllegalStateException("Deep links " + node.terminal.pattern
+                        + " and " + deepLink.pattern + " match the same paths");
+            }
+            node.terminal = deepLink;
+        }
+
+        boolean isEmpty() {
+            return terminal == null && literals.isEmpty() && parameter == null;
+        }
+    }
+}
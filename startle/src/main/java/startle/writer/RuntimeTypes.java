@@ -0,0 +1,32 @@
+package startle.writer;
+
+import com.squareup.javapoet.ClassName;
+
+/**
+ * Classes of the optional startle-runtime library that generated code calls.
+ */
+final class RuntimeTypes {
+    static final String PACKAGE = "startle.runtime";
+
+    static final ClassName IN_PROCESS_STORE = ClassName.get(PACKAGE, "InProcessStore");
+    static final ClassName LAUNCH_MONITOR = ClassName.get(PACKAGE, "LaunchMonitor");
+    static final ClassName LAUNCH_LISTENER = ClassName.get(PACKAGE, "LaunchListener");
+    static final ClassName ROUTE_FACTORY = ClassName.get(PACKAGE, "RouteFactory");
+    static final ClassName LAUNCHER = ClassName.get(PACKAGE, "Launcher");
+    static final ClassName LAUNCH_SNAPSHOT = ClassName.get(PACKAGE, "LaunchSnapshot");
+    static final ClassName LAUNCH_DEBOUNCER = ClassName.get(PACKAGE, "LaunchDebouncer");
+    static final ClassName PREFETCH_CACHE = ClassName.get(PACKAGE, "PrefetchCache");
+    static final ClassName RETAINED_EXTRAS = ClassName.get(PACKAGE, "RetainedExtras");
+    static final ClassName INTENT_LAUNCHER = ClassName.get(PACKAGE, "IntentLauncher");
+    static final ClassName DEEP_LINK_RESULT = ClassName.get(PACKAGE, "DeepLinkResult");
+    static final ClassName DEEP_LINK_PARSER = ClassName.get(PACKAGE, "DeepLinkParser");
+    static final ClassName LAZY = ClassName.get(PACKAGE, "Lazy");
+    static final ClassName ASYNC_BINDING = ClassName.get(PACKAGE, "AsyncBinding");
+    static final ClassName BIND_CALLBACK = ClassName.get(PACKAGE, "BindCallback");
+    static final ClassName CODECS = ClassName.get(PACKAGE, "Codecs");
+    static final ClassName EXTRAS_TABLE = ClassName.get(PACKAGE, "ExtrasTable");
+    static final ClassName COMPACT_BUILDER = ClassName.get(PACKAGE, "CompactBuilder");
+
+    private RuntimeTypes() {
+    }
+}
@@ -1,186 +1,834 @@
 package startle.writer;
 
+import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
-import javax.annotation.Nonnull;
 import javax.lang.model.element.Modifier;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
-import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeKind;
-import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
-import javax.lang.model.util.Types;
 
-import startle.VariableUtils;
-import startle.annotation.RequestExtra;
+import startle.model.ActivityModel;
+import startle.model.DeepLinkPattern;
+import startle.model.ExtraModel;
+import startle.model.ExtraType;
+import startle.model.PrefetchModel;
 
 import static startle.StringUtils.capitalize;
 
 public class StartActivityWriter {
     private static final String PREFIX = "Start";
+    private static final ClassName BUNDLE = ClassName.get("android.os", "Bundle");
+    /** The activity's {@code LaunchDebouncer} when it has a debounce window */
+    static final String DEBOUNCER = "DEBOUNCER";
 
-    private final TypeElement classElement;
-    private final @Nonnull List<VariableElement> staticFinalExtras;
-    private final @Nonnull List<VariableElement> instanceExtras;
-    private final Elements elementUtils;
-    private final Types typeUtils;
-    private final String packageName;
+    private final ActivityModel activity;
     private final String startName;
     private final ParameterSpec contextParam;
     private final ClassName builderName;
     private final ClassName intentName;
     private final ClassName className;
+    /** The parameter the extras are bound to */
+    private final String target;
 
-    public StartActivityWriter(TypeElement classElement,
-            @Nonnull List<VariableElement> staticFinalExtras,
-            @Nonnull List<VariableElement> instanceExtras,
-            Elements elementUtils, Types typeUtils) {
-        this.classElement = classElement;
-        this.staticFinalExtras = staticFinalExtras;
-        this.instanceExtras = instanceExtras;
-        this.elementUtils = elementUtils;
-        this.typeUtils = typeUtils;
-        this.packageName = getPackageName(classElement);
-        this.startName = PREFIX + classElement.getSimpleName();
+    public StartActivityWriter(ActivityModel activity) {
+        this.activity = activity;
+        this.startName = PREFIX + activity.getSimpleName();
         this.contextParam = ParameterSpec.builder(
                 ClassName.get("android.content", "Context"),
                 "context")
                 .build();
         builderName = ClassName.get(startName, "Builder");
         intentName = ClassName.get("android.content", "Intent");
-        className = ClassName.get(classElement);
+        className = ClassName.get(activity.getElement());
+        target = activity.isFragment() ? "fragment" : "activity";
+    }
+
+    /**
+     * @return the class generated for the activity or fragment
+     */
+    public static ClassName getStartClassName(String packageName, String activityName) {
+        return ClassName.get(packageName, PREFIX + activityName);
     }
 
     public JavaFile getJavaFile() {
-        return JavaFile.builder(packageName, getClassSpec())
+        return JavaFile.builder(activity.getPackageName(), getClassSpec())
                 .build();
     }
 
+    /**
+     * @return the code of {@link #getJavaFile()} under its content hash
+     */
+    public String getSource() {
+        return ContentHash.stamp(getJavaFile());
+    }
+
     public String getSourceFileName() {
-        return packageName + "." + startName;
+        return activity.getPackageName() + "." + startName;
     }
 
     private TypeSpec getClassSpec() {
         List<TypeSpec> innerClasses = new ArrayList<>();
         List<MethodSpec> methods = new ArrayList<>();
-        if (staticFinalExtras.isEmpty() && instanceExtras.isEmpty()) {
+        List<FieldSpec> fields = new ArrayList<>();
+        if (activity.getDebounceMillis() > 0) {
+            fields.add(FieldSpec.builder(RuntimeTypes.LAUNCH_DEBOUNCER, DEBOUNCER,
+                    Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($T.class, $LL)", RuntimeTypes.LAUNCH_DEBOUNCER,
+                            className, activity.getDebounceMillis())
+                    .build());
+        }
+        if (!activity.hasExtras() && !activity.isFragment()) {
             methods.add(createBasicStartActivityMethod());
+            if (!activity.getRoute().isEmpty()) {
+                fields.add(createRouteField(intentName, CodeBlock.of("new $T($N, $T.class)",
+                        intentName, contextParam, className)));
+            }
+            for (int i = 0; i < activity.getDeepLinks().size(); i++) {
+                methods.add(createDeepLinkMethod(i, activity.getDebounceMillis() > 0
+                        ? CodeBlock.of("new $T($N, $T.class, $L)", RuntimeTypes.INTENT_LAUNCHER,
+                                contextParam, className, DEBOUNCER)
+                        : CodeBlock.of("new $T($N, $T.class)", RuntimeTypes.INTENT_LAUNCHER,
+                                contextParam, className)));
+            }
         } else {
-            BuilderWriter builderWriter = new BuilderWriter(classElement,
-                    staticFinalExtras, instanceExtras, elementUtils, typeUtils, builderName);
+            BuilderWriter builderWriter = new BuilderWriter(activity, builderName);
             innerClasses.add(builderWriter.createBuilder());
-            methods.add(createPrepareMethod());
-            if (!instanceExtras.isEmpty()) {
+            innerClasses.addAll(builderWriter.createStepInterfaces());
+            MethodSpec prepareMethod = createPrepareMethod(builderWriter);
+            methods.add(prepareMethod);
+            if (!activity.getRoute().isEmpty()) {
+                fields.add(createRouteField(builderWriter.getEntryType(),
+                        CodeBlock.of("$N($N)", prepareMethod, contextParam)));
+            }
+            for (int i = 0; i < activity.getDeepLinks().size(); i++) {
+                methods.add(createDeepLinkMethod(i, CodeBlock.of("new $T($N)",
+                        builderName, contextParam)));
+            }
+            if (!activity.getInstanceExtras().isEmpty()) {
                 methods.add(createSetExtrasMethod(builderWriter));
             }
-             methods.addAll(createIntentGetterMethods());
+            if (!getInProcessExtras().isEmpty() || !activity.getPrefetchers().isEmpty()) {
+                methods.add(createReleaseExtrasMethod(builderWriter));
+            }
+            if (activity.isValidated() && hasRequiredInstanceExtras()) {
+                methods.add(createMissingExtrasMethod());
+            }
+            if (activity.isAsyncBindable() && !getDeserializedExtras().isEmpty()) {
+                methods.add(createBindExtrasAsyncMethod(builderWriter));
+            }
+            for (PrefetchModel prefetcher : activity.getPrefetchers()) {
+                methods.add(createPrefetchMethod(prefetcher));
+            }
+            methods.addAll(createEncodedExtraMethods());
+            methods.addAll(createIntentGetterMethods());
         }
-        List<VariableElement> extras = new ArrayList<>(staticFinalExtras);
-        extras.addAll(instanceExtras);
         return TypeSpec.classBuilder(startName)
                 .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addFields(fields)
                 .addTypes(innerClasses)
                 .addMethods(methods)
                 .build();
     }
 
+    /**
+     * The factory {@code StartleRoutes} hands out for the activity's route.
+     * A constant so looking a route up doesn't allocate.
+     */
+    private FieldSpec createRouteField(TypeName preparedType, CodeBlock prepare) {
+        TypeName factoryType = ParameterizedTypeName.get(RuntimeTypes.ROUTE_FACTORY, preparedType);
+        TypeSpec factory = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(factoryType)
+                .addMethod(MethodSpec.methodBuilder("getActivityClass")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                WildcardTypeName.subtypeOf(ClassName.get("android.app", "Activity"))))
+                        .addStatement("return $T.class", className)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("prepare")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(contextParam)
+                        .returns(preparedType)
+                        .addStatement("return $L", prepare)
+                        .build())
+                .build();
+        return FieldSpec.builder(factoryType, "ROUTE",
+                Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", factory)
+                .build();
+    }
+
+    /**
+     * @return the name of the method the deep link dispatcher calls for the
+     * activity's deep link at the index
+     */
+    public static String getDeepLinkMethodName(int index) {
+        return "fromDeepLink" + index;
+    }
+
+    /**
+     * Converts the parameters of a deep link the dispatcher matched. The
+     * dispatcher passes the bounds of each path parameter so nothing is
+     * copied out of the path unless the extra is a String.
+     */
+    private MethodSpec createDeepLinkMethod(int index, CodeBlock launcher) {
+        DeepLinkPattern deepLink = activity.getDeepLinks().get(index);
+        ClassName uriName = ClassName.get("android.net", "Uri");
+        MethodSpec.Builder method = MethodSpec.methodBuilder(getDeepLinkMethodName(index))
+                .addJavadoc("Called by {@code StartleRoutes.dispatch} for {@code $L}\n",
+                        deepLink.getPattern())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(RuntimeTypes.DEEP_LINK_RESULT)
+                .addParameter(contextParam)
+                .addParameter(uriName, "uri")
+                .addParameter(String.class, "path");
+        CodeBlock.Builder setters = CodeBlock.builder();
+        for (String parameter : deepLink.getPathParameters()) {
+            ExtraModel extra = getExtra(parameter);
+            String start = parameter + "Start";
+            String end = parameter + "End";
+            method.addParameter(int.class, start)
+                    .addParameter(int.class, end);
+            if (extra.getExtraType().isPrimitive()) {
+                method.beginControlFlow("if (!$T.$L(path, $L, $L))", RuntimeTypes.DEEP_LINK_PARSER,
+                        extra.getExtraType().deepLinkValidator(), start, end)
+                        .addStatement("return $T.invalid($S)", RuntimeTypes.DEEP_LINK_RESULT,
+                                parameter)
+                        .endControlFlow();
+                CodeBlock parsed = CodeBlock.of("$T.$L(path, $L, $L)",
+                        RuntimeTypes.DEEP_LINK_PARSER, extra.getExtraType().deepLinkParser(),
+                        start, end);
+                setters.addStatement("builder.set$L($L)", extra.getPropertyName(),
+                        addIntDefCheck(method, extra, parameter, null, parsed));
+            } else {
+                setters.addStatement("builder.set$L($T.decode(path.substring($L, $L)))",
+                        extra.getPropertyName(), uriName, start, end);
+            }
+        }
+        for (Map.Entry<String, String> query : deepLink.getQueryParameters().entrySet()) {
+            ExtraModel extra = getExtra(query.getValue());
+            String value = query.getValue() + "Value";
+            method.addStatement("$T $L = uri.getQueryParameter($S)", String.class, value,
+                    query.getKey());
+            if (!extra.isNullable()) {
+                method.beginControlFlow("if ($L == null)", value)
+                        .addStatement("return $T.missing($S)", RuntimeTypes.DEEP_LINK_RESULT,
+                                query.getKey())
+                        .endControlFlow();
+            }
+            CodeBlock converted = CodeBlock.of("$L", value);
+            if (extra.getExtraType().isPrimitive()) {
+                method.beginControlFlow("if ($L!$T.$L($L, 0, $L.length()))",
+                        extra.isNullable() ? value + " != null && " : "",
+                        RuntimeTypes.DEEP_LINK_PARSER, extra.getExtraType().deepLinkValidator(),
+                        value, value)
+                        .addStatement("return $T.invalid($S)", RuntimeTypes.DEEP_LINK_RESULT,
+                                query.getKey())
+                        .endControlFlow();
+                converted = addIntDefCheck(method, extra, query.getKey(),
+                        extra.isNullable() ? value : null,
+                        CodeBlock.of("$T.$L($L, 0, $L.length())", RuntimeTypes.DEEP_LINK_PARSER,
+                                extra.getExtraType().deepLinkParser(), value, value));
+            }
+            if (extra.isNullable()) {
+                setters.beginControlFlow("if ($L != null)", value)
+                        .addStatement("builder.set$L($L)", extra.getPropertyName(), converted)
+                        .endControlFlow();
+            } else {
+                setters.addStatement("builder.set$L($L)", extra.getPropertyName(), converted);
+            }
+        }
+        if (activity.hasExtras()) {
+            method.addStatement("$T builder = $L", builderName, launcher)
+                    .addCode(setters.build())
+                    .addStatement("return $T.matched(builder)", RuntimeTypes.DEEP_LINK_RESULT);
+        } else {
+            method.addStatement("return $T.matched($L)", RuntimeTypes.DEEP_LINK_RESULT, launcher);
+        }
+        return method.build();
+    }
+
+    /**
+     * Parses an {@code @IntDef} extra up front so a value outside it makes the
+     * link invalid rather than the setter throw.
+     *
+     * @param nullableValue the query value the parsed one is only read for
+     * if it's non-null, or null if it's always read
+     * @return what to pass to the setter
+     */
+    private CodeBlock addIntDefCheck(MethodSpec.Builder method, ExtraModel extra,
+            String parameter, String nullableValue, CodeBlock parsed) {
+        if (extra.getIntDefValues().isEmpty()) {
+            return parsed;
+        }
+        String local = extra.getVariableName() + "Parsed";
+        if (nullableValue == null) {
+            method.addStatement("int $L = $L", local, parsed)
+                    .beginControlFlow("if ($L)", BuilderWriter.getIntDefViolation(extra, local));
+        } else {
+            method.addStatement("int $L = $L != null ? $L : 0", local, nullableValue, parsed)
+                    .beginControlFlow("if ($L != null && $L)", nullableValue,
+                            BuilderWriter.getIntDefViolation(extra, local));
+        }
+        method.addStatement("return $T.invalid($S)", RuntimeTypes.DEEP_LINK_RESULT, parameter)
+                .endControlFlow();
+        return CodeBlock.of("$L", local);
+    }
+
+    private ExtraModel getExtra(String variableName) {
+        for (ExtraModel extra : activity.getExtras()) {
+            if (extra.getVariableName().equals(variableName)) {
+                return extra;
+            }
+        }
+        throw new IllegalStateException("No extra named " + variableName);
+    }
+
     private MethodSpec createBasicStartActivityMethod() {
-        return MethodSpec.methodBuilder("start" + classElement.getSimpleName())
+        return MethodSpec.methodBuilder("start" + activity.getSimpleName())
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                 .addParameter(contextParam)
                 .addStatement("$1T intent = new $1T($3N, $2T.class)",
                         intentName,
                         className,
                         contextParam)
+                .addCode(BuilderWriter.getDebounceCheck(activity))
+                .addCode(activity.isInstrumented()
+                        ? InstrumentationWriter.onLaunch(className, "intent")
+                        : CodeBlock.builder().build())
                 .addStatement("context.startActivity(intent)")
                 .build();
     }
 
-    private MethodSpec createPrepareMethod() {
-        return MethodSpec.methodBuilder("prepare" + classElement.getSimpleName())
+    private MethodSpec createPrepareMethod(BuilderWriter builderWriter) {
+        MethodSpec.Builder prepare = MethodSpec.methodBuilder("prepare" + activity.getSimpleName())
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .returns(builderName)
-                .addParameter(contextParam)
+                .returns(builderWriter.getEntryType());
+        if (activity.isFragment()) {
+            // built, not started, so there's no Context to start it from
+            return prepare.addStatement("return new $T()", builderName)
+                    .build();
+        }
+        return prepare.addParameter(contextParam)
                 .addStatement("return new $T($N)", builderName, contextParam)
                 .build();
     }
 
     private MethodSpec createSetExtrasMethod(BuilderWriter builderWriter) {
-        ParameterSpec activityParam = ParameterSpec.builder(className, "activity")
+        ParameterSpec activityParam = ParameterSpec.builder(className, target)
                 .build();
-        CodeBlock.Builder setBlock = CodeBlock.builder();
-        for (VariableElement extra : instanceExtras) {
-            FieldSpec extraField = FieldSpec.builder(ClassName.get(extra.asType()),
-                    extra.getSimpleName().toString())
+        if (activity.isFragment()) {
+            return MethodSpec.methodBuilder("setExtras")
+                    .addModifiers(Modifier.STATIC)
+                    .addParameter(activityParam)
+                    .addCode(getArgumentsBundle())
+                    .addCode(getBindCode(builderWriter, this::getTargetField))
                     .build();
-            FieldSpec extraStaticKeyField = builderWriter.getStaticFinalExtraFieldSpec(
-                    extra.getSimpleName().toString());
-            TypeKind kind = extra.asType().getKind();
-            if (kind.isPrimitive()) {
-                String type = extra.asType().toString();
-                setBlock.addStatement("$N.$N = intent.get$LExtra($T.$N, $L)",
-                        activityParam, extraField, capitalize(type),
-                        builderWriter.builderName, extraStaticKeyField, getDefaultValue(kind));
-            } else {
-                setBlock.addStatement("$N.$N = ($T) intent.get$LExtra($T.$N)",
-                        activityParam, extraField, ClassName.get(extra.asType()),
-                        getExtraTypeName(extra.asType()),
-                        builderWriter.builderName, extraStaticKeyField);
-            }
         }
         return MethodSpec.methodBuilder("setExtras")
+                .addAnnotations(getRetainedCastSuppression())
                 .addModifiers(Modifier.STATIC)
                 .addParameter(activityParam)
                 .addStatement("$T intent = $N.getIntent()", intentName, activityParam)
-                .addCode(setBlock.build())
+                .addCode(getExtrasBundle(false))
+                .addCode(getRetainedSlots(false))
+                .addCode(getBindCode(builderWriter, this::getTargetField))
+                .addCode(getPrefetchHandoff())
+                .addCode(activity.isInstrumented()
+                        ? InstrumentationWriter.onBind(className, "intent")
+                        : CodeBlock.builder().build())
+                .build();
+    }
+
+    private List<ExtraModel> getInProcessExtras() {
+        List<ExtraModel> extras = new ArrayList<>();
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            if (extra.isInProcess()) {
+                extras.add(extra);
+            }
+        }
+        return extras;
+    }
+
+    /**
+     * The store holds bound in-process values, and the prefetch cache taken
+     * loads, for a recreated activity until it's told the activity is done
+     * with them.
+     */
+    private MethodSpec createReleaseExtrasMethod(BuilderWriter builderWriter) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("releaseExtras")
+                .addJavadoc("Lets the runtime drop the in-process extras and prefetched loads."
+                        + " Call it from\n{@code onDestroy()} once the $L is $L.\n", target,
+                        activity.isFragment() ? "removed" : "finishing")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(className, target);
+        if (activity.isFragment()) {
+            method.addCode(getArgumentsBundle());
+        } else {
+            method.addStatement("$T intent = activity.getIntent()", intentName)
+                    .addCode(getExtrasBundle(false));
+        }
+        for (ExtraModel extra : getInProcessExtras()) {
+            method.addStatement("$T.getInstance().release(extras.getLong($L, 0L))",
+                    RuntimeTypes.IN_PROCESS_STORE, getKey(builderWriter, extra));
+        }
+        for (PrefetchModel prefetcher : activity.getPrefetchers()) {
+            method.addStatement("$T.getInstance().release(extras.getLong($T.$L, 0L))",
+                    RuntimeTypes.PREFETCH_CACHE, builderName,
+                    BuilderWriter.getPrefetchKeyName(prefetcher));
+        }
+        return method.build();
+    }
+
+    private String getTargetField(ExtraModel extra) {
+        return target + "." + extra.getName();
+    }
+
+    /**
+     * Takes the extras Bundle once instead of going through the Intent for
+     * every extra. An Intent without extras binds like an empty Bundle.
+     *
+     * @param captured true if an anonymous class reads the Bundle too
+     */
+    private CodeBlock getExtrasBundle(boolean captured) {
+        if (activity.getInstanceExtras().isEmpty()) {
+            return CodeBlock.builder().build();
+        }
+        return CodeBlock.builder()
+                .addStatement("$T intentExtras = intent.getExtras()", BUNDLE)
+                .addStatement("$L$T extras = intentExtras != null ? intentExtras : $T.EMPTY",
+                        captured ? "final " : "", BUNDLE, BUNDLE)
+                .build();
+    }
+
+    /**
+     * A fragment's arguments are read in place, {@code getArguments()}
+     * doesn't copy them. A fragment without arguments binds like an empty
+     * Bundle.
+     */
+    private CodeBlock getArgumentsBundle() {
+        return CodeBlock.builder()
+                .addStatement("$T arguments = fragment.getArguments()", BUNDLE)
+                .addStatement("$T extras = arguments != null ? arguments : $T.EMPTY", BUNDLE,
+                        BUNDLE)
+                .build();
+    }
+
+    /**
+     * Takes the slots the activity's decoded extras are kept in across
+     * configuration changes.
+     *
+     * @param captured true if an anonymous class reads the slots too
+     */
+    private CodeBlock getRetainedSlots(boolean captured) {
+        List<ExtraModel> retainedExtras = getRetainedExtras();
+        if (retainedExtras.isEmpty()) {
+            return CodeBlock.builder().build();
+        }
+        return CodeBlock.builder()
+                .addStatement("$LObject[] retained = $T.getInstance().get(intent, $L)",
+                        captured ? "final " : "", RuntimeTypes.RETAINED_EXTRAS,
+                        retainedExtras.size())
+                .build();
+    }
+
+    /**
+     * @return the extras kept across configuration changes, in slot order
+     */
+    private List<ExtraModel> getRetainedExtras() {
+        return activity.isRetained() ? getDeserializedExtras()
+                : Collections.<ExtraModel>emptyList();
+    }
+
+    /**
+     * Casting a slot back to a parameterized type is unchecked, but the slot
+     * only ever holds what was decoded for that extra.
+     */
+    private List<AnnotationSpec> getRetainedCastSuppression() {
+        for (ExtraModel extra : getRetainedExtras()) {
+            if (TypeName.get(extra.getType()) instanceof ParameterizedTypeName) {
+                return Collections.singletonList(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked")
+                        .build());
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * The instance extras that are costly to decode, which make
+     * {@code bindExtrasAsync} worth generating
+     */
+    private List<ExtraModel> getDeserializedExtras() {
+        List<ExtraModel> extras = new ArrayList<>();
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            if (!extra.isInProcess() && !extra.isLazy()
+                    && (extra.getCodec() != null || extra.getExtraType().isDeserialized())) {
+                extras.add(extra);
+            }
+        }
+        return extras;
+    }
+
+    /**
+     * Reads every extra on the executor, since the first read of the copied
+     * extras Bundle unparcels all of it, and binds them together on the main
+     * thread.
+     */
+    private MethodSpec createBindExtrasAsyncMethod(BuilderWriter builderWriter) {
+        ParameterSpec activityParam = ParameterSpec.builder(className, "activity",
+                Modifier.FINAL)
+                .build();
+        TypeSpec.Builder task = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(RuntimeTypes.ASYNC_BINDING.nestedClass("Task"));
+        CodeBlock.Builder bindBlock = CodeBlock.builder();
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            String decoded = getDecodedField(extra);
+            task.addField(TypeName.get(extra.getType()), decoded, Modifier.PRIVATE);
+            bindBlock.addStatement("$N.$L = $L", activityParam, extra.getName(), decoded);
+        }
+        task.addMethod(MethodSpec.methodBuilder("decode")
+                .addAnnotation(Override.class)
+                .addAnnotations(getRetainedCastSuppression())
+                .addModifiers(Modifier.PUBLIC)
+                .addCode(getBindCode(builderWriter, StartActivityWriter::getDecodedField))
+                .build())
+                .addMethod(MethodSpec.methodBuilder("bind")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addCode(bindBlock.build())
+                        .addCode(getPrefetchHandoff())
+                        .addCode(activity.isInstrumented()
+                                ? InstrumentationWriter.onBind(className, "intent")
+                                : CodeBlock.builder().build())
+                        .addStatement("callback.onExtrasBound($N)", activityParam)
+                        .build());
+        return MethodSpec.methodBuilder("bindExtrasAsync")
+                .addJavadoc("Like {@code setExtras} but reads the extras on the executor, where"
+                        + " the Bundle is\nunparceled. The callback is told on the main thread"
+                        + " once they're all bound.\nCancel the returned binding in"
+                        + " {@code onDestroy()}.\n")
+                .addModifiers(Modifier.STATIC)
+                .returns(RuntimeTypes.ASYNC_BINDING)
+                .addParameter(activityParam)
+                .addParameter(Executor.class, "executor")
+                .addParameter(ParameterizedTypeName.get(RuntimeTypes.BIND_CALLBACK,
+                        WildcardTypeName.supertypeOf(className)), "callback", Modifier.FINAL)
+                .addStatement("final $T intent = $N.getIntent()", intentName, activityParam)
+                .addCode(getExtrasBundle(true))
+                .addCode(getRetainedSlots(true))
+                .addStatement("return $T.start(executor, $N, $L)", RuntimeTypes.ASYNC_BINDING,
+                        activityParam, task.build())
                 .build();
     }
 
+    private static String getDecodedField(ExtraModel extra) {
+        return "decoded" + extra.getPropertyName();
+    }
+
+    /**
+     * The loader the builder prefetches with. The bound activity reloads with
+     * it too if the prefetch expired before the activity took it.
+     */
+    private MethodSpec createPrefetchMethod(PrefetchModel prefetcher) {
+        TypeName resultType = TypeName.get(prefetcher.getResultType());
+        MethodSpec.Builder method = MethodSpec.methodBuilder(getPrefetchMethodName(prefetcher))
+                .addModifiers(Modifier.STATIC)
+                .returns(ParameterizedTypeName.get(ClassName.get(Callable.class), resultType));
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        for (ExtraModel extra : prefetcher.getParameters()) {
+            method.addParameter(TypeName.get(extra.getType()), extra.getVariableName(),
+                    Modifier.FINAL);
+            arguments.add(arguments.isEmpty() ? "$L" : ", $L", extra.getVariableName());
+        }
+        TypeSpec loader = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Callable.class),
+                        resultType))
+                .addMethod(MethodSpec.methodBuilder("call")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(resultType)
+                        .addException(Exception.class)
+                        .addStatement("return $T.$L($L)", className,
+                                prefetcher.getMethodName(), arguments.build())
+                        .build())
+                .build();
+        return method.addStatement("return $L", loader)
+                .build();
+    }
+
+    static String getPrefetchMethodName(PrefetchModel prefetcher) {
+        return "prefetch" + capitalize(prefetcher.getFieldName());
+    }
+
+    /**
+     * Hands each prefetcher's Future to the activity, which starts loading
+     * now if the launch's prefetch is gone.
+     */
+    private CodeBlock getPrefetchHandoff() {
+        CodeBlock.Builder handoff = CodeBlock.builder();
+        for (PrefetchModel prefetcher : activity.getPrefetchers()) {
+            CodeBlock.Builder arguments = CodeBlock.builder();
+            for (ExtraModel extra : prefetcher.getParameters()) {
+                arguments.add(arguments.isEmpty() ? "activity.$L" : ", activity.$L",
+                        extra.getName());
+            }
+            handoff.addStatement("activity.$L = $T.getInstance().take(\n$>$>"
+                            + "extras.getLong($T.$L, 0L), $L($L))$<$<",
+                    prefetcher.getFieldName(), RuntimeTypes.PREFETCH_CACHE, builderName,
+                    BuilderWriter.getPrefetchKeyName(prefetcher),
+                    getPrefetchMethodName(prefetcher), arguments.build());
+        }
+        return handoff.build();
+    }
+
+    private CodeBlock getKey(BuilderWriter builderWriter, ExtraModel extra) {
+        return CodeBlock.of("$T.$N", builderName,
+                builderWriter.getStaticFinalExtraFieldSpec(extra.getName()));
+    }
+
+    private CodeBlock getBundleExtraBlock(ExtraModel extra, CodeBlock key) {
+        if (extra.isInProcess()) {
+            // a lost optional value reads as null, a lost required one is an error. Once
+            // bound the field holds it, so the store no longer has to.
+            return CodeBlock.of("($T) $T.getInstance().$L(extras.getLong($L, 0L)$L)",
+                    extra.getType(), RuntimeTypes.IN_PROCESS_STORE,
+                    extra.isNullable() ? "bind" : "bindRequired", key,
+                    extra.isNullable() ? "" : CodeBlock.of(", $S", extra.getName()));
+        }
+        ExtraType extraType = extra.getExtraType();
+        if (extra.getCodec() != null) {
+            return CodeBlock.of("$T.decode($T.$L, extras.getByteArray($L))", RuntimeTypes.CODECS,
+                    builderName, BuilderWriter.getCodecFieldName(extra), key);
+        } else if (extraType == ExtraType.ENUM) {
+            return CodeBlock.of("$L(extras.getInt($L))",
+                    EncodedExtraWriter.decodeMethodName(extra.getName()), key);
+        } else if (extraType.isEncoded()) {
+            return CodeBlock.of("$L(extras.getBundle($L))",
+                    EncodedExtraWriter.decodeMethodName(extra.getName()), key);
+        } else if (extraType.isPrimitive()) {
+            return CodeBlock.of("extras.$L($L, $L)", extraType.bundleGetter(), key,
+                    getDefaultValue(extra.getType().getKind()));
+        } else if (extraType == ExtraType.SERIALIZABLE || extraType == ExtraType.PARCELABLE) {
+            return CodeBlock.of("($T) extras.$L($L)", extra.getType(), extraType.bundleGetter(),
+                    key);
+        }
+        return CodeBlock.of("extras.$L($L)", extraType.bundleGetter(), key);
+    }
+
+    private List<MethodSpec> createEncodedExtraMethods() {
+        EncodedExtraWriter encodedExtraWriter = new EncodedExtraWriter();
+        List<MethodSpec> methods = new ArrayList<>();
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            ExtraType extraType = extra.getExtraType();
+            if (extraType != null && extraType.isEncoded() && !extra.isInProcess()) {
+                methods.add(encodedExtraWriter.createEncodeMethod(extra));
+                methods.add(encodedExtraWriter.createDecodeMethod(extra));
+            }
+            if (extraType == ExtraType.ENUM && !extra.isInProcess()) {
+                methods.add(encodedExtraWriter.createEnumDecodeMethod(extra));
+            }
+        }
+        return methods;
+    }
+
     private List<MethodSpec> createIntentGetterMethods() {
         List<MethodSpec> getters = new ArrayList<>();
-        for (VariableElement staticField : staticFinalExtras) {
-            RequestExtra requestExtra = staticField.getAnnotation(RequestExtra.class);
-            TypeMirror extraType;
-            try {
-                extraType = elementUtils.getTypeElement(requestExtra.value().getCanonicalName()).asType();
-            } catch (MirroredTypeException e) {
-                extraType = e.getTypeMirror();
-            }
-            TypeName returnClass = ClassName.get(extraType);
-            getters.add(MethodSpec.methodBuilder("get" + capitalize(VariableUtils.getNameFromStaticFinal(staticField)))
+        for (ExtraModel extra : activity.getStaticFinalExtras()) {
+            getters.add(MethodSpec.methodBuilder("get" + extra.getPropertyName())
                     .addModifiers(Modifier.STATIC)
                     .addParameter(intentName, "intent")
-                    .addCode(getterBlock(staticField, extraType))
-                    .returns(returnClass)
+                    .addStatement("return $L", getExtraBlock(extra,
+                            CodeBlock.of("$T.$L", className, extra.getName())))
+                    .returns(TypeName.get(extra.getType()))
                     .build());
         }
         return getters;
     }
 
-    private CodeBlock getterBlock(VariableElement var, TypeMirror type) {
-        if (type.getKind().isPrimitive()) {
-            return CodeBlock.builder()
-                    .addStatement("return intent.get$LExtra($T.$N, $L)",
-                            getExtraTypeName(type), className, var.getSimpleName(),
-                            getDefaultValue(type.getKind()))
-                    .build();
-        } else {
-            return CodeBlock.builder()
-                    .addStatement("return ($T) intent.get$LExtra($T.$N)",
-                            type, getExtraTypeName(type), className, var.getSimpleName())
-                    .build();
+    private CodeBlock getBindBlock(ExtraModel extra, CodeBlock key) {
+        if (extra.isLazy()) {
+            // read on first use instead of in onCreate
+            return CodeBlock.of("$T.$L(extras, $L)", RuntimeTypes.LAZY,
+                    extra.getExtraType() == ExtraType.PARCELABLE ? "parcelable" : "serializable",
+                    key);
+        }
+        return getBundleExtraBlock(extra, key);
+    }
+
+    /**
+     * Reads the bound extras from one {@code extras} Bundle. Unless
+     * validation is off, each required extra that's absent sets its bit in a
+     * {@code missing} mask and all of them are reported in one exception
+     * after the pass. A required object is checked by what it was read as
+     * and a primitive by whether it was read as its default, so only
+     * {@code Lazy} extras and primitives that equal the default need their
+     * key looked up.
+     *
+     * @param field the variable each extra is read into
+     */
+    private CodeBlock getBindCode(BuilderWriter builderWriter,
+            Function<ExtraModel, String> field) {
+        List<ExtraModel> required = new ArrayList<>();
+        if (activity.isValidated()) {
+            for (ExtraModel extra : activity.getInstanceExtras()) {
+                if (!extra.isNullable()) {
+                    required.add(extra);
+                }
+            }
+        }
+        TypeName maskType = required.size() <= Integer.SIZE ? TypeName.INT : TypeName.LONG;
+        int words = required.isEmpty() ? 0 : maskType == TypeName.INT ? 1
+                : (required.size() + Long.SIZE - 1) / Long.SIZE;
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (int i = 0; i < words; i++) {
+            code.addStatement("$T $L = 0", maskType, getMaskName(words, i));
+        }
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            int bit = required.indexOf(extra);
+            CodeBlock key = getKey(builderWriter, extra);
+            String variable = field.apply(extra);
+            if (bit != -1 && extra.isLazy()) {
+                code.beginControlFlow("if (!extras.containsKey($L))", key)
+                        .addStatement("$L", getMaskUpdate(maskType, words, bit))
+                        .endControlFlow();
+            }
+            int slot = getRetainedExtras().indexOf(extra);
+            if (slot != -1) {
+                // decoded once per Intent, so a recreated activity gets the same value
+                code.beginControlFlow("if (retained[$L] == null)", slot)
+                        .addStatement("retained[$L] = $L", slot, getBindBlock(extra, key))
+                        .endControlFlow()
+                        .addStatement("$L = ($T) retained[$L]", variable, extra.getType(), slot);
+            } else {
+                code.addStatement("$L = $L", variable, getBindBlock(extra, key));
+            }
+            TypeKind kind = extra.getType().getKind();
+            if (bit != -1 && !extra.isLazy() && kind.isPrimitive()) {
+                code.beginControlFlow("if ($L == $L && !extras.containsKey($L))", variable,
+                        getDefaultValue(kind), key)
+                        .addStatement("$L", getMaskUpdate(maskType, words, bit))
+                        .endControlFlow();
+            } else if (bit != -1 && !extra.isLazy()) {
+                code.beginControlFlow("if ($L == null)", variable)
+                        .addStatement("$L", getMaskUpdate(maskType, words, bit))
+                        .endControlFlow();
+            }
+        }
+        if (words > 0) {
+            CodeBlock.Builder condition = CodeBlock.builder();
+            CodeBlock.Builder arguments = CodeBlock.builder();
+            for (int i = 0; i < words; i++) {
+                condition.add(i == 0 ? "$L != 0" : " || $L != 0", getMaskName(words, i));
+                arguments.add(i == 0 ? "$L" : ", $L", getMaskName(words, i));
+            }
+            code.beginControlFlow("if ($L)", condition.build())
+                    .addStatement("throw new $T(missingExtras($L))",
+                            IllegalStateException.class, arguments.build())
+                    .endControlFlow();
+        }
+        return code.build();
+    }
+
+    private boolean hasRequiredInstanceExtras() {
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            if (!extra.isNullable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getMaskName(int words, int word) {
+        return words == 1 ? "missing" : "missing" + word;
+    }
+
+    private CodeBlock getMaskUpdate(TypeName maskType, int words, int bit) {
+        return maskType == TypeName.INT
+                ? CodeBlock.of("missing |= 0x$L", Integer.toHexString(1 << bit))
+                : CodeBlock.of("$L |= 0x$LL", getMaskName(words, bit / Long.SIZE),
+                        Long.toHexString(1L << (bit % Long.SIZE)));
+    }
+
+    /**
+     * @return the message listing every required extra in the masks, with
+     * its key since that's what the launching code got wrong
+     */
+    private MethodSpec createMissingExtrasMethod() {
+        List<ExtraModel> required = new ArrayList<>();
+        for (ExtraModel extra : activity.getInstanceExtras()) {
+            if (!extra.isNullable()) {
+                required.add(extra);
+            }
+        }
+        TypeName maskType = required.size() <= Integer.SIZE ? TypeName.INT : TypeName.LONG;
+        int words = maskType == TypeName.INT ? 1 : (required.size() + Long.SIZE - 1) / Long.SIZE;
+        MethodSpec.Builder method = MethodSpec.methodBuilder("missingExtras")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(String.class);
+        for (int i = 0; i < words; i++) {
+            method.addParameter(maskType, getMaskName(words, i));
+        }
+        method.addStatement("$T message = new $T($S)", StringBuilder.class, StringBuilder.class,
+                "Missing required extras of " + activity.getSimpleName() + ":");
+        for (int bit = 0; bit < required.size(); bit++) {
+            String mask = maskType == TypeName.INT ? "0x" + Integer.toHexString(1 << bit)
+                    : "0x" + Long.toHexString(1L << (bit % Long.SIZE)) + "L";
+            ExtraModel extra = required.get(bit);
+            method.beginControlFlow("if (($L & $L) != 0)",
+                    getMaskName(words, maskType == TypeName.INT ? 0 : bit / Long.SIZE), mask)
+                    .addStatement("message.append($S)", " " + extra.getName() + " ("
+                            + activity.getKey(extra.getName()) + ")")
+                    .endControlFlow();
+        }
+        return method.addStatement("return message.toString()")
+                .build();
+    }
+
+    private CodeBlock getExtraBlock(ExtraModel extra, CodeBlock key) {
+        if (extra.isInProcess()) {
+            // a lost optional value reads as null, a lost required one is an error
+            return CodeBlock.of("($T) $T.getInstance().$L(intent.getLongExtra($L, 0L)$L)",
+                    extra.getType(), RuntimeTypes.IN_PROCESS_STORE,
+                    extra.isNullable() ? "get" : "require", key,
+                    extra.isNullable() ? "" : CodeBlock.of(", $S", extra.getName()));
+        }
+        ExtraType extraType = extra.getExtraType();
+        if (extra.getCodec() != null) {
+            return CodeBlock.of("$T.decode($T.$L, intent.getByteArrayExtra($L))",
+                    RuntimeTypes.CODECS, builderName, BuilderWriter.getCodecFieldName(extra), key);
+        } else if (extraType.isPrimitive()) {
+            return CodeBlock.of("intent.$L($L, $L)", extraType.intentGetter(), key,
+                    getDefaultValue(extra.getType().getKind()));
+        } else if (extraType == ExtraType.ENUM) {
+            return CodeBlock.of("$L(intent.getIntExtra($L, 0))",
+                    EncodedExtraWriter.decodeMethodName(extra.getName()), key);
+        } else if (extraType.isEncoded()) {
+            return CodeBlock.of("$L(intent.$L($L))",
+                    EncodedExtraWriter.decodeMethodName(extra.getName()),
+                    extraType.intentGetter(), key);
+        } else if (extraType == ExtraType.SERIALIZABLE || extraType == ExtraType.PARCELABLE) {
+            return CodeBlock.of("($T) intent.$L($L)", extra.getType(), extraType.intentGetter(),
+                    key);
         }
+        return CodeBlock.of("intent.$L($L)", extraType.intentGetter(), key);
     }
 
     private Object getDefaultValue(TypeKind kind) {
@@ -188,34 +836,21 @@ public class StartActivityWriter {
             case BOOLEAN:
                 return false;
             case BYTE:
+                return "(byte) -1";
             case SHORT:
-            case INT:
-            case LONG:
+                return "(short) -1";
             case CHAR:
+                return "(char) -1";
+            case INT:
                 return -1;
+            case LONG:
+                return "-1L";
             case FLOAT:
+                return "-1f";
             case DOUBLE:
                 return -1.0;
             default:
                 return null;
         }
     }
-
-    private String getExtraTypeName(TypeMirror type) {
-        if (type.getKind().isPrimitive()) {
-            String typeName = typeUtils.getPrimitiveType(type.getKind()).toString();
-            return capitalize(typeName);
-        } else if (typeUtils.isSubtype(type, elementUtils.getTypeElement("java.io.Serializable").asType())) {
-            return "Serializable";
-        } else if (typeUtils.isSubtype(type, elementUtils.getTypeElement("android.os.Parcelable").asType())) {
-            return "Parcelable";
-        } else {
-            throw new IllegalStateException("Cannot find extra getter for type " + type);
-        }
-    }
-
-    private String getPackageName(TypeElement classElement) {
-        return elementUtils.getPackageOf(classElement)
-                .getQualifiedName().toString();
-    }
 }
@@ -0,0 +1,81 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BindExtrasAsyncTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void readsEveryExtraOnTheExecutor() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Report",
+                        "package app;",
+                        "public class Report implements java.io.Serializable {",
+                        "}")
+                .addSource("app.ReportActivity",
+                        "package app;",
+                        "import android.graphics.Rect;",
+                        "import java.util.ArrayList;",
+                        "import java.util.concurrent.Executor;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.runtime.AsyncBinding;",
+                        "import startle.runtime.BindCallback;",
+                        "@startle.annotation.Startle",
+                        "public class ReportActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "    @RequestExtra Report report;",
+                        "    @RequestExtra ArrayList<Rect> bounds;",
+                        "    AsyncBinding binding;",
+                        "    void bind(Executor executor) {",
+                        "        binding = StartReportActivity.bindExtrasAsync(this, executor,",
+                        "                new BindCallback<ReportActivity>() {",
+                        "                    @Override",
+                        "                    public void onExtrasBound(ReportActivity activity) {",
+                        "                    }",
+                        "                });",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String start = result.generatedSource("app.StartReportActivity");
+        String bindAsync = start.substring(start.indexOf("static AsyncBinding bindExtrasAsync("));
+        assertTrue(bindAsync, bindAsync.contains(
+                "final Bundle extras = intentExtras != null ? intentExtras : Bundle.EMPTY;"));
+        // the first read unparcels the whole Bundle, so none happens on the main thread
+        String mainThread = bindAsync.substring(0, bindAsync.indexOf("public void decode()"));
+        assertFalse(mainThread, mainThread.contains("extras.get"));
+        assertTrue(bindAsync, bindAsync.contains(
+                "decodedId = extras.getLong(StartReportActivity.Builder.EXTRA_ID, -1L);"));
+        assertTrue(bindAsync, bindAsync.contains("activity.id = decodedId;"));
+        assertTrue(bindAsync, bindAsync.contains("decodedReport = (Report)"
+                + " extras.getSerializable(StartReportActivity.Builder.EXTRA_REPORT);"));
+        assertTrue(bindAsync, bindAsync.contains("decodedBounds ="
+                + " extras.getParcelableArrayList(StartReportActivity.Builder.EXTRA_BOUNDS);"));
+        assertTrue(bindAsync, bindAsync.contains("activity.report = decodedReport;"));
+        assertTrue(bindAsync, bindAsync.contains("callback.onExtrasBound(activity);"));
+    }
+
+    @Test
+    public void skipsActivitiesWithoutDeserializedExtras() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.NameActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class NameActivity extends android.app.Activity {",
+                        "    @RequestExtra String name;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertFalse(result.generatedSource("app.StartNameActivity").contains("bindExtrasAsync"));
+    }
+}
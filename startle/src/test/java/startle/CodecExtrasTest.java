@@ -0,0 +1,94 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodecExtrasTest {
+
+    private static final String[] POINT = {
+            "package app;",
+            "public class Point {",
+            "    int x;",
+            "    int y;",
+            "}"};
+
+    private static final String[] POINT_CODEC = {
+            "package app;",
+            "import java.io.DataInput;",
+            "import java.io.DataOutput;",
+            "import java.io.IOException;",
+            "public class PointCodec implements startle.runtime.ExtraCodec<Point> {",
+            "    @Override",
+            "    public void encode(Point value, DataOutput output) throws IOException {",
+            "        output.writeInt(value.x);",
+            "        output.writeInt(value.y);",
+            "    }",
+            "    @Override",
+            "    public Point decode(DataInput input) throws IOException {",
+            "        Point point = new Point();",
+            "        point.x = input.readInt();",
+            "        point.y = input.readInt();",
+            "        return point;",
+            "    }",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void encodesExtrasWithTheirCodec() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Point", POINT)
+                .addSource("app.PointCodec", POINT_CODEC)
+                .addSource("app.MapActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class MapActivity extends android.app.Activity {",
+                        "    @RequestExtra(codec = PointCodec.class) Point center;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String start = result.generatedSource("app.StartMapActivity");
+        assertTrue(start, start.contains(
+                "static final PointCodec CODEC_CENTER = new PointCodec();"));
+        assertTrue(start, start.contains(
+                "intent.putExtra(EXTRA_CENTER, Codecs.encode(CODEC_CENTER, center));"));
+        assertTrue(start, start.contains("activity.center = Codecs.decode("
+                + "StartMapActivity.Builder.CODEC_CENTER,"
+                + " extras.getByteArray(StartMapActivity.Builder.EXTRA_CENTER));"));
+        assertTrue(start, start.contains("decodedCenter = Codecs.decode("
+                + "StartMapActivity.Builder.CODEC_CENTER,"
+                + " extras.getByteArray(StartMapActivity.Builder.EXTRA_CENTER));"));
+    }
+
+    @Test
+    public void rejectsCodecsOfOtherTypes() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Point", POINT)
+                .addSource("app.PointCodec", POINT_CODEC)
+                .addSource("app.MapActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class MapActivity extends android.app.Activity {",
+                        "    @RequestExtra(codec = PointCodec.class) String center;",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList(
+                        "app.PointCodec of center must implement ExtraCodec<java.lang.String>"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
@@ -0,0 +1,99 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactKeysTest {
+    private static final String[] SEARCH = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class SearchActivity extends android.app.Activity {",
+            "    @RequestExtra String query;",
+            "    @RequestExtra int page;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void extrasAreKeyedByTheHashOfTheirName() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compactKeys", "true")
+                .addSource("app.SearchActivity", SEARCH)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartSearchActivity");
+        assertTrue(source, source.contains("static final String EXTRA_QUERY = \"~l7ew\";"));
+        assertTrue(source, source.contains("static final String EXTRA_PAGE = \"~65qn\";"));
+        assertTrue(source, source.contains(
+                "extras.getString(StartSearchActivity.Builder.EXTRA_QUERY)"));
+        assertTrue(source, source.contains("    /**\n"
+                + "     * Compact key of {@code app.SearchActivity.query}\n"
+                + "     */\n"
+                + "    static final String EXTRA_QUERY = \"~l7ew\";"));
+        assertEquals(Collections.emptyList(), result.messages(Diagnostic.Kind.NOTE));
+    }
+
+    @Test
+    public void keysAreQualifiedByDefault() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.SearchActivity", SEARCH)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartSearchActivity");
+        assertTrue(source, source.contains(
+                "static final String EXTRA_QUERY = \"app.SearchActivity.query\";"));
+        assertFalse(source, source.contains("Compact key"));
+    }
+
+    @Test
+    public void collidingNamesKeepTheirQualifiedKey() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compactKeys", "true")
+                .addSource("app.SearchActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class SearchActivity extends android.app.Activity {",
+                        "    @RequestExtra(String.class) static final String EXTRA_LEGACY = \"~l7ew\";",
+                        "    @RequestExtra String query;",
+                        "    @RequestExtra int page;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartSearchActivity");
+        assertTrue(source, source.contains(
+                "static final String EXTRA_QUERY = \"app.SearchActivity.query\";"));
+        assertTrue(source, source.contains("static final String EXTRA_PAGE = \"~65qn\";"));
+        assertEquals(Collections.singletonList("SearchActivity keeps the full key of query"
+                        + " because its compact key ~l7ew is taken by EXTRA_LEGACY"),
+                result.messages(Diagnostic.Kind.NOTE));
+    }
+
+    @Test
+    public void compactBuildersUseTheSameKeys() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addOption("startle.compactKeys", "true")
+                .addSource("app.SearchActivity", SEARCH)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartSearchActivity");
+        assertTrue(source, source.contains("static final String EXTRA_QUERY = \"~l7ew\";"));
+        assertTrue(source, source.contains("new String[] {EXTRA_PAGE, EXTRA_QUERY}"));
+    }
+}
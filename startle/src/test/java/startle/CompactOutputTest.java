@@ -0,0 +1,188 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@code startle.compact} output and compares its size and class
+ * loading time with the full output for a module of synthetic activities.
+ * Declared methods of the generated classes stand in for the dex method
+ * count, the calls into the shared {@code CompactBuilder} are the same
+ * references for every activity.
+ */
+public class CompactOutputTest {
+    private static final String[] EXTRA_TYPES = {
+            "int", "long", "boolean", "double", "String", "CharSequence", "int[]",
+            "String[]", "java.util.ArrayList<String>", "java.util.List<Integer>",
+            "android.os.Bundle", "float",
+    };
+    private static final int ACTIVITIES = 50;
+    private static final int EXTRAS = 12;
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void writesBuildersOverTheSharedRuntime() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addSource("app.Nullable",
+                        "package app;",
+                        "public @interface Nullable {",
+                        "}")
+                .addSource("app.ProfileActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class ProfileActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "    @RequestExtra @Nullable java.util.List<String> tags;",
+                        "}")
+                .addSource("app.Caller",
+                        "package app;",
+                        "class Caller {",
+                        "    static void launch(android.content.Context context) {",
+                        "        StartProfileActivity.prepareProfileActivity(context)",
+                        "                .setId(1L)",
+                        "                .setTags(java.util.Collections.singletonList(\"a\"))",
+                        "                .start();",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String start = result.generatedSource("app.StartProfileActivity");
+        assertTrue(start, start.contains("public static class Builder extends CompactBuilder {"));
+        assertTrue(start, start.contains(
+                "{ExtrasTable.LONG | ExtrasTable.REQUIRED, ExtrasTable.STRING_ARRAY_LIST});"));
+        assertTrue(start, start.contains("super(context, TABLE);"));
+        assertTrue(start, start.contains("putObject(1, tags);"));
+        assertFalse(start, start.contains("public Intent getIntent()"));
+    }
+
+    @Test
+    public void fallsBackForExtrasTheRuntimeCantPut() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addSource("app.MapActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class MapActivity extends android.app.Activity {",
+                        "    @RequestExtra java.util.HashMap<String, String> values;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(Collections.singletonList(
+                        "MapActivity gets a full builder because the compact one can't put values"),
+                result.messages(Diagnostic.Kind.NOTE));
+        assertFalse(result.generatedSource("app.StartMapActivity").contains("CompactBuilder"));
+    }
+
+    @Test
+    public void compactOutputIsSmaller() throws Exception {
+        Measurement full = measure(false);
+        Measurement compact = measure(true);
+        writeReport(full, compact);
+
+        assertTrue(compact.methods + " >= " + full.methods, compact.methods < full.methods);
+        assertTrue(compact.classBytes + " >= " + full.classBytes,
+                compact.classBytes < full.classBytes);
+    }
+
+    private Measurement measure(boolean compact) throws Exception {
+        ProcessorRunner runner = new ProcessorRunner(temp)
+                .addSource("app.Nullable",
+                        "package app;",
+                        "public @interface Nullable {",
+                        "}");
+        if (compact) {
+            runner.addOption("startle.compact", "true");
+        }
+        for (int i = 0; i < ACTIVITIES; i++) {
+            runner.addSource("app.Synthetic" + i + "Activity", createActivity(i));
+        }
+        ProcessorRunner.Result result = runner.run();
+        assertTrue(result.toString(), result.success);
+
+        Measurement measurement = new Measurement();
+        List<String> classNames = new ArrayList<>();
+        for (File file : new File(result.classDir, "app").listFiles()) {
+            if (file.getName().startsWith("Start")) {
+                classNames.add("app." + file.getName().replace(".class", ""));
+                measurement.classBytes += file.length();
+            }
+        }
+        measurement.loadNanos = Long.MAX_VALUE;
+        // the fastest of a few fresh class loaders, which each load everything from scratch
+        for (int run = 0; run < 5; run++) {
+            URLClassLoader loader = new URLClassLoader(new URL[] {result.classDir.toURI().toURL()},
+                    getClass().getClassLoader());
+            long start = System.nanoTime();
+            int methods = 0;
+            for (String className : classNames) {
+                Class<?> type = Class.forName(className, true, loader);
+                methods += type.getDeclaredMethods().length + type.getDeclaredConstructors().length;
+            }
+            measurement.loadNanos = Math.min(measurement.loadNanos, System.nanoTime() - start);
+            measurement.methods = methods;
+            loader.close();
+        }
+        return measurement;
+    }
+
+    private String[] createActivity(int index) {
+        List<String> lines = new ArrayList<>();
+        lines.add("package app;");
+        lines.add("import startle.annotation.RequestExtra;");
+        lines.add("@startle.annotation.Startle");
+        lines.add("public class Synthetic" + index + "Activity extends android.app.Activity {");
+        for (int i = 0; i < EXTRAS; i++) {
+            lines.add("    @RequestExtra " + (i % 3 == 2 ? "@Nullable " : "")
+                    + EXTRA_TYPES[i % EXTRA_TYPES.length] + " extra" + i + ";");
+        }
+        lines.add("}");
+        return lines.toArray(new String[0]);
+    }
+
+    private void writeReport(Measurement full, Measurement compact) throws IOException {
+        File dir = new File(System.getProperty("startle.compact.report",
+                "build/reports/compact-output"));
+        dir.mkdirs();
+        String report = String.format(Locale.ROOT, "activities: %d%n"
+                        + "extras per activity: %d%n"
+                        + "%-8s %8s %12s %12s%n"
+                        + "%-8s %8d %12d %10.2fms%n"
+                        + "%-8s %8d %12d %10.2fms%n",
+                ACTIVITIES, EXTRAS, "output", "methods", "class bytes", "load time",
+                "full", full.methods, full.classBytes, full.loadNanos / 1e6,
+                "compact", compact.methods, compact.classBytes, compact.loadNanos / 1e6);
+        Files.write(new File(dir, ACTIVITIES + "x" + EXTRAS + ".txt").toPath(),
+                report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Measurement {
+        int methods;
+        long classBytes;
+        long loadNanos;
+    }
+}
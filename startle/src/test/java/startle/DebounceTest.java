@@ -0,0 +1,186 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import startle.runtime.LaunchDebouncer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DebounceTest {
+    private static final String[] DETAIL = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle(debounceMillis = 500)",
+            "public class DetailActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "}"};
+
+    /** The sample's LegacyActivity with a debounce window */
+    private static final String[] LEGACY = {
+            "package app;",
+            "import android.graphics.Bitmap;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle(debounceMillis = 500)",
+            "public class LegacyActivity extends android.app.Activity {",
+            "    @RequestExtra(long.class)",
+            "    public static final String EXTRA_ID = \"id\";",
+            "    @RequestExtra(Bitmap.class)",
+            "    public static final String EXTRA_SOME_OBJECT = \"some-object\";",
+            "    @RequestExtra(String.class)",
+            "    @Nullable",
+            "    public static final String EXTRA_MESSAGE = \"message\";",
+            "    @RequestExtra(value = Bitmap.class, inProcess = true)",
+            "    @Nullable",
+            "    public static final String EXTRA_PREVIEW = \"preview\";",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void startChecksTheDebouncerBeforeLaunching() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.DetailActivity", DETAIL)
+                .addSource("app.HomeActivity",
+                        "package app;",
+                        "@startle.annotation.Startle(debounceMillis = 300,"
+                                + " deepLinks = \"/home\")",
+                        "public class HomeActivity extends android.app.Activity {",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String detail = result.generatedSource("app.StartDetailActivity");
+        assertTrue(detail, detail.contains("static final LaunchDebouncer DEBOUNCER ="
+                + " new LaunchDebouncer(DetailActivity.class, 500L);"));
+        assertTrue(detail, detail.contains("      if (!DEBOUNCER.tryLaunchValues(this)) {\n"
+                + "        return;\n"
+                + "      }\n"
+                + "      Intent intent = getIntent();\n"
+                + "      LaunchListener launchListener"));
+        String home = result.generatedSource("app.StartHomeActivity");
+        assertTrue(home, home.contains("if (!DEBOUNCER.tryLaunch(intent)) {"));
+        assertTrue(home, home.contains(
+                "new IntentLauncher(context, HomeActivity.class, DEBOUNCER)"));
+    }
+
+    @Test
+    public void inProcessExtrasAreComparedByValue() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.LegacyActivity", LEGACY)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String legacy = result.generatedSource("app.StartLegacyActivity");
+        assertTrue(legacy, legacy.contains("      if (!DEBOUNCER.tryLaunchValues(this)) {\n"
+                + "        return;\n"
+                + "      }\n"
+                + "      Intent intent = getIntent();\n"));
+        assertTrue(legacy, legacy.contains("      return setBits == other.setBits\n"
+                + "          && id == other.id\n"
+                + "          && LaunchDebouncer.equal(message, other.message)\n"
+                + "          && LaunchDebouncer.equal(preview, other.preview)\n"
+                + "          && LaunchDebouncer.equal(someObject, other.someObject);\n"));
+        assertTrue(legacy, legacy.contains(
+                "StartLegacyActivity.Builder values = new StartLegacyActivity.Builder(null);"));
+
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] {result.classDir.toURI().toURL()}, getClass().getClassLoader())) {
+            Bitmap bitmap = newBitmap();
+            long suppressed = LaunchDebouncer.getSuppressedCount();
+            try {
+                startLegacy(loader, bitmap);
+                fail("the first launch went on to build its Intent");
+            } catch (InvocationTargetException e) {
+                // the Android stubs throw once the Intent is built
+                assertEquals("Stub!", e.getCause().getMessage());
+            }
+            // a new builder would store the preview under a new handle
+            startLegacy(loader, bitmap);
+            assertEquals(suppressed + 1, LaunchDebouncer.getSuppressedCount());
+        }
+    }
+
+    private void startLegacy(ClassLoader loader, Bitmap bitmap) throws Exception {
+        Constructor<?> constructor = loader.loadClass("app.StartLegacyActivity$Builder")
+                .getDeclaredConstructor(Context.class);
+        constructor.setAccessible(true);
+        Object builder = constructor.newInstance((Object) null);
+        builder.getClass().getMethod("setId", long.class).invoke(builder, 1L);
+        builder.getClass().getMethod("setSomeObject", Bitmap.class).invoke(builder, bitmap);
+        builder.getClass().getMethod("setPreview", Bitmap.class).invoke(builder, bitmap);
+        builder.getClass().getMethod("start").invoke(builder);
+    }
+
+    /**
+     * @return a Bitmap allocated without its stub constructor, which throws
+     */
+    private Bitmap newBitmap() throws Exception {
+        Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        Object unsafe = field.get(null);
+        return (Bitmap) unsafe.getClass().getMethod("allocateInstance", Class.class)
+                .invoke(unsafe, Bitmap.class);
+    }
+
+    @Test
+    public void compactBuildersDebounceInTheRuntime() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addSource("app.DetailActivity", DETAIL)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String detail = result.generatedSource("app.StartDetailActivity");
+        assertTrue(detail, detail.contains("new int[] {ExtrasTable.LONG | ExtrasTable.REQUIRED},\n"
+                + "        DEBOUNCER);"));
+    }
+
+    @Test
+    public void launchesAreNotDebouncedByDefault() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.PlainActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class PlainActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertFalse(result.generatedSource("app.StartPlainActivity").contains("DEBOUNCER"));
+    }
+
+    @Test
+    public void rejectsNegativeWindows() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.DetailActivity",
+                        "package app;",
+                        "@startle.annotation.Startle(debounceMillis = -1)",
+                        "public class DetailActivity extends android.app.Activity {",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("debounceMillis of DetailActivity can't be negative"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
@@ -0,0 +1,204 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import android.content.Context;
+import android.net.Uri;
+import startle.runtime.DeepLinkResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeepLinksTest {
+
+    private static final String[] NULLABLE = {
+            "package app;",
+            "public @interface Nullable {",
+            "}"};
+
+    private static final String[] PROFILE = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle(deepLinks = {\"/users/{id}\","
+                    + " \"/users/{id}/posts?tab={tab}&page={page}\"})",
+            "public class ProfileActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra @Nullable String tab;",
+            "    @RequestExtra @Nullable int page;",
+            "}"};
+
+    private static final String[] ME = {
+            "package app;",
+            "@startle.annotation.Startle(deepLinks = \"/users/me\")",
+            "public class MeActivity extends android.app.Activity {",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void dispatchesDeepLinksThroughATrie() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", NULLABLE)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.MeActivity", ME)
+                .addSource("app.Caller",
+                        "package app;",
+                        "import android.content.Context;",
+                        "import android.net.Uri;",
+                        "import startle.routes.StartleRoutes;",
+                        "import startle.runtime.DeepLinkResult;",
+                        "class Caller {",
+                        "    static void open(Context context, Uri uri) {",
+                        "        DeepLinkResult result = StartleRoutes.dispatch(context, uri);",
+                        "        if (result.isMatched()) {",
+                        "            result.getLauncher().start();",
+                        "        }",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String routes = result.generatedSource("startle.routes.StartleRoutes");
+        assertTrue(routes, routes.contains(
+                "if (DeepLinkParser.segmentEquals(path, start0, end0, \"users\")) {"));
+        assertTrue(routes, routes.contains(
+                "if (DeepLinkParser.segmentEquals(path, start1, end1, \"me\")) {"));
+        assertTrue(routes, routes.contains(
+                "return StartMeActivity.fromDeepLink0(context, uri, path);"));
+        assertTrue(routes, routes.contains(
+                "return StartProfileActivity.fromDeepLink1(context, uri, path, start1, end1);"));
+        // the literal is tried before the parameter matching the same segment
+        assertTrue(routes.indexOf("StartMeActivity") < routes.indexOf("StartProfileActivity"));
+
+        String start = result.generatedSource("app.StartProfileActivity");
+        assertTrue(start, start.contains("public static class Builder implements Launcher {"));
+        assertTrue(start, start.contains("if (!DeepLinkParser.isLong(path, idStart, idEnd)) {"));
+        assertTrue(start, start.contains("String pageValue = uri.getQueryParameter(\"page\");"));
+        assertTrue(start, start.contains(
+                "if (pageValue != null && !DeepLinkParser.isInt(pageValue, 0, pageValue.length())) {"));
+        assertTrue(start, start.contains(
+                "builder.setTab(tabValue);"));
+    }
+
+    @Test
+    public void intDefValuesOutsideItAreInvalid() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", NULLABLE)
+                .addSource("app.IntDef",
+                        "package app;",
+                        "public @interface IntDef {",
+                        "    int[] value();",
+                        "    boolean flag() default false;",
+                        "}")
+                .addSource("app.FeedActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle(deepLinks = {\"/tabs/{tab}\","
+                                + " \"/tabs/{tab}/feed?mode={mode}\"})",
+                        "public class FeedActivity extends android.app.Activity {",
+                        "    @IntDef({1, 2}) @interface Tab {}",
+                        "    @IntDef(value = {1, 4}, flag = true) @interface Mode {}",
+                        "    @RequestExtra @Tab int tab;",
+                        "    @RequestExtra @Nullable @Mode int mode;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String start = result.generatedSource("app.StartFeedActivity");
+        assertTrue(start, start.contains(
+                "    int tabParsed = DeepLinkParser.parseInt(path, tabStart, tabEnd);\n"
+                + "    if (tabParsed != 1 && tabParsed != 2) {\n"
+                + "      return DeepLinkResult.invalid(\"tab\");\n"));
+        assertTrue(start, start.contains("    int modeParsed = modeValue != null"
+                + " ? DeepLinkParser.parseInt(modeValue, 0, modeValue.length()) : 0;\n"
+                + "    if (modeValue != null && (modeParsed & ~0x5) != 0) {\n"
+                + "      return DeepLinkResult.invalid(\"mode\");\n"));
+        assertTrue(start, start.contains("builder.setMode(modeParsed);"));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {result.classDir.toURI().toURL()},
+                getClass().getClassLoader())) {
+            Method fromDeepLink = loader.loadClass("app.StartFeedActivity").getMethod(
+                    "fromDeepLink0", Context.class, Uri.class, String.class, int.class, int.class);
+            DeepLinkResult invalid = (DeepLinkResult) fromDeepLink.invoke(null, null, null,
+                    "/tabs/3", 6, 7);
+            assertEquals(DeepLinkResult.Status.INVALID_PARAMETER, invalid.getStatus());
+            assertEquals("tab", invalid.getParameter());
+            DeepLinkResult matched = (DeepLinkResult) fromDeepLink.invoke(null, null, null,
+                    "/tabs/2", 6, 7);
+            assertTrue(matched.isMatched());
+        }
+    }
+
+    @Test
+    public void mergesDeepLinksOfLibraryModules() throws Exception {
+        ProcessorRunner.Result library = new ProcessorRunner(temp)
+                .addSource("app.MeActivity", ME)
+                .addOption("startle.routesModule", "Account")
+                .run();
+        assertTrue(library.toString(), library.success);
+
+        ProcessorRunner.Result app = new ProcessorRunner(temp)
+                .addSource("app.Nullable", NULLABLE)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addClasspath(library.classDir)
+                .run();
+
+        assertTrue(app.toString(), app.success);
+        String routes = app.generatedSource("startle.routes.StartleRoutes");
+        assertTrue(routes, routes.contains(
+                "return StartMeActivity.fromDeepLink0(context, uri, path);"));
+        assertTrue(routes, routes.contains(
+                "return StartProfileActivity.fromDeepLink0(context, uri, path, start1, end1);"));
+    }
+
+    @Test
+    public void rejectsUnboundRequiredExtras() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.PostActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle(deepLinks = \"/posts?user={user}\")",
+                        "public class PostActivity extends android.app.Activity {",
+                        "    @RequestExtra long user;",
+                        "    @RequestExtra long post;",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList(
+                        "Deep link /posts?user={user} doesn't bind the required extra post"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+
+    @Test
+    public void rejectsDeepLinksMatchingTheSamePaths() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", NULLABLE)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.TeamActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle(deepLinks = \"/users/{name}\")",
+                        "public class TeamActivity extends android.app.Activity {",
+                        "    @RequestExtra String name;",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("Deep links /users/{id} of"
+                        + " app.StartProfileActivity and /users/{name} of app.StartTeamActivity"
+                        + " match the same paths"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
@@ -0,0 +1,118 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeterministicOutputTest {
+    private static final Pattern HEADER = Pattern.compile(
+            "// Generated by Startle\\. Do not edit\\.\n// content-hash: sha256:[0-9a-f]{64}\n");
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void shuffledSourcesGenerateTheSameFiles() throws Exception {
+        Map<String, String> first = generate(new Random(1), "long");
+
+        assertEquals(Arrays.asList("app.StartDetailActivity", "app.StartListActivity",
+                "app.StartSearchActivity", "app.StartStagedActivity",
+                "startle.routes.StartleRoutes"), new ArrayList<>(first.keySet()));
+        for (String source : first.values()) {
+            assertTrue(source, HEADER.matcher(source).lookingAt());
+        }
+        for (long seed = 2; seed <= 4; seed++) {
+            assertEquals(first, generate(new Random(seed), "long"));
+        }
+    }
+
+    @Test
+    public void hashChangesWithTheCode() throws Exception {
+        String before = generate(new Random(1), "long").get("app.StartDetailActivity");
+        String after = generate(new Random(1), "int").get("app.StartDetailActivity");
+
+        assertNotEquals(getHeader(before), getHeader(after));
+    }
+
+    private String getHeader(String source) {
+        return source.substring(0, source.indexOf("\n\n"));
+    }
+
+    private Map<String, String> generate(Random random, String idType) throws Exception {
+        List<String[]> activities = new ArrayList<>();
+        activities.add(activity(random, "DetailActivity",
+                "@startle.annotation.Startle(route = \"detail\","
+                        + " deepLinks = \"/items/{id}?ref={referrer}&from={source}\")",
+                "@RequestExtra " + idType + " id;",
+                "@RequestExtra @Nullable String title;",
+                "@RequestExtra @Nullable java.util.HashMap<String, Integer> counts;",
+                "@RequestExtra(String.class) static final String EXTRA_REFERRER = \"ref\";",
+                "@RequestExtra(int.class) static final String EXTRA_SOURCE = \"source\";"));
+        activities.add(activity(random, "ListActivity",
+                "@startle.annotation.Startle(route = \"list\", deepLinks = \"/items?grid={grid}\")",
+                "@RequestExtra @Nullable String filter;",
+                "@RequestExtra @Nullable int[] selection;",
+                "@RequestExtra boolean grid;"));
+        activities.add(activity(random, "SearchActivity",
+                "@startle.annotation.Startle(deepLinks = \"/search?q={query}\")",
+                "@RequestExtra String query;",
+                "@RequestExtra @Nullable android.os.Bundle options;"));
+        List<String[]> sources = new ArrayList<>(activities);
+        // a staged builder's steps follow the declaration order so it isn't shuffled
+        sources.add(new String[] {"app.StagedActivity",
+                "package app;",
+                "import startle.annotation.RequestExtra;",
+                "@startle.annotation.Startle(staged = true)",
+                "public class StagedActivity extends android.app.Activity {",
+                "    @RequestExtra String second;",
+                "    @RequestExtra long first;",
+                "}"});
+        sources.add(new String[] {"app.Nullable",
+                "package app;",
+                "public @interface Nullable {",
+                "}"});
+        Collections.shuffle(sources, random);
+
+        ProcessorRunner runner = new ProcessorRunner(temp).procOnly();
+        for (String[] source : sources) {
+            runner.addSource(source[0], Arrays.copyOfRange(source, 1, source.length));
+        }
+        ProcessorRunner.Result result = runner.run();
+        assertTrue(result.toString(), result.success);
+
+        Map<String, String> generated = new TreeMap<>();
+        for (String name : result.originatingElements.keySet()) {
+            generated.put(name, result.generatedSource(name));
+        }
+        return generated;
+    }
+
+    private String[] activity(Random random, String name, String annotation,
+            String... fields) {
+        List<String> shuffled = new ArrayList<>(Arrays.asList(fields));
+        Collections.shuffle(shuffled, random);
+        List<String> lines = new ArrayList<>(Arrays.asList("app." + name,
+                "package app;",
+                "import startle.annotation.RequestExtra;",
+                annotation,
+                "public class " + name + " extends android.app.Activity {"));
+        for (String field : shuffled) {
+            lines.add("    " + field);
+        }
+        lines.add("}");
+        return lines.toArray(new String[0]);
+    }
+}
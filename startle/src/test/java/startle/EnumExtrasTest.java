@@ -0,0 +1,139 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EnumExtrasTest {
+    private static final String[] COLOR = {
+            "package app;",
+            "public enum Color {",
+            "    RED, GREEN",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void enumsTravelAsTheHashOfTheirName() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Color", COLOR)
+                .addSource("app.PaintActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class PaintActivity extends android.app.Activity {",
+                        "    @RequestExtra Color color;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.messages(Diagnostic.Kind.WARNING).toString(),
+                result.messages(Diagnostic.Kind.WARNING).isEmpty());
+        String source = result.generatedSource("app.StartPaintActivity");
+        assertTrue(source, source.contains("intent.putExtra(EXTRA_COLOR, color.name().hashCode());"));
+        assertTrue(source, source.contains("activity.color = decodeColor("
+                + "extras.getInt(StartPaintActivity.Builder.EXTRA_COLOR));"));
+        assertTrue(source, source.contains("    switch (hash) {\n"
+                + "      case " + "RED".hashCode() + ": return Color.RED;\n"
+                + "      case " + "GREEN".hashCode() + ": return Color.GREEN;\n"
+                + "      default: return null;\n"
+                + "    }"));
+    }
+
+    @Test
+    public void keyConstantsKeepSerializingEnums() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Color", COLOR)
+                .addSource("app.PaintActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class PaintActivity extends android.app.Activity {",
+                        "    @RequestExtra(Color.class) static final String EXTRA_COLOR = \"color\";",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartPaintActivity");
+        assertTrue(source, source.contains("(Color) intent.getSerializableExtra("));
+    }
+
+    @Test
+    public void compactBuildersPutEnumsInTheRuntime() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addSource("app.Color", COLOR)
+                .addSource("app.PaintActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class PaintActivity extends android.app.Activity {",
+                        "    @RequestExtra Color color;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("app.StartPaintActivity").contains(
+                "new int[] {ExtrasTable.ENUM | ExtrasTable.REQUIRED}"));
+    }
+
+    @Test
+    public void rejectsLazyEnums() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Color", COLOR)
+                .addSource("app.PaintActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.runtime.Lazy;",
+                        "@startle.annotation.Startle",
+                        "public class PaintActivity extends android.app.Activity {",
+                        "    @RequestExtra Lazy<Color> color;",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("color is an enum, which is read without"
+                        + " deserializing, so it can't be Lazy"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+
+    @Test
+    public void settersCheckIntDefValues() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.IntDef",
+                        "package app;",
+                        "public @interface IntDef {",
+                        "    int[] value();",
+                        "    boolean flag() default false;",
+                        "}")
+                .addSource("app.PaintActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class PaintActivity extends android.app.Activity {",
+                        "    @IntDef({1, 2}) @interface Mode {}",
+                        "    @IntDef(value = {1, 4}, flag = true) @interface Options {}",
+                        "    @RequestExtra @Mode int mode;",
+                        "    @RequestExtra @Options int options;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartPaintActivity");
+        assertTrue(source, source.contains("if (mode != 1 && mode != 2) {\n"
+                + "        throw new IllegalArgumentException(\"mode isn't one of [1, 2]: \" + mode);"));
+        assertTrue(source, source.contains("if ((options & ~0x5) != 0) {\n"
+                + "        throw new IllegalArgumentException("
+                + "\"options has flags outside [1, 4]: \" + options);"));
+        assertTrue(source, source.contains("activity.mode = extras.getInt("));
+    }
+}
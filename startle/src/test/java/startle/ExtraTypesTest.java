@@ -0,0 +1,83 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExtraTypesTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void typedAccessorsCompileWithoutSerializableFallback() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.TypedActivity",
+                        "package app;",
+                        "import android.app.Activity;",
+                        "import android.graphics.Bitmap;",
+                        "import android.os.Bundle;",
+                        "import android.os.Parcelable;",
+                        "import android.util.SparseArray;",
+                        "import java.util.ArrayList;",
+                        "import java.util.HashMap;",
+                        "import java.util.List;",
+                        "import java.util.Map;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.annotation.Startle;",
+                        "@Startle",
+                        "public class TypedActivity extends Activity {",
+                        "    @RequestExtra char initial;",
+                        "    @RequestExtra String name;",
+                        "    @RequestExtra CharSequence label;",
+                        "    @RequestExtra Bundle options;",
+                        "    @RequestExtra int[] counts;",
+                        "    @RequestExtra String[] tags;",
+                        "    @RequestExtra Parcelable[] parts;",
+                        "    @RequestExtra ArrayList<String> names;",
+                        "    @RequestExtra List<Integer> ids;",
+                        "    @RequestExtra List<Bitmap> images;",
+                        "    @RequestExtra SparseArray<Bitmap> thumbnails;",
+                        "    @RequestExtra HashMap<String, String> labels;",
+                        "    @RequestExtra Map<String, Bitmap> icons;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(Collections.emptyList(), result.messages(Diagnostic.Kind.WARNING));
+        String source = result.generatedSource("app.StartTypedActivity");
+        assertTrue(source.contains("intent.putIntegerArrayListExtra(EXTRA_IDS, new ArrayList<>(ids))"));
+        assertTrue(source.contains("extras.getStringArrayList(StartTypedActivity.Builder.EXTRA_NAMES)"));
+        assertTrue(source.contains("decodeIcons(extras.getBundle("));
+    }
+
+    @Test
+    public void warnsWhenFallingBackToSerializable() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.LegacyActivity",
+                        "package app;",
+                        "import android.app.Activity;",
+                        "import java.util.LinkedList;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.annotation.Startle;",
+                        "@Startle",
+                        "public class LegacyActivity extends Activity {",
+                        "    @RequestExtra LinkedList<String> history;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(Collections.singletonList(
+                "history has no typed Bundle accessor and falls back to Java serialization"),
+                result.messages(Diagnostic.Kind.WARNING));
+        assertTrue(result.generatedSource("app.StartLegacyActivity")
+                .contains("(LinkedList<String>) extras.getSerializable("));
+    }
+}
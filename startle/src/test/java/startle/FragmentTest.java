@@ -0,0 +1,174 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FragmentTest {
+    private static final String[] FRAGMENT = {
+            "package androidx.fragment.app;",
+            "public class Fragment {",
+            "    private android.os.Bundle arguments;",
+            "    public void setArguments(android.os.Bundle arguments) {",
+            "        this.arguments = arguments;",
+            "    }",
+            "    public final android.os.Bundle getArguments() {",
+            "        return arguments;",
+            "    }",
+            "}"};
+    private static final String[] FRAGMENT_FACTORY = {
+            "package androidx.fragment.app;",
+            "public class FragmentFactory {",
+            "    public Fragment instantiate(ClassLoader classLoader, String className) {",
+            "        return null;",
+            "    }",
+            "}"};
+    private static final String[] PROFILE = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class ProfileFragment extends androidx.fragment.app.Fragment {",
+            "    @RequestExtra long userId;",
+            "    @RequestExtra @Nullable String tab;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private ProcessorRunner fragmentRunner() {
+        return new ProcessorRunner(temp)
+                .addSource("androidx.fragment.app.Fragment", FRAGMENT)
+                .addSource("androidx.fragment.app.FragmentFactory", FRAGMENT_FACTORY)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}");
+    }
+
+    @Test
+    public void builderPutsArgumentsAndBinderReadsThem() throws Exception {
+        ProcessorRunner.Result result = fragmentRunner()
+                .addSource("app.ProfileFragment", PROFILE)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartProfileFragment");
+        assertTrue(source, source.contains(
+                "public static StartProfileFragment.Builder prepareProfileFragment() {\n"
+                + "    return new StartProfileFragment.Builder();\n"));
+        assertTrue(source, source.contains("      Bundle arguments = new Bundle();\n"
+                + "      if (tab != null) {\n"
+                + "        arguments.putString(EXTRA_TAB, tab);\n"
+                + "      }\n"
+                + "      arguments.putLong(EXTRA_USERID, userId);\n"
+                + "      return arguments;\n"));
+        assertTrue(source, source.contains("    public ProfileFragment build() {\n"
+                + "      ProfileFragment fragment = new ProfileFragment();\n"
+                + "      fragment.setArguments(getArguments());\n"
+                + "      return fragment;\n"));
+        assertTrue(source, source.contains("  static void setExtras(ProfileFragment fragment) {\n"
+                + "    Bundle arguments = fragment.getArguments();\n"
+                + "    Bundle extras = arguments != null ? arguments : Bundle.EMPTY;\n"));
+        assertTrue(source, source.contains("fragment.userId = extras.getLong("
+                + "StartProfileFragment.Builder.EXTRA_USERID, -1L);"));
+        assertFalse(source, source.contains("Intent"));
+    }
+
+    @Test
+    public void factoryCreatesFragmentsWithoutReflection() throws Exception {
+        ProcessorRunner.Result result = fragmentRunner()
+                .addSource("app.ProfileFragment", PROFILE)
+                .addSource("app.Tabs",
+                        "package app;",
+                        "public class Tabs {",
+                        "    @startle.annotation.Startle",
+                        "    public static class FeedFragment",
+                        "            extends androidx.fragment.app.Fragment {",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String factory = result.generatedSource("startle.fragments.StartleFragmentFactory");
+        assertTrue(factory, factory.contains("    switch (className) {\n"
+                + "      case \"app.ProfileFragment\": return new ProfileFragment();\n"
+                + "      case \"app.Tabs$FeedFragment\": return new Tabs.FeedFragment();\n"
+                + "      default: return delegate != null"
+                + " ? delegate.instantiate(classLoader, className)"
+                + " : super.instantiate(classLoader, className);\n"));
+        assertEquals(Arrays.asList("app.ProfileFragment", "app.Tabs.FeedFragment"),
+                result.originatingElements.get("startle.fragments.StartleFragmentFactory"));
+        assertTrue(result.generatedSource("app.StartFeedFragment")
+                .contains("public Tabs.FeedFragment build()"));
+    }
+
+    @Test
+    public void libraryModulesGetTheirOwnFactory() throws Exception {
+        ProcessorRunner.Result result = fragmentRunner()
+                .addOption("startle.routesModule", "Search")
+                .addSource("app.ProfileFragment", PROFILE)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("startle.fragments.SearchFragmentFactory")
+                .contains("case \"app.ProfileFragment\""));
+        assertFalse(new File(result.generatedDir, "startle/routes/SearchRoutes.java").exists());
+    }
+
+    @Test
+    public void stagedFragmentsBuildFromTheLastStep() throws Exception {
+        ProcessorRunner.Result result = fragmentRunner()
+                .addSource("app.ProfileFragment",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle(staged = true)",
+                        "public class ProfileFragment extends androidx.fragment.app.Fragment {",
+                        "    @RequestExtra long userId;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartProfileFragment");
+        assertTrue(source, source.contains(
+                "public static StartProfileFragment.NeedsUserId prepareProfileFragment()"));
+        assertTrue(source, source.contains("  public interface Ready {\n"
+                + "    Bundle getArguments();\n\n"
+                + "    ProfileFragment build();\n"));
+    }
+
+    @Test
+    public void rejectsWhatOnlyActivitiesSupport() throws Exception {
+        ProcessorRunner.Result result = fragmentRunner()
+                .addSource("app.ProfileFragment",
+                        "package app;",
+                        "@startle.annotation.Startle(debounceMillis = 500)",
+                        "public class ProfileFragment extends androidx.fragment.app.Fragment {",
+                        "}")
+                .run();
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("ProfileFragment is a fragment, which can't have"
+                        + " debounceMillis"),
+                result.messages(Diagnostic.Kind.ERROR));
+
+        result = fragmentRunner()
+                .addSource("app.ProfileFragment",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class ProfileFragment extends androidx.fragment.app.Fragment {",
+                        "    ProfileFragment(long userId) {",
+                        "    }",
+                        "}")
+                .run();
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("ProfileFragment must be a public class with a"
+                        + " public no-argument constructor to be recreated"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
@@ -0,0 +1,84 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertTrue;
+
+public class InProcessExtrasTest {
+    private static final String[] PREVIEW = {
+            "package app;",
+            "import android.graphics.Bitmap;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class PreviewActivity extends android.app.Activity {",
+            "    @RequestExtra(inProcess = true) Bitmap image;",
+            "    @RequestExtra(inProcess = true) @Nullable Bitmap thumbnail;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void valuesAreStoredOnceByTheNextIntent() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.PreviewActivity", PREVIEW)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartPreviewActivity");
+        assertTrue(source, source.contains("    private long imageHandle;\n"));
+        // a value replaced before an Intent is built never takes up an entry
+        assertTrue(source, source.contains("      this.image = image;\n"
+                + "      this.imageHandle = 0L;\n"));
+        String getIntent = source.substring(source.indexOf("Intent getIntent()"));
+        assertTrue(getIntent, getIntent.contains("      if (imageHandle == 0L) {\n"
+                + "        imageHandle = InProcessStore.getInstance().put(image);\n"
+                + "      }\n"
+                + "      intent.putExtra(EXTRA_IMAGE, imageHandle);\n"));
+        assertTrue(getIntent, getIntent.contains("      if (thumbnail != null) {\n"
+                + "        if (thumbnailHandle == 0L) {\n"
+                + "          thumbnailHandle = InProcessStore.getInstance().put(thumbnail);\n"
+                + "        }\n"
+                + "        intent.putExtra(EXTRA_THUMBNAIL, thumbnailHandle);\n"));
+    }
+
+    @Test
+    public void bindingHoldsTheStoredValuesUntilReleased() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.PreviewActivity", PREVIEW)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartPreviewActivity");
+        assertTrue(source, source.contains("activity.image = (Bitmap) InProcessStore.getInstance()"
+                + ".bindRequired(extras.getLong(StartPreviewActivity.Builder.EXTRA_IMAGE, 0L),"
+                + " \"image\");"));
+        assertTrue(source, source.contains("activity.thumbnail = (Bitmap)"
+                + " InProcessStore.getInstance().bind(extras.getLong("
+                + "StartPreviewActivity.Builder.EXTRA_THUMBNAIL, 0L));"));
+        assertTrue(source, source.contains("  static void releaseExtras(PreviewActivity activity) {\n"
+                + "    Intent intent = activity.getIntent();\n"
+                + "    Bundle intentExtras = intent.getExtras();\n"
+                + "    Bundle extras = intentExtras != null ? intentExtras : Bundle.EMPTY;\n"
+                + "    InProcessStore.getInstance().release(extras.getLong("
+                + "StartPreviewActivity.Builder.EXTRA_IMAGE, 0L));\n"
+                + "    InProcessStore.getInstance().release(extras.getLong("
+                + "StartPreviewActivity.Builder.EXTRA_THUMBNAIL, 0L));\n"));
+    }
+
+    @Test
+    public void snapshotsHoldValuesInsteadOfHandles() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.PreviewActivity", PREVIEW)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("app.StartPreviewActivity").contains(
+                "return LaunchSnapshot.of(getIntent(), EXTRA_IMAGE, EXTRA_THUMBNAIL);"));
+    }
+}
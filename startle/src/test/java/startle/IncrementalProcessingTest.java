@@ -0,0 +1,99 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalProcessingTest {
+
+    private static final String[] PROFILE = {
+            "package app;",
+            "import android.app.Activity;",
+            "import startle.annotation.RequestExtra;",
+            "import startle.annotation.Startle;",
+            "@Startle",
+            "public class ProfileActivity extends Activity {",
+            "    @RequestExtra long id;",
+            "}"};
+
+    private static final String[] EDITED_PROFILE = {
+            "package app;",
+            "import android.app.Activity;",
+            "import startle.annotation.RequestExtra;",
+            "import startle.annotation.Startle;",
+            "@Startle",
+            "public class ProfileActivity extends Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra String name;",
+            "}"};
+
+    private static final String[] SETTINGS = {
+            "package app;",
+            "import android.app.Activity;",
+            "import startle.annotation.Startle;",
+            "@Startle",
+            "public class SettingsActivity extends Activity {",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void declaresIncrementalProcessors() throws Exception {
+        InputStream in = StartleProcessor.class.getClassLoader()
+                .getResourceAsStream("META-INF/gradle/incremental.annotation.processors");
+        String declaration = new Scanner(in, StandardCharsets.UTF_8.name())
+                .useDelimiter("\\A").next().trim();
+        assertEquals(StartleProcessor.class.getName() + ",isolating\n"
+                + RoutesProcessor.class.getName() + ",aggregating", declaration);
+    }
+
+    @Test
+    public void eachGeneratedFileOriginatesFromItsActivityOnly() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.SettingsActivity", SETTINGS)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(2, result.originatingElements.size());
+        assertEquals(Collections.singletonList("app.ProfileActivity"),
+                result.originatingElements.get("app.StartProfileActivity"));
+        assertEquals(Collections.singletonList("app.SettingsActivity"),
+                result.originatingElements.get("app.StartSettingsActivity"));
+    }
+
+    @Test
+    public void editingOneActivityRegeneratesOnlyItsStartFile() throws Exception {
+        ProcessorRunner.Result full = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.SettingsActivity", SETTINGS)
+                .run();
+        assertTrue(full.toString(), full.success);
+
+        // What Gradle does for an isolating processor: recompile the edited
+        // source only, with the untouched classes on the classpath
+        ProcessorRunner.Result incremental = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity", EDITED_PROFILE)
+                .addClasspath(full.classDir)
+                .run();
+
+        assertTrue(incremental.toString(), incremental.success);
+        assertEquals(Collections.singleton("app.StartProfileActivity"),
+                incremental.originatingElements.keySet());
+        assertTrue(incremental.generatedSource("app.StartProfileActivity")
+                .contains("setName("));
+        assertFalse(full.generatedSource("app.StartProfileActivity").contains("setName("));
+        assertFalse(new File(incremental.generatedDir, "app/StartSettingsActivity.java").exists());
+    }
+}
@@ -0,0 +1,83 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentationTest {
+    private static final String ON_LAUNCH =
+            "      LaunchListener launchListener = LaunchMonitor.getListener();\n"
+            + "      if (launchListener != null) {\n"
+            + "        LaunchMonitor.onLaunch(launchListener, OrderActivity.class, intent);\n"
+            + "      }\n";
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void launchesAreReportedRightBeforeStarting() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.OrderActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class OrderActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartOrderActivity");
+        assertTrue(source, source.contains(ON_LAUNCH + "      context.startActivity(intent);\n"));
+        assertTrue(source, source.contains(ON_LAUNCH
+                + "      ((Activity) context).startActivityForResult(intent, requestCode);\n"));
+    }
+
+    @Test
+    public void bindingIsReportedOnceTheExtrasAreSet() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.OrderActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class OrderActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartOrderActivity");
+        String setExtras = source.substring(source.indexOf("static void setExtras("));
+        assertTrue(setExtras, setExtras.contains("activity.id = "));
+        assertTrue(setExtras, setExtras.contains(
+                "    LaunchListener launchListener = LaunchMonitor.getListener();\n"
+                + "    if (launchListener != null) {\n"
+                + "      LaunchMonitor.onBind(launchListener, OrderActivity.class, intent);\n"
+                + "    }\n"));
+        assertTrue(setExtras.indexOf("activity.id = ") < setExtras.indexOf("onBind"));
+    }
+
+    @Test
+    public void activitiesWithoutExtrasAreReportedToo() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.HomeActivity",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class HomeActivity extends android.app.Activity {",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartHomeActivity");
+        assertTrue(source, source.contains(
+                "    LaunchListener launchListener = LaunchMonitor.getListener();\n"
+                + "    if (launchListener != null) {\n"
+                + "      LaunchMonitor.onLaunch(launchListener, HomeActivity.class, intent);\n"
+                + "    }\n"
+                + "    context.startActivity(intent);\n"));
+        assertEquals(source.indexOf("onLaunch"), source.lastIndexOf("onLaunch"));
+    }
+}
@@ -0,0 +1,82 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyExtrasTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void bindsLazyExtrasOnFirstUse() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Report",
+                        "package app;",
+                        "public class Report implements java.io.Serializable {",
+                        "}")
+                .addSource("app.ReportActivity",
+                        "package app;",
+                        "import android.graphics.Rect;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.runtime.Lazy;",
+                        "@startle.annotation.Startle",
+                        "public class ReportActivity extends android.app.Activity {",
+                        "    @RequestExtra long id;",
+                        "    @RequestExtra Lazy<Report> report;",
+                        "    @RequestExtra Lazy<Rect> bounds;",
+                        "    Report getReport() {",
+                        "        return report.get();",
+                        "    }",
+                        "}")
+                .addSource("app.Caller",
+                        "package app;",
+                        "class Caller {",
+                        "    static void launch(android.content.Context context) {",
+                        "        StartReportActivity.prepareReportActivity(context)",
+                        "                .setId(1L)",
+                        "                .setReport(new Report())",
+                        "                .setBounds(new android.graphics.Rect())",
+                        "                .start();",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String start = result.generatedSource("app.StartReportActivity");
+        assertTrue(start, start.contains(
+                "activity.id = extras.getLong(StartReportActivity.Builder.EXTRA_ID, -1L);"));
+        assertTrue(start, start.contains(
+                "activity.report = Lazy.serializable(extras, StartReportActivity.Builder.EXTRA_REPORT);"));
+        assertTrue(start, start.contains(
+                "activity.bounds = Lazy.parcelable(extras, StartReportActivity.Builder.EXTRA_BOUNDS);"));
+    }
+
+    @Test
+    public void rejectsLazyExtrasWithCheapAccessors() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.NameActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "import startle.runtime.Lazy;",
+                        "@startle.annotation.Startle",
+                        "public class NameActivity extends android.app.Activity {",
+                        "    @RequestExtra Lazy<String> name;",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList(
+                        "name must be a Lazy of a Parcelable or Serializable class"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
@@ -0,0 +1,70 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModelReaderTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void acceptsActivitiesSharingABaseClass() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.BaseActivity",
+                        "package app;",
+                        "public abstract class BaseActivity extends android.app.Activity {",
+                        "}")
+                .addSource("app.FirstActivity",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class FirstActivity extends BaseActivity {",
+                        "}")
+                .addSource("app.SecondActivity",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class SecondActivity extends BaseActivity {",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("app.StartFirstActivity").contains("startFirstActivity("));
+        assertTrue(result.generatedSource("app.StartSecondActivity").contains("startSecondActivity("));
+    }
+
+    @Test
+    public void reportsInvalidExtrasAndNonActivities() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class ProfileActivity extends android.app.Activity {",
+                        "    @startle.annotation.RequestExtra private long id;",
+                        "}")
+                .run();
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("id cannot be private"),
+                result.messages(Diagnostic.Kind.ERROR));
+
+        result = new ProcessorRunner(temp)
+                .addSource("app.Helper",
+                        "package app;",
+                        "@startle.annotation.Startle",
+                        "public class Helper {",
+                        "}")
+                .run();
+        assertFalse(result.success);
+        assertEquals(
+                Collections.singletonList("@Startle annotation must be on an Activity or Fragment"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
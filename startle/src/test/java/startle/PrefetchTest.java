@@ -0,0 +1,126 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchTest {
+    private static final String[] PROFILE = {
+            "package app;",
+            "import java.util.concurrent.Future;",
+            "import startle.annotation.Prefetch;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class ProfileActivity extends android.app.Activity {",
+            "    @RequestExtra long userId;",
+            "    @RequestExtra String tab;",
+            "    Future<String> profile;",
+            "    Future<Integer> unread;",
+            "    @Prefetch(\"profile\")",
+            "    static String loadProfile(long userId, String tab) {",
+            "        return tab + userId;",
+            "    }",
+            "    @Prefetch(\"unread\")",
+            "    static int countUnread(long userId) {",
+            "        return 0;",
+            "    }",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void builderStartsTheLoadAndActivityTakesIt() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity", PROFILE)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartProfileActivity");
+        assertTrue(source, source.contains("static final String PREFETCH_PROFILE ="
+                + " \"app.ProfileActivity.prefetch.profile\";"));
+        assertTrue(source, source.contains("intent.putExtra(PREFETCH_PROFILE,"
+                + " PrefetchCache.getInstance().prefetch(prefetchProfile(userId, tab)));"));
+        assertTrue(source, source.contains("static Callable<Integer> prefetchUnread("
+                + "final long userId) {"));
+        assertTrue(source, source.contains("return ProfileActivity.countUnread(userId);"));
+        assertTrue(source, source.contains("activity.profile = PrefetchCache.getInstance().take(\n"
+                + "            extras.getLong(StartProfileActivity.Builder.PREFETCH_PROFILE, 0L),"
+                + " prefetchProfile(activity.userId, activity.tab));"));
+        assertTrue(source, source.contains("static void releaseExtras(ProfileActivity activity) {"));
+        assertTrue(source, source.contains("PrefetchCache.getInstance().release("
+                + "extras.getLong(StartProfileActivity.Builder.PREFETCH_PROFILE, 0L));"));
+    }
+
+    @Test
+    public void compactBuildersFallBackToFullOnes() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.compact", "true")
+                .addSource("app.ProfileActivity", PROFILE)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.messages(Diagnostic.Kind.NOTE).contains("ProfileActivity gets a full"
+                + " builder because the compact one can't prefetch"));
+        assertTrue(result.generatedSource("app.StartProfileActivity")
+                .contains("PrefetchCache.getInstance().prefetch("));
+    }
+
+    @Test
+    public void rejectsParametersThatAreNotExtras() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity",
+                        "package app;",
+                        "import java.util.concurrent.Future;",
+                        "import startle.annotation.Prefetch;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class ProfileActivity extends android.app.Activity {",
+                        "    @RequestExtra long userId;",
+                        "    Future<String> profile;",
+                        "    @Prefetch(\"profile\")",
+                        "    static String loadProfile(long id) {",
+                        "        return null;",
+                        "    }",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("Parameter id of loadProfile must be named after"
+                        + " a @RequestExtra field"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+
+    @Test
+    public void rejectsFieldsThatCantHoldTheResult() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity",
+                        "package app;",
+                        "import java.util.concurrent.Future;",
+                        "import startle.annotation.Prefetch;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class ProfileActivity extends android.app.Activity {",
+                        "    @RequestExtra long userId;",
+                        "    Future<Integer> profile;",
+                        "    @Prefetch(\"profile\")",
+                        "    static String loadProfile(long userId) {",
+                        "        return null;",
+                        "    }",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("loadProfile must prefetch into a non-private"
+                        + " java.util.concurrent.Future<java.lang.String> field named profile"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
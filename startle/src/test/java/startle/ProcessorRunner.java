@@ -0,0 +1,337 @@
+package startle;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs {@link StartleProcessor} and {@link RoutesProcessor} through the in-process javac against the
+ * Android stub jar on the test classpath and records what it generated.
+ * Everything is written under the test's {@link TemporaryFolder}, so it's
+ * deleted once the test is done with the result.
+ */
+final class ProcessorRunner {
+    private final TemporaryFolder temp;
+    private final Map<String, String> sources = new LinkedHashMap<>();
+    private final List<File> classpath = new ArrayList<>();
+    private final List<String> options = new ArrayList<>();
+    private boolean procOnly;
+
+    ProcessorRunner(TemporaryFolder temp) {
+        this.temp = temp;
+    }
+
+    ProcessorRunner addSource(String qualifiedName, String... lines) {
+        sources.put(qualifiedName, String.join("\n", lines) + "\n");
+        return this;
+    }
+
+    ProcessorRunner addClasspath(File dir) {
+        classpath.add(dir);
+        return this;
+    }
+
+    ProcessorRunner addOption(String key, String value) {
+        options.add("-A" + key + "=" + value);
+        return this;
+    }
+
+    /**
+     * Only run the processor and skip compiling what it generated.
+     */
+    ProcessorRunner procOnly() {
+        procOnly = true;
+        return this;
+    }
+
+    Result run() throws IOException {
+        File root = temp.newFolder();
+        File sourceDir = new File(root, "src");
+        File generatedDir = new File(root, "generated");
+        File classDir = new File(root, "classes");
+        generatedDir.mkdirs();
+        classDir.mkdirs();
+        List<File> sourceFiles = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            File file = new File(sourceDir, source.getKey().replace('.', '/') + ".java");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), source.getValue().getBytes(StandardCharsets.UTF_8));
+            sourceFiles.add(file);
+        }
+
+        StringBuilder cp = new StringBuilder(System.getProperty("java.class.path"));
+        for (File dir : classpath) {
+            cp.append(File.pathSeparator).append(dir.getAbsolutePath());
+        }
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "-source", "8", "-target", "8", "-Xlint:-options",
+                "-classpath", cp.toString(),
+                "-s", generatedDir.getAbsolutePath(),
+                "-d", classDir.getAbsolutePath()));
+        args.addAll(options);
+        if (procOnly) {
+            args.add("-proc:only");
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+                diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+        RecordingProcessor processor = new RecordingProcessor(new StartleProcessor());
+        RecordingProcessor routesProcessor = new RecordingProcessor(new RoutesProcessor());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                args, null, fileManager.getJavaFileObjectsFromFiles(sourceFiles));
+        task.setProcessors(Arrays.asList(processor, routesProcessor));
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        boolean success = task.call();
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        fileManager.close();
+        Map<String, List<String>> originatingElements = new HashMap<>(
+                processor.originatingElements);
+        originatingElements.putAll(routesProcessor.originatingElements);
+        return new Result(success, diagnostics.getDiagnostics(), generatedDir, classDir,
+                originatingElements, processor.processingNanos + routesProcessor.processingNanos,
+                processor.allocatedBytes == -1 ? -1
+                        : processor.allocatedBytes + routesProcessor.allocatedBytes,
+                peakHeapBytes);
+    }
+
+    static final class Result {
+        final boolean success;
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        final File generatedDir;
+        final File classDir;
+        /** Generated source name to the qualified names of its originating elements */
+        final Map<String, List<String>> originatingElements;
+        /** Wall time spent in the processor's rounds */
+        final long processingNanos;
+        /** Bytes allocated by the processor's rounds or -1 if the JVM can't tell */
+        final long allocatedBytes;
+        /** Sum of the heap pools' peak usage over the whole compilation */
+        final long peakHeapBytes;
+
+        Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                File generatedDir, File classDir, Map<String, List<String>> originatingElements,
+                long processingNanos, long allocatedBytes, long peakHeapBytes) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.generatedDir = generatedDir;
+            this.classDir = classDir;
+            this.originatingElements = originatingElements;
+            this.processingNanos = processingNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        String generatedSource(String qualifiedName) throws IOException {
+            File file = new File(generatedDir, qualifiedName.replace('.', '/') + ".java");
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        }
+
+        List<String> messages(Diagnostic.Kind kind) {
+            List<String> messages = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                if (diagnostic.getKind() == kind) {
+                    messages.add(diagnostic.getMessage(Locale.ROOT));
+                }
+            }
+            return messages;
+        }
+
+        @Override
+        public String toString() {
+            return "success=" + success + " diagnostics=" + diagnostics;
+        }
+    }
+
+    /**
+     * Delegates to the real processor but hands it a {@link Filer} that
+     * remembers the originating elements of every generated file, which is
+     * what Gradle uses to decide what to regenerate. Also measures the time
+     * and allocation of its rounds, which javac runs on the calling thread.
+     */
+    private static final class RecordingProcessor implements Processor {
+        private final Processor delegate;
+        final Map<String, List<String>> originatingElements = new HashMap<>();
+        long processingNanos;
+        long allocatedBytes;
+
+        RecordingProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            delegate.init(new RecordingEnvironment(processingEnv, this));
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long allocatedBefore = threadAllocatedBytes();
+            long start = System.nanoTime();
+            try {
+                return delegate.process(annotations, roundEnv);
+            } finally {
+                processingNanos += System.nanoTime() - start;
+                allocatedBytes = allocatedBefore == -1 ? -1
+                        : allocatedBytes + threadAllocatedBytes() - allocatedBefore;
+            }
+        }
+
+        private static long threadAllocatedBytes() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        @Override
+        public Iterable<? extends javax.annotation.processing.Completion> getCompletions(
+                Element element, javax.lang.model.element.AnnotationMirror annotation,
+                javax.lang.model.element.ExecutableElement member, String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+
+        void record(CharSequence name, Element... elements) {
+            List<String> names = new ArrayList<>();
+            for (Element element : elements) {
+                names.add(((TypeElement) element).getQualifiedName().toString());
+            }
+            originatingElements.put(name.toString(), names);
+        }
+    }
+
+    private static final class RecordingEnvironment implements ProcessingEnvironment {
+        private final ProcessingEnvironment delegate;
+        private final Filer filer;
+
+        RecordingEnvironment(ProcessingEnvironment delegate, RecordingProcessor recorder) {
+            this.delegate = delegate;
+            Filer real = delegate.getFiler();
+            this.filer = new Filer() {
+                @Override
+                public JavaFileObject createSourceFile(CharSequence name,
+                        Element... originatingElements) throws IOException {
+                    recorder.record(name, originatingElements);
+                    return real.createSourceFile(name, originatingElements);
+                }
+
+                @Override
+                public JavaFileObject createClassFile(CharSequence name,
+                        Element... originatingElements) throws IOException {
+                    recorder.record(name, originatingElements);
+                    return real.createClassFile(name, originatingElements);
+                }
+
+                @Override
+                public FileObject createResource(JavaFileManager.Location location,
+                        CharSequence pkg, CharSequence relativeName,
+                        Element... originatingElements) throws IOException {
+                    recorder.record(pkg + "/" + relativeName, originatingElements);
+                    return real.createResource(location, pkg, relativeName, originatingElements);
+                }
+
+                @Override
+                public FileObject getResource(JavaFileManager.Location location,
+                        CharSequence pkg, CharSequence relativeName) throws IOException {
+                    return real.getResource(location, pkg, relativeName);
+                }
+            };
+        }
+
+        @Override
+        public Map<String, String> getOptions() {
+            return delegate.getOptions();
+        }
+
+        @Override
+        public Messager getMessager() {
+            return delegate.getMessager();
+        }
+
+        @Override
+        public Filer getFiler() {
+            return filer;
+        }
+
+        @Override
+        public Elements getElementUtils() {
+            return delegate.getElementUtils();
+        }
+
+        @Override
+        public Types getTypeUtils() {
+            return delegate.getTypeUtils();
+        }
+
+        @Override
+        public SourceVersion getSourceVersion() {
+            return delegate.getSourceVersion();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return delegate.getLocale();
+        }
+    }
+}
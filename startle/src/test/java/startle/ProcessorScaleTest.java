@@ -0,0 +1,104 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the processor over a synthetic module of {@code startle.scale.activities}
+ * activities with {@code startle.scale.extras} extras each and fails if the
+ * time or allocation per activity passes its threshold. The thresholds are
+ * per activity so the same limits apply to the small run in {@code test}
+ * and the full sized one in {@code processorBenchmark}. Allocation is the
+ * stable signal, the time limit is loose enough for slow CI machines.
+ */
+public class ProcessorScaleTest {
+    private static final String[] EXTRA_TYPES = {
+            "int", "long", "boolean", "double", "String", "CharSequence", "int[]",
+            "String[]", "java.util.ArrayList<String>", "java.util.List<Integer>",
+            "android.os.Bundle", "java.util.HashMap<String, String>",
+    };
+
+    private final int activities = Integer.getInteger("startle.scale.activities", 100);
+    private final int extras = Integer.getInteger("startle.scale.extras", 40);
+    private final double maxMillisPerActivity =
+            Double.parseDouble(System.getProperty("startle.scale.maxMillisPerActivity", "25"));
+    private final long maxAllocatedBytesPerActivity =
+            Long.getLong("startle.scale.maxAllocatedBytesPerActivity", 4 * 1024 * 1024);
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void processesLargeModulesWithinBudget() throws Exception {
+        ProcessorRunner runner = new ProcessorRunner(temp)
+                .procOnly()
+                .addSource("app.Nullable",
+                        "package app;",
+                        "public @interface Nullable {",
+                        "}");
+        for (int i = 0; i < activities; i++) {
+            runner.addSource("app.Synthetic" + i + "Activity", createActivity(i));
+        }
+
+        // the first run warms up javac and the processor
+        runner.run();
+        ProcessorRunner.Result result = runner.run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(activities, result.originatingElements.size());
+        double millisPerActivity = result.processingNanos / 1e6 / activities;
+        long allocatedBytesPerActivity = result.allocatedBytes / activities;
+        writeReport(result, millisPerActivity, allocatedBytesPerActivity);
+        assertTrue(String.format(Locale.ROOT, "%.2fms per activity exceeds %.2fms",
+                millisPerActivity, maxMillisPerActivity),
+                millisPerActivity <= maxMillisPerActivity);
+        assertTrue(allocatedBytesPerActivity + " bytes allocated per activity exceeds "
+                        + maxAllocatedBytesPerActivity,
+                allocatedBytesPerActivity <= maxAllocatedBytesPerActivity);
+    }
+
+    private String[] createActivity(int index) {
+        List<String> lines = new ArrayList<>();
+        lines.add("package app;");
+        lines.add("import startle.annotation.RequestExtra;");
+        lines.add("@startle.annotation.Startle");
+        lines.add("public class Synthetic" + index + "Activity extends android.app.Activity {");
+        for (int i = 0; i < extras; i++) {
+            // every third extra is optional
+            lines.add("    @RequestExtra " + (i % 3 == 2 ? "@Nullable " : "")
+                    + EXTRA_TYPES[i % EXTRA_TYPES.length] + " extra" + i + ";");
+        }
+        lines.add("}");
+        return lines.toArray(new String[0]);
+    }
+
+    private void writeReport(ProcessorRunner.Result result, double millisPerActivity,
+            long allocatedBytesPerActivity) throws IOException {
+        File dir = new File(System.getProperty("startle.scale.report", "build/reports/processor-scale"));
+        dir.mkdirs();
+        String report = String.format(Locale.ROOT, "activities: %d%n"
+                        + "extras per activity: %d%n"
+                        + "processing time: %.1fms%n"
+                        + "processing time per activity: %.3fms (max %.3fms)%n"
+                        + "allocated: %d bytes%n"
+                        + "allocated per activity: %d bytes (max %d bytes)%n"
+                        + "peak heap: %d bytes%n",
+                activities, extras, result.processingNanos / 1e6, millisPerActivity,
+                maxMillisPerActivity, result.allocatedBytes, allocatedBytesPerActivity,
+                maxAllocatedBytesPerActivity, result.peakHeapBytes);
+        Files.write(new File(dir, activities + "x" + extras + ".txt").toPath(),
+                report.getBytes(StandardCharsets.UTF_8));
+    }
+}
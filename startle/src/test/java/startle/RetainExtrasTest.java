@@ -0,0 +1,101 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetainExtrasTest {
+    private static final String[] REPORT = {
+            "package app;",
+            "import android.graphics.Rect;",
+            "import java.util.ArrayList;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle(retainExtras = true)",
+            "public class ReportActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra Report report;",
+            "    @RequestExtra ArrayList<Rect> bounds;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void deserializedExtrasAreDecodedOncePerIntent() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Report",
+                        "package app;",
+                        "public class Report implements java.io.Serializable {",
+                        "}")
+                .addSource("app.ReportActivity", REPORT)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertEquals(Collections.emptyList(), result.messages(Diagnostic.Kind.NOTE));
+        String source = result.generatedSource("app.StartReportActivity");
+        String setExtras = source.substring(source.indexOf("static void setExtras("),
+                source.indexOf("static AsyncBinding bindExtrasAsync("));
+        assertTrue(setExtras, setExtras.contains(
+                "Object[] retained = RetainedExtras.getInstance().get(intent, 2);"));
+        assertTrue(setExtras, setExtras.contains(
+                "activity.id = extras.getLong(StartReportActivity.Builder.EXTRA_ID, -1L);"));
+        assertTrue(setExtras, setExtras.contains("    if (retained[1] == null) {\n"
+                + "      retained[1] = (Report)"
+                + " extras.getSerializable(StartReportActivity.Builder.EXTRA_REPORT);\n"
+                + "    }\n"
+                + "    activity.report = (Report) retained[1];\n"));
+        assertTrue(source, source.contains("  @SuppressWarnings(\"unchecked\")\n"
+                + "  static void setExtras("));
+    }
+
+    @Test
+    public void asyncBindingReusesRetainedExtras() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Report",
+                        "package app;",
+                        "public class Report implements java.io.Serializable {",
+                        "}")
+                .addSource("app.ReportActivity", REPORT)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartReportActivity");
+        String bindAsync = source.substring(source.indexOf("static AsyncBinding bindExtrasAsync("));
+        assertTrue(bindAsync, bindAsync.contains("final Object[] retained ="));
+        assertTrue(bindAsync, bindAsync.contains("        if (retained[1] == null) {\n"
+                + "          retained[1] = (Report)"
+                + " extras.getSerializable(StartReportActivity.Builder.EXTRA_REPORT);\n"
+                + "        }\n"
+                + "        decodedReport = (Report) retained[1];\n"));
+    }
+
+    @Test
+    public void extrasAreDecodedEveryTimeByDefault() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Report",
+                        "package app;",
+                        "public class Report implements java.io.Serializable {",
+                        "}")
+                .addSource("app.ReportActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class ReportActivity extends android.app.Activity {",
+                        "    @RequestExtra Report report;",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartReportActivity");
+        assertFalse(source, source.contains("retained"));
+        assertFalse(source, source.contains("SuppressWarnings"));
+    }
+}
@@ -0,0 +1,152 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoutesTest {
+
+    private static final String[] PROFILE = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle(route = \"profile\")",
+            "public class ProfileActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "}"};
+
+    private static final String[] SETTINGS = {
+            "package app;",
+            "@startle.annotation.Startle(route = \"settings\")",
+            "public class SettingsActivity extends android.app.Activity {",
+            "}"};
+
+    private static final String[] CHECKOUT = {
+            "package feature;",
+            "@startle.annotation.Startle(route = \"checkout\")",
+            "public class CheckoutActivity extends android.app.Activity {",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void indexesRoutesOfTheModule() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.SettingsActivity", SETTINGS)
+                .addSource("app.Caller",
+                        "package app;",
+                        "import android.content.Context;",
+                        "import android.content.Intent;",
+                        "import startle.routes.StartleRoutes;",
+                        "import startle.runtime.RouteFactory;",
+                        "class Caller {",
+                        "    static void launch(Context context) {",
+                        "        RouteFactory<StartProfileActivity.Builder> profile = StartProfileActivity.ROUTE;",
+                        "        profile.prepare(context).setId(1L).start();",
+                        "        context.startActivity((Intent) StartleRoutes.get(\"settings\").prepare(context));",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String routes = result.generatedSource("startle.routes.StartleRoutes");
+        assertTrue(routes.contains("case \"profile\": return StartProfileActivity.ROUTE;"));
+        assertTrue(routes.contains("case \"settings\": return StartSettingsActivity.ROUTE;"));
+        assertEquals(Arrays.asList("app.ProfileActivity", "app.SettingsActivity"),
+                result.originatingElements.get("startle.routes.StartleRoutes"));
+    }
+
+    @Test
+    public void mergesShardsOfLibraryModules() throws Exception {
+        ProcessorRunner.Result library = new ProcessorRunner(temp)
+                .addSource("feature.CheckoutActivity", CHECKOUT)
+                .addOption("startle.routesModule", "Checkout")
+                .run();
+        assertTrue(library.toString(), library.success);
+        assertTrue(library.generatedSource("startle.routes.CheckoutRoutes")
+                .contains("@RouteShard("));
+        assertFalse(new File(library.generatedDir, "startle/routes/StartleRoutes.java").exists());
+
+        ProcessorRunner.Result app = new ProcessorRunner(temp)
+                .addSource("app.SettingsActivity", SETTINGS)
+                .addClasspath(library.classDir)
+                .run();
+
+        assertTrue(app.toString(), app.success);
+        String routes = app.generatedSource("startle.routes.StartleRoutes");
+        assertTrue(routes.contains("case \"checkout\": return StartCheckoutActivity.ROUTE;"));
+        assertTrue(routes.contains("case \"settings\": return StartSettingsActivity.ROUTE;"));
+    }
+
+    @Test
+    public void indexesShardsOfAnAppWithoutActivities() throws Exception {
+        ProcessorRunner.Result library = new ProcessorRunner(temp)
+                .addSource("feature.CheckoutActivity", CHECKOUT)
+                .addOption("startle.routesModule", "Checkout")
+                .run();
+        assertTrue(library.toString(), library.success);
+
+        ProcessorRunner.Result app = new ProcessorRunner(temp)
+                .addSource("app.App",
+                        "package app;",
+                        "public class App extends android.app.Application {",
+                        "}")
+                .addClasspath(library.classDir)
+                .addOption("startle.routesApp", "true")
+                .run();
+
+        assertTrue(app.toString(), app.success);
+        assertTrue(app.generatedSource("startle.routes.StartleRoutes")
+                .contains("case \"checkout\": return StartCheckoutActivity.ROUTE;"));
+        assertEquals(Collections.singletonList("startle.routes.CheckoutRoutes"),
+                app.originatingElements.get("startle.routes.StartleRoutes"));
+    }
+
+    @Test
+    public void onlyTheAppOptionClaimsEverySource() throws Exception {
+        ProcessorRunner.Result library = new ProcessorRunner(temp)
+                .addSource("feature.CheckoutActivity", CHECKOUT)
+                .addOption("startle.routesModule", "Checkout")
+                .run();
+        assertTrue(library.toString(), library.success);
+
+        ProcessorRunner.Result app = new ProcessorRunner(temp)
+                .addSource("app.App",
+                        "package app;",
+                        "public class App extends android.app.Application {",
+                        "}")
+                .addClasspath(library.classDir)
+                .run();
+
+        assertTrue(app.toString(), app.success);
+        assertFalse(app.originatingElements.containsKey("startle.routes.StartleRoutes"));
+    }
+
+    @Test
+    public void rejectsDuplicateRoutes() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.SettingsActivity", SETTINGS)
+                .addSource("app.OtherSettingsActivity",
+                        "package app;",
+                        "@startle.annotation.Startle(route = \"settings\")",
+                        "public class OtherSettingsActivity extends android.app.Activity {",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertEquals(Collections.singletonList("Route settings is used by both"
+                        + " app.StartOtherSettingsActivity and app.StartSettingsActivity"),
+                result.messages(Diagnostic.Kind.ERROR));
+    }
+}
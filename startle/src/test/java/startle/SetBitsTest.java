@@ -0,0 +1,201 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.Context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SetBitsTest {
+    private static final String[] ORDER = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class OrderActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra String title;",
+            "    @RequestExtra @Nullable String note;",
+            "    @RequestExtra @Nullable int count;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void requiredBitsSkipOptionalExtras() throws Exception {
+        ProcessorRunner.Result result = runOrder();
+
+        String source = result.generatedSource("app.StartOrderActivity");
+        // count, id and title get bits in name order, only id and title are required
+        assertTrue(source, source.contains("private static final int REQUIRED_BITS = 0x6;"));
+        assertTrue(source, source.contains("if ((setBits & REQUIRED_BITS) != REQUIRED_BITS) {\n"
+                + "        throw new IllegalStateException(missingExtras(setBits));"));
+        assertTrue(source, source.contains(
+                "this.setBits = title != null ? setBits | 0x4 : setBits & ~0x4;"));
+        assertTrue(source, source.contains("this.setBits |= 0x1;"));
+    }
+
+    @Test
+    public void startReportsTheOneMissingExtra() throws Exception {
+        try (URLClassLoader loader = load(runOrder())) {
+            Object builder = newBuilder(loader, "app.StartOrderActivity");
+            call(builder, "setId", long.class, 1L);
+            call(builder, "setCount", int.class, 2);
+
+            assertEquals("Missing required extras: title", startFailure(builder));
+        }
+    }
+
+    @Test
+    public void startReportsEveryMissingExtra() throws Exception {
+        try (URLClassLoader loader = load(runOrder())) {
+            Object builder = newBuilder(loader, "app.StartOrderActivity");
+            call(builder, "setNote", String.class, "note");
+
+            assertEquals("Missing required extras: id title", startFailure(builder));
+        }
+    }
+
+    @Test
+    public void objectSetBackToNullIsMissingAgain() throws Exception {
+        try (URLClassLoader loader = load(runOrder())) {
+            Object builder = newBuilder(loader, "app.StartOrderActivity");
+            call(builder, "setId", long.class, 1L);
+            call(builder, "setTitle", String.class, "title");
+            call(builder, "setTitle", String.class, null);
+
+            assertEquals("Missing required extras: title", startFailure(builder));
+        }
+    }
+
+    @Test
+    public void moreThanThirtyTwoExtrasUseALong() throws Exception {
+        ProcessorRunner.Result result = runWide(40);
+
+        String source = result.generatedSource("app.StartWideActivity");
+        assertTrue(source, source.contains("private long setBits;"));
+        assertTrue(source, source.contains(
+                "private static final long REQUIRED_BITS = 0xffffffffffL;"));
+        assertTrue(source, source.contains("this.setBits |= 0x8000000000L;"));
+        assertTrue(source, source.contains("if ((setBits & 0x8000000000L) == 0) {\n"
+                + "        missing.append(\" extra39\");"));
+        // the binder's mask grows the same way
+        assertTrue(source, source.contains("    long missing = 0;\n"));
+        assertTrue(source, source.contains("      missing |= 0x8000000000L;\n"));
+        assertTrue(source, source.contains(
+                "throw new IllegalStateException(missingExtras(missing));"));
+        assertTrue(source, source.contains("private static String missingExtras(long missing) {"));
+
+        try (URLClassLoader loader = load(result)) {
+            Object builder = newBuilder(loader, "app.StartWideActivity");
+            setAllBut(builder, 40, 39);
+
+            assertEquals("Missing required extras: extra39", startFailure(builder));
+        }
+    }
+
+    @Test
+    public void moreThanSixtyFourExtrasUseSeveralLongs() throws Exception {
+        ProcessorRunner.Result result = runWide(70);
+
+        String source = result.generatedSource("app.StartWideActivity");
+        assertTrue(source, source.contains("private long setBits0;"));
+        assertTrue(source, source.contains("private long setBits1;"));
+        assertTrue(source, source.contains(
+                "private static final long REQUIRED_BITS0 = 0xffffffffffffffffL;"));
+        assertTrue(source, source.contains("private static final long REQUIRED_BITS1 = 0x3fL;"));
+        assertTrue(source, source.contains(
+                "if (setBits0 != REQUIRED_BITS0 || setBits1 != REQUIRED_BITS1) {\n"
+                + "        throw new IllegalStateException(missingExtras(setBits0, setBits1));"));
+        assertTrue(source, source.contains("    long missing0 = 0;\n    long missing1 = 0;\n"));
+        assertTrue(source, source.contains("      missing0 |= 0x8000000000000000L;\n"));
+        assertTrue(source, source.contains(
+                "private static String missingExtras(long missing0, long missing1) {"));
+
+        try (URLClassLoader loader = load(result)) {
+            Object builder = newBuilder(loader, "app.StartWideActivity");
+            setAllBut(builder, 70, 63, 65);
+
+            assertEquals("Missing required extras: extra63 extra65", startFailure(builder));
+        }
+    }
+
+    private ProcessorRunner.Result runOrder() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.OrderActivity", ORDER)
+                .run();
+        assertTrue(result.toString(), result.success);
+        return result;
+    }
+
+    private ProcessorRunner.Result runWide(int extras) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("package app;");
+        lines.add("import startle.annotation.RequestExtra;");
+        lines.add("@startle.annotation.Startle");
+        lines.add("public class WideActivity extends android.app.Activity {");
+        for (int i = 0; i < extras; i++) {
+            lines.add(String.format("    @RequestExtra int extra%02d;", i));
+        }
+        lines.add("}");
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.WideActivity", lines.toArray(new String[0]))
+                .run();
+        assertTrue(result.toString(), result.success);
+        return result;
+    }
+
+    private URLClassLoader load(ProcessorRunner.Result result) throws Exception {
+        return new URLClassLoader(new URL[] {result.classDir.toURI().toURL()},
+                getClass().getClassLoader());
+    }
+
+    private Object newBuilder(ClassLoader loader, String startClass) throws Exception {
+        Constructor<?> constructor = loader.loadClass(startClass + "$Builder")
+                .getDeclaredConstructor(Context.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance((Object) null);
+    }
+
+    private void setAllBut(Object builder, int extras, Integer... unset) throws Exception {
+        List<Integer> skipped = Arrays.asList(unset);
+        for (int i = 0; i < extras; i++) {
+            if (!skipped.contains(i)) {
+                call(builder, String.format("setExtra%02d", i), int.class, i);
+            }
+        }
+    }
+
+    private void call(Object builder, String setter, Class<?> type, Object value)
+            throws Exception {
+        builder.getClass().getMethod(setter, type).invoke(builder, value);
+    }
+
+    /**
+     * @return the message of the exception start() throws before it touches
+     * the Android stubs, which throw on every call
+     */
+    private String startFailure(Object builder) throws Exception {
+        try {
+            builder.getClass().getMethod("start").invoke(builder);
+        } catch (InvocationTargetException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+            return e.getCause().getMessage();
+        }
+        fail("start() didn't throw");
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StagedBuilderTest {
+
+    private static final String[] PROFILE = {
+            "package app;",
+            "import android.app.Activity;",
+            "import android.support.annotation.Nullable;",
+            "import startle.annotation.RequestExtra;",
+            "import startle.annotation.Startle;",
+            "@Startle(staged = true)",
+            "public class ProfileActivity extends Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra String name;",
+            "    @RequestExtra @Nullable String bio;",
+            "    @RequestExtra @Nullable int age;",
+            "}"};
+
+    private static final String[] NULLABLE = {
+            "package android.support.annotation;",
+            "public @interface Nullable {",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void chainsRequiredExtrasWithoutRuntimeChecks() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("android.support.annotation.Nullable", NULLABLE)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.Caller",
+                        "package app;",
+                        "import android.content.Context;",
+                        "class Caller {",
+                        "    static void launch(Context context) {",
+                        "        StartProfileActivity.prepareProfileActivity(context)",
+                        "                .setId(1L)",
+                        "                .setName(\"name\")",
+                        "                .setAge(30)",
+                        "                .start();",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartProfileActivity");
+        assertTrue(source.contains("public static StartProfileActivity.NeedsId prepareProfileActivity("));
+        assertTrue(source.contains("private static final class Builder implements"));
+        String builder = source.substring(source.indexOf("private static final class Builder"));
+        assertFalse(builder.contains("IllegalStateException"));
+        assertFalse(builder.contains("missingExtras"));
+    }
+
+    @Test
+    public void missingRequiredExtraFailsToCompile() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("android.support.annotation.Nullable", NULLABLE)
+                .addSource("app.ProfileActivity", PROFILE)
+                .addSource("app.Caller",
+                        "package app;",
+                        "import android.content.Context;",
+                        "class Caller {",
+                        "    static void launch(Context context) {",
+                        "        StartProfileActivity.prepareProfileActivity(context)",
+                        "                .setId(1L)",
+                        "                .start();",
+                        "    }",
+                        "}")
+                .run();
+
+        assertFalse(result.success);
+        assertTrue(result.toString(), result.messages(Diagnostic.Kind.ERROR).get(0)
+                .contains("start()"));
+    }
+}
@@ -0,0 +1,107 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertTrue;
+
+public class StartleStackTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void stacksEveryKindOfBuilder() throws Exception {
+        ProcessorRunner.Result result = runStack(new ProcessorRunner(temp));
+
+        assertTrue(result.toString(), result.success);
+        String inbox = result.generatedSource("app.StartInboxActivity");
+        assertTrue(inbox, inbox.contains("public static class Builder implements Launcher {"));
+        assertTrue(inbox, inbox.contains("    private Intent getIntent() {"));
+        assertTrue(inbox, inbox.contains(
+                "    @Override\n    public Intent toIntent() {\n      return getIntent();"));
+        String thread = result.generatedSource("app.StartThreadActivity");
+        assertTrue(thread, thread.contains("public interface Ready extends Launcher {"));
+        assertTrue(thread, thread.contains("    @Override\n    public Intent toIntent() {"));
+    }
+
+    @Test
+    public void stacksCompactBuilders() throws Exception {
+        ProcessorRunner.Result result = runStack(new ProcessorRunner(temp)
+                .addOption("startle.compact", "true"));
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("app.StartInboxActivity")
+                .contains("public static class Builder extends CompactBuilder {"));
+    }
+
+    @Test
+    public void snapshotsBuilders() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.InboxActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class InboxActivity extends android.app.Activity {",
+                        "    @RequestExtra String account;",
+                        "}")
+                .addSource("app.Notifier",
+                        "package app;",
+                        "import android.app.PendingIntent;",
+                        "import android.content.Context;",
+                        "import startle.runtime.LaunchSnapshot;",
+                        "import startle.runtime.PendingIntentCache;",
+                        "class Notifier {",
+                        "    static final PendingIntentCache CACHE = new PendingIntentCache(8,",
+                        "            PendingIntent.FLAG_UPDATE_CURRENT);",
+                        "    static PendingIntent getContentIntent(Context context) {",
+                        "        LaunchSnapshot snapshot = StartInboxActivity",
+                        "                .prepareInboxActivity(context)",
+                        "                .setAccount(\"me\")",
+                        "                .snapshot();",
+                        "        return CACHE.get(context, snapshot);",
+                        "    }",
+                        "}")
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        assertTrue(result.generatedSource("app.StartInboxActivity").contains(
+                "    public LaunchSnapshot snapshot() {\n      return LaunchSnapshot.of(getIntent());"));
+    }
+
+    private ProcessorRunner.Result runStack(ProcessorRunner runner) throws Exception {
+        return runner
+                .addSource("app.InboxActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle",
+                        "public class InboxActivity extends android.app.Activity {",
+                        "    @RequestExtra String account;",
+                        "}")
+                .addSource("app.ThreadActivity",
+                        "package app;",
+                        "import startle.annotation.RequestExtra;",
+                        "@startle.annotation.Startle(staged = true)",
+                        "public class ThreadActivity extends android.app.Activity {",
+                        "    @RequestExtra long threadId;",
+                        "}")
+                .addSource("app.Caller",
+                        "package app;",
+                        "import android.app.PendingIntent;",
+                        "import android.content.Context;",
+                        "import startle.runtime.StartleStack;",
+                        "class Caller {",
+                        "    static PendingIntent launch(Context context) {",
+                        "        StartleStack stack = StartleStack.with(context)",
+                        "                .add(StartInboxActivity.prepareInboxActivity(context)",
+                        "                        .setAccount(\"me\"))",
+                        "                .add(StartThreadActivity.prepareThreadActivity(context)",
+                        "                        .setThreadId(1L));",
+                        "        stack.start();",
+                        "        return stack.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);",
+                        "    }",
+                        "}")
+                .run();
+    }
+}
@@ -0,0 +1,95 @@
+package startle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ValidateExtrasTest {
+    private static final String[] ORDER = {
+            "package app;",
+            "import startle.annotation.RequestExtra;",
+            "@startle.annotation.Startle",
+            "public class OrderActivity extends android.app.Activity {",
+            "    @RequestExtra long id;",
+            "    @RequestExtra String title;",
+            "    @RequestExtra @Nullable String note;",
+            "}"};
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void bindingReportsEveryMissingExtraAtOnce() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.OrderActivity", ORDER)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartOrderActivity");
+        assertTrue(source, source.contains("    Bundle intentExtras = intent.getExtras();\n"
+                + "    Bundle extras = intentExtras != null ? intentExtras : Bundle.EMPTY;\n"
+                + "    int missing = 0;\n"
+                + "    activity.id = extras.getLong(StartOrderActivity.Builder.EXTRA_ID, -1L);\n"
+                + "    if (activity.id == -1L"
+                + " && !extras.containsKey(StartOrderActivity.Builder.EXTRA_ID)) {\n"
+                + "      missing |= 0x1;\n"
+                + "    }\n"
+                + "    activity.note = extras.getString(StartOrderActivity.Builder.EXTRA_NOTE);\n"
+                + "    activity.title = extras.getString(StartOrderActivity.Builder.EXTRA_TITLE);\n"
+                + "    if (activity.title == null) {\n"
+                + "      missing |= 0x2;\n"
+                + "    }\n"
+                + "    if (missing != 0) {\n"
+                + "      throw new IllegalStateException(missingExtras(missing));\n"
+                + "    }\n"));
+        assertTrue(source, source.contains(
+                "message.append(\" title (app.OrderActivity.title)\");"));
+    }
+
+    @Test
+    public void validationCanBeTurnedOff() throws Exception {
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addOption("startle.validateExtras", "false")
+                .addSource("app.Nullable", "package app;", "public @interface Nullable {}")
+                .addSource("app.OrderActivity", ORDER)
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartOrderActivity");
+        String setExtras = source.substring(source.indexOf("static void setExtras("),
+                source.indexOf("public static class Builder"));
+        assertTrue(setExtras, setExtras.contains("activity.id = extras.getLong("));
+        assertFalse(setExtras, setExtras.contains("missing"));
+    }
+
+    @Test
+    public void manyExtrasSpreadOverSeveralMasks() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("package app;");
+        lines.add("import startle.annotation.RequestExtra;");
+        lines.add("@startle.annotation.Startle");
+        lines.add("public class WideActivity extends android.app.Activity {");
+        for (int i = 0; i < 70; i++) {
+            lines.add(String.format("    @RequestExtra int extra%02d;", i));
+        }
+        lines.add("}");
+        ProcessorRunner.Result result = new ProcessorRunner(temp)
+                .addSource("app.WideActivity", lines.toArray(new String[0]))
+                .run();
+
+        assertTrue(result.toString(), result.success);
+        String source = result.generatedSource("app.StartWideActivity");
+        assertTrue(source, source.contains("missing1 |= 0x20L;"));
+        assertTrue(source, source.contains(
+                "throw new IllegalStateException(missingExtras(missing0, missing1));"));
+        assertTrue(source, source.contains("if ((missing1 & 0x20L) != 0) {\n"
+                + "      message.append(\" extra69 (app.WideActivity.extra69)\");"));
+    }
+}